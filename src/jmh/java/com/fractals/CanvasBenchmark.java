@@ -0,0 +1,88 @@
+package com.fractals;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CanvasBenchmark --- JMH benchmark of drawLine and drawEllipse throughput of each rasterizer's
+ * 					   Fractal2DCanvas, with the same drawing settings as generation, over a fixed
+ * 					   set of random shapes (partly off-canvas, so clipping is included).
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CanvasBenchmark 
+{
+	private static final int shapeCount = 4096; //shapes drawn per benchmark invocation
+	private static final int size = 1000;		//width and height (px) of the canvas
+	
+	@Param({"GRAPHICS2D", "DIRECT"})
+	public Fractal2D.Rasterizer rasterizer;
+	@Param({"8", "64"})
+	public int shapeSize; //maximum length of each line, and diameter of each ellipse (px)
+	
+	private Fractal2DCanvas canvas;
+	private double[] shapes; //x, y, dx, dy of each shape
+	
+	@Setup
+	public void setUp()
+	{
+		FractalTree fractalTree = new FractalTree(size, size, 1, 0, 0, 0, 0);
+		fractalTree.setRasterizer(rasterizer);
+		fractalTree.initImage();
+		canvas = fractalTree.canvas;
+		
+		Random random = new Random(42);
+		shapes = new double[shapeCount * 4];
+		for(int i = 0; i < shapes.length; i += 4) {
+			shapes[i] = random.nextDouble() * (size + 2 * shapeSize) - shapeSize;
+			shapes[i + 1] = random.nextDouble() * (size + 2 * shapeSize) - shapeSize;
+			shapes[i + 2] = random.nextDouble() * shapeSize;
+			shapes[i + 3] = random.nextDouble() * shapeSize;
+		}
+	}
+	
+	@TearDown
+	public void tearDown()
+	{
+		canvas.dispose();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(shapeCount)
+	public void drawLine()
+	{
+		for(int i = 0; i < shapes.length; i += 4) {
+			canvas.drawLine(shapes[i], shapes[i + 1], shapes[i] + shapes[i + 2], shapes[i + 1] + shapes[i + 3]);
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(shapeCount)
+	public void drawEllipse()
+	{
+		for(int i = 0; i < shapes.length; i += 4) {
+			canvas.drawEllipse(shapes[i], shapes[i + 1], shapes[i + 2], shapes[i + 2]);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.fractals;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EncodeBenchmark --- JMH benchmark of encoding a generated FractalTree as PNG, with ImageIO (Fractal2D.encode)
+ * 					   and with PngEncoder, serially (as for tiles) and in parallel, at several compression levels.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodeBenchmark 
+{
+	@Param({"500", "2000"})
+	public int size;
+	@Param({"1", "6", "9"})
+	public int level; //deflate level of PngEncoder (ImageIO's is fixed)
+	
+	private FractalTree fractalTree;
+	
+	@Setup
+	public void setUp()
+	{
+		fractalTree = new FractalTree(size, size, 14, Math.toRadians(60), 0.77, 40, 40);
+		fractalTree.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		fractalTree.generate();
+	}
+	
+	@Benchmark
+	public byte[] encodeImageIO() throws Exception
+	{
+		return fractalTree.encode("png");
+	}
+	
+	@Benchmark
+	public byte[] encodePngEncoder() throws Exception
+	{
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PngEncoder encoder = new PngEncoder(output, size, size, level);
+		encoder.writeRows(fractalTree.image);
+		encoder.finish();
+		return output.toByteArray();
+	}
+	
+	@Benchmark
+	public byte[] encodePngEncoderParallel() throws Exception
+	{
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PngEncoder encoder = new PngEncoder(output, size, size, level, ForkJoinPool.commonPool());
+		encoder.writeRows(fractalTree.image);
+		encoder.finish();
+		return output.toByteArray();
+	}
+}
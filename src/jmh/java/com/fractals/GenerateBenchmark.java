@@ -0,0 +1,78 @@
+package com.fractals;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GenerateBenchmark --- JMH benchmark of generating a whole FractalTree and FractalCircle
+ * 						 (serially) across iteration counts, image sizes and rasterizers, with and without symmetry.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerateBenchmark 
+{
+	@State(Scope.Benchmark)
+	public static class TreeParams
+	{
+		@Param({"10", "14", "18"})
+		public int iterations;
+		@Param({"500", "2000"})
+		public int size;
+		@Param({"GRAPHICS2D", "DIRECT"})
+		public Fractal2D.Rasterizer rasterizer;
+		@Param({"false", "true"})
+		public boolean symmetric;
+	}
+	
+	@State(Scope.Benchmark)
+	public static class CircleParams
+	{
+		@Param({"4", "6", "8"})
+		public int iterations;
+		@Param({"500", "2000"})
+		public int size;
+		@Param({"GRAPHICS2D", "DIRECT"})
+		public Fractal2D.Rasterizer rasterizer;
+		@Param({"false", "true"})
+		public boolean symmetric;
+	}
+	
+	@Benchmark
+	public BufferedImage generateFractalTree(TreeParams params)
+	{
+		FractalTree fractalTree = new FractalTree(params.size, params.size, params.iterations, 
+												  Math.toRadians(60), 0.77, 40, 40);
+		fractalTree.setRasterizer(params.rasterizer);
+		fractalTree.setSymmetric(params.symmetric);
+		fractalTree.generate();
+		return fractalTree.image;
+	}
+	
+	@Benchmark
+	public BufferedImage generateFractalCircle(CircleParams params)
+	{
+		FractalCircle fractalCircle = new FractalCircle(params.size, params.size, params.iterations, 
+														6, 0.5, 40, 40);
+		fractalCircle.setRasterizer(params.rasterizer);
+		fractalCircle.setSymmetric(params.symmetric);
+		fractalCircle.generate();
+		return fractalCircle.image;
+	}
+}
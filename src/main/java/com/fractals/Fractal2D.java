@@ -1,28 +1,44 @@
 package com.fractals;
 
 import java.awt.Graphics2D;
-import java.awt.geom.Ellipse2D;
-import java.awt.geom.Line2D;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.net.URL;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 /**
  * Fractal2D --- Abstract class that represents a 2D Fractal
  * 				 that is generated on an image and can be saved to the disk.
  * @author Scott Wolfskill
  * @created     02/12/2019
- * @last_edit   02/25/2019
+ * @last_edit   10/18/2026
  */
 public abstract class Fractal2D extends Fractal 
 {
@@ -32,14 +48,357 @@ public abstract class Fractal2D extends Fractal
 	protected int height;			  //height of fractal image to generate
 	protected int padding_horizontal; //padding (px) for left/right sides of generated image
 	protected int padding_vertical;   //padding (px) for top/bottom sides of generated image
-	protected BufferedImage image;    //image to draw the fractal onto
+	protected BufferedImage image;    //image to draw the fractal onto (the whole canvas, or a single tile of it; null for vector output)
+	protected int originX;			  //canvas x-coordinate of image's leftmost column (non-zero only for tiles)
+	protected int originY;			  //canvas y-coordinate of image's topmost row (non-zero only for tiles)
 	protected Graphics2D gfx;		  //Graphics of image
+	protected Fractal2DCanvas canvas; //canvas that draws onto image with the settings (color etc.) of gfx
+	protected Rasterizer rasterizer;  //how nodes are drawn onto image
+	protected int parallelism;		  //number of worker threads to generate with (<= 1 generates serially on the calling thread)
+	protected int splitDepth;		  //depth at which generation is split into parallel subtrees (<= 0 picks one from parallelism)
+	protected ForkJoinPool renderPool; //shared pool to draw parallel subtrees on, or null for a pool of parallelism threads per generation
+	protected boolean culling;		  //if true, stop recursing into subtrees that are off-canvas or smaller than cullingThreshold
+	protected double cullingThreshold; //size (px) below which a subtree's descendants are not drawn when culling
+	protected boolean offImageCulling; //if true, stop recursing into subtrees that are outside of image (always for tiles)
+	protected final LongAdder nodesDrawn = new LongAdder(); //nodes drawn so far by the current generation (from any thread)
+	protected PreviewListener previewListener; //if not null, generation is breadth-first and previews are published to it
+	protected int previewLevels;	  //publish a preview at least every previewLevels levels (<= 0: not by level)
+	protected long previewInterval;	  //publish a preview at least every previewInterval ms (<= 0: not by time)
+	private int lastPreviewDepth;	  //depth of the last preview published by the current generation
+	private long lastPreviewTime;	  //time (ms) of the last preview, or start of the current generation
+	protected long timeBudget;		  //time (ms) generation may take before stopping at the deepest finished level (<= 0: no limit)
+	private long generationStart;	  //System.nanoTime() at the start of the current generation
+	private long deadline;			  //System.nanoTime() at which the current generation runs out of time (0: no limit)
+	private volatile int depthReached; //number of levels completely drawn by the current/last generation
+	private Object levelSnapshot;	  //image's data (int[] or byte[]) at depthReached, restored if the next level runs out of time
+	protected PixelFormat pixelFormat; //format of the pixels of image
+	private BufferedImage reusableImage; //image to clear and draw the next generation onto instead of a new one, or null
+	private RenderSnapshot deepenFrom; //snapshot of fewer iterations for the next generation to draw the new levels onto, or null
+	protected PngEncoding pngEncoding; //how PNG images are encoded
+	protected int compressionLevel;	  //deflate level (0-9, -1: default) of PNG images encoded by PARALLEL (and tiles)
+	protected int previewCompressionLevel; //deflate level (0-9, -1: default) of PNG previews encoded by PARALLEL
+	protected boolean symmetric;	  //if true, images are drawn by replicating a fundamental part of the fractal (see setSymmetric)
+	
+	protected static final double nanosPerPixel = 30; //approximate CPU time (ns) per image pixel to create and encode an image
+	protected static final int maxFrontierNodes = 1 << 18; //breadth-first generation continues depth-first before a level exceeds this many nodes
+	private static final IndexColorModel binaryPalette = createPalette(1);  //black (0) and white (1), 1 bit per pixel
+	private static final IndexColorModel indexedPalette = createPalette(8); //black (0) and white (1), 1 byte per pixel
+	
+	/**
+	 * Rasterizer --- How the nodes of a Fractal2D are drawn onto its image.
+	 */
+	public enum Rasterizer
+	{
+		GRAPHICS2D, //general-purpose Java2D pipeline (see Graphics2DCanvas)
+		DIRECT		//allocation-free rasterizer writing straight into the image's data buffer (see RasterCanvas)
+	}
+	
+	/**
+	 * PngEncoding --- How a generated Fractal2D is encoded as a PNG image.
+	 */
+	public enum PngEncoding
+	{
+		IMAGEIO,  //ImageIO's PNG writer: single-threaded, with its own fixed compression level
+		PARALLEL  //PngEncoder compressing blocks of rows in parallel, at a configurable compression level
+	}
+	
+	/**
+	 * PixelFormat --- Format of the pixels of the image a Fractal2D is drawn onto. Fractals are drawn in
+	 * 				   a single color on the background, so the indexed formats lose nothing (without antialiasing).
+	 * 				   The DIRECT rasterizer draws the same pixels in every format; GRAPHICS2D does too except
+	 * 				   for BINARY, where Java2D's 1-bit line loops leave out some pixels.
+	 */
+	public enum PixelFormat
+	{
+		RGB,	 //TYPE_INT_RGB: 4 bytes per pixel, encoded as an RGB PNG
+		INDEXED, //TYPE_BYTE_INDEXED with a 2-color palette: 1 byte per pixel, encoded as an 8-bit palette PNG
+		BINARY	 //TYPE_BYTE_BINARY: 1 bit per pixel, encoded as a 1-bit palette PNG (32x less memory than RGB)
+	}
 	
 	/**
-	 * Method for derived classes to implement to generate the fractal,
+	 * Symmetry --- Symmetry of a fractal's image that maps the pixel grid onto itself exactly, about the
+	 * 				canvas's center pixel (cx, cy) = (width / 2, height / 2). Pixel (x, y) is drawn at canvas
+	 * 				coordinates (x, y) by either rasterizer, so a node mirrored or turned by one of these
+	 * 				transforms covers the transformed pixels of the node (up to rounding of exact halves).
+	 */
+	protected enum Symmetry
+	{
+		NONE(1),		 //no symmetry
+		MIRROR(2),		 //mirror-symmetric about the vertical center line: (x, y) -> (2cx - x, y)
+		HALF_TURN(2),	 //symmetric under turns by 180 degrees: (x, y) -> (2cx - x, 2cy - y)
+		QUARTER_TURN(4); //symmetric under turns by 90 degrees: (x, y) -> (cx + cy - y, cy - cx + x), on square canvases
+		
+		private final int order; //number of transforms, including the identity
+		
+		private Symmetry(int order)
+		{
+			this.order = order;
+		}
+	}
+	
+	/**
+	 * Subtree --- Part of a fractal below a single node that can be drawn independently
+	 * 			   of the rest of the fractal onto any Fractal2DCanvas.
+	 */
+	protected interface Subtree
+	{
+		public void draw(Fractal2DCanvas canvas);
+	}
+	
+	/**
+	 * PreviewListener --- Receives intermediate images while a Fractal2D is generated breadth-first.
+	 */
+	public interface PreviewListener
+	{
+		/**
+		 * Called on the generating thread once every level down to depth has been drawn onto image.
+		 * image must not be kept: the next level is drawn onto it once this returns.
+		 * @param fractal2D Fractal2D being generated, whose image holds the preview.
+		 * @param depth Number of levels drawn so far.
+		 */
+		public void preview(Fractal2D fractal2D, int depth);
+	}
+	
+	/**
+	 * Method for derived classes to implement to draw the whole fractal onto canvas,
 	 * running for totalIterations iterations.
 	 */
-	public abstract void generate();
+	protected abstract void draw();
+	
+	/**
+	 * Generate the fractal onto a new image of the whole canvas.
+	 */
+	public void generate()
+	{
+		nodesDrawn.reset();
+		lastPreviewDepth = 0;
+		lastPreviewTime = System.currentTimeMillis();
+		generationStart = System.nanoTime();
+		deadline = timeBudget > 0 ? generationStart + timeBudget * 1000000 : 0;
+		depthReached = 0;
+		levelSnapshot = null;
+		RenderSnapshot from = deepenFrom;
+		deepenFrom = null;
+		initImage();
+		boolean drawnByLevel = from == null && isDrawnByLevel();
+		if(from != null) {
+			Object pixels = from.getPixels();
+			System.arraycopy(pixels, 0, getPixels(), 0, Array.getLength(pixels));
+			depthReached = from.getDepth();
+			drawFrontier(from.getFrontier(), from.getFrontierCount(), totalIterations - from.getDepth());
+		} else {
+			draw();
+		}
+		replicate();
+		if(!drawnByLevel && !cancelled.get()) {
+			depthReached = totalIterations;
+		}
+		levelSnapshot = null;
+	}
+	
+	/**
+	 * Method for derived classes to implement for incremental deepening (see snapshot):
+	 * compute the nodes of the level below the last one drawn (level totalIterations), exactly
+	 * as draw would if it went on, including nodes that are off-canvas.
+	 * @param maxNodes Most nodes the level may have.
+	 * @return nodes of the level in the format drawFrontier takes, or null if over maxNodes
+	 * 		   (in which case no snapshot is taken, so drawFrontier is never called with it).
+	 */
+	protected abstract double[] computeFrontier(int maxNodes);
+	
+	/**
+	 * Method for derived classes to implement for incremental deepening (see deepenFrom):
+	 * draw every level below the nodes of frontier onto canvas, like draw would.
+	 * @param frontier Nodes of a level, from computeFrontier.
+	 * @param frontierCount Number of nodes in frontier.
+	 * @param iterationsRemaining Number of levels to draw, starting with frontier's.
+	 */
+	protected abstract void drawFrontier(double[] frontier, int frontierCount, int iterationsRemaining);
+	
+	/**
+	 * Take a snapshot of this generated Fractal2D for incremental deepening: the same Fractal2D
+	 * with more iterations is exactly this image plus the levels below its leaf frontier.
+	 * @return snapshot, or null if this Fractal2D cannot be deepened (see canDeepen), was not fully
+	 * 		   generated, or has a frontier of more than maxFrontierNodes nodes.
+	 */
+	public RenderSnapshot snapshot()
+	{
+		if(!canDeepen() || image == null || image.getWidth() != width || image.getHeight() != height 
+		   || depthReached != totalIterations || cancelled.get())
+		{
+			return null;
+		}
+		double[] frontier = computeFrontier(maxFrontierNodes);
+		if(frontier == null) {
+			return null;
+		}
+		Object pixels = getPixels();
+		Object copy = pixels instanceof int[] ? ((int[]) pixels).clone() : ((byte[]) pixels).clone();
+		return new RenderSnapshot(getDeepeningKey(), totalIterations, copy, frontier, getFrontierCount(frontier));
+	}
+	
+	/**
+	 * Method for derived classes to override if their nodes are not 1 value each.
+	 * @return number of nodes in frontier.
+	 */
+	protected int getFrontierCount(double[] frontier)
+	{
+		return frontier.length;
+	}
+	
+	/**
+	 * Make the next generation start from snapshot (drawing only the levels below it) if it is of
+	 * this Fractal2D with fewer iterations.
+	 * @param snapshot Snapshot of an earlier generation (see snapshot).
+	 * @return true if the next generation will start from snapshot.
+	 */
+	public boolean deepenFrom(RenderSnapshot snapshot)
+	{
+		if(!canDeepen() || snapshot.getDepth() >= totalIterations || !snapshot.getDeepeningKey().equals(getDeepeningKey())) {
+			return false;
+		}
+		deepenFrom = snapshot;
+		return true;
+	}
+	
+	/**
+	 * @return true if this Fractal2D can be generated from a snapshot of fewer iterations: not with culling,
+	 * 		   which stops recursing by how many levels are left (so levels drawn differ by iterations),
+	 * 		   nor with a time budget, which may stop at any level.
+	 */
+	protected boolean canDeepen()
+	{
+		return !culling && timeBudget <= 0;
+	}
+	
+	/**
+	 * Method for derived classes to override to estimate how many nodes generation draws.
+	 * @return number of nodes in getDrawnLevels levels (ignoring off-canvas culling), or 0 if unknown.
+	 */
+	protected double getNodeCount()
+	{
+		return 0;
+	}
+	
+	/**
+	 * Method for derived classes to override if every level of the fractal below the root is symmetric:
+	 * the root's children are mapped onto each other by the transforms of the symmetry, in order (so that
+	 * the 1st 1/order of them are a fundamental part), and so are the subtrees below them.
+	 * @return symmetry of the fractal with its current parameters and canvas.
+	 */
+	protected Symmetry getSymmetry()
+	{
+		return Symmetry.NONE;
+	}
+	
+	/**
+	 * Method for derived classes to call when adding the children of the root.
+	 * @param branchingFactor Number of children per node of the fractal.
+	 * @return number of the root's children to draw: all of them, or only the fundamental part
+	 * 		   of them when drawing an image symmetrically (see setSymmetric).
+	 */
+	protected int getFundamentalChildren(int branchingFactor)
+	{
+		return isSymmetric() && image != null ? branchingFactor / getSymmetry().order : branchingFactor;
+	}
+	
+	/**
+	 * @param nodes Number of nodes of the whole fractal.
+	 * @return number of those nodes drawn onto an image: only the root and 1/order of the rest when symmetric.
+	 */
+	private double getFundamentalNodeCount(double nodes)
+	{
+		return isSymmetric() && nodes > 1 ? 1 + (nodes - 1) / getSymmetry().order : nodes;
+	}
+	
+	/**
+	 * Method for derived classes to override to estimate how many levels generation draws
+	 * before sub-pixel culling (if set) stops recursing.
+	 * @return number of levels drawn.
+	 */
+	protected int getDrawnLevels()
+	{
+		return totalIterations;
+	}
+	
+	/**
+	 * Method for derived classes to override with the approximate CPU time to draw one node
+	 * with the current rasterizer (measured with GenerateBenchmark).
+	 * @return time (ns) per node, or 0 if unknown.
+	 */
+	protected double getNanosPerNode()
+	{
+		return 0;
+	}
+	
+	/**
+	 * @return number of nodes in a full tree of levels levels where every node has branchingFactor children
+	 * 		   (infinite if too many to count).
+	 */
+	protected double countNodes(int branchingFactor, int levels)
+	{
+		double count = 0;
+		double levelCount = 1;
+		for(int i = 0; i < levels && !Double.isInfinite(count); i++) {
+			count += levelCount;
+			levelCount *= branchingFactor;
+		}
+		return count;
+	}
+	
+	/**
+	 * Estimate the cost of generating the whole canvas at once.
+	 * Cheap even for absurd parameters, so that it can be checked before accepting them.
+	 * @return estimated cost.
+	 */
+	public RenderCost estimateCost()
+	{
+		return estimateCost(height);
+	}
+	
+	/**
+	 * Estimate the cost of generating the canvas in tiles (see writeTiled).
+	 * @param tileHeight Height (px) of each tile (>= height for the whole canvas at once, 0 for vector
+	 * 					 output without an image, see writeSvg).
+	 * @return estimated cost.
+	 */
+	public RenderCost estimateCost(int tileHeight)
+	{
+		int imageBuffers = parallelism > 1 ? 1 + parallelism : 1; //image, and a buffer per worker thread
+		if(timeBudget > 0 && tileHeight >= height) {
+			imageBuffers++; //snapshot of the last level finished
+		}
+		double nodes = getNodeCount();
+		if(tileHeight >= height || (tileHeight > 0 && getSymmetry() == Symmetry.MIRROR)) {
+			nodes = getFundamentalNodeCount(nodes); //tiles draw the fundamental part once per turn (see replicate)
+		}
+		double encodedPixels = tileHeight > 0 ? (double) width * height : 0;
+		double cpuMillis = (nodes * getNanosPerNode() + encodedPixels * nanosPerPixel) / 1e6;
+		long imageBytes = getBytesPerRow(width) * Math.max(0, Math.min(tileHeight, height));
+		return new RenderCost(nodes, getDrawnLevels(), imageBytes * imageBuffers, cpuMillis);
+	}
+	
+	/**
+	 * Get how far the current generation is, estimated from the nodes drawn so far.
+	 * Culled subtrees are not drawn, so the estimate may stay low until generation finishes.
+	 * @return percent (0-99) of getNodeCount drawn so far, or 0 if unknown.
+	 */
+	public int getProgress()
+	{
+		double nodeCount = image != null ? getFundamentalNodeCount(getNodeCount()) : getNodeCount();
+		if(nodeCount <= 0) {
+			return 0;
+		}
+		return (int) Math.min(99, 100 * nodesDrawn.sum() / nodeCount);
+	}
+
+	/**
+	 * @return number of nodes drawn so far by the current (or last) generation.
+	 */
+	public long getNodesDrawn()
+	{
+		return nodesDrawn.sum();
+	}
 	
 	public boolean equals(Fractal2D other)
 	{
@@ -66,81 +425,997 @@ public abstract class Fractal2D extends Fractal
 		this.padding_horizontal = padding_horizontal;
 		this.padding_vertical = padding_vertical;
 		image = null;
+		originX = 0;
+		originY = 0;
 		gfx = null;
+		canvas = null;
+		rasterizer = Rasterizer.GRAPHICS2D;
 		cancelled = new AtomicBoolean(false);
+		parallelism = 1;
+		splitDepth = 0;
+		renderPool = null;
+		culling = false;
+		cullingThreshold = 0;
+		offImageCulling = false;
+		previewListener = null;
+		previewLevels = 0;
+		previewInterval = 0;
+		timeBudget = 0;
+		depthReached = 0;
+		pixelFormat = PixelFormat.RGB;
+		pngEncoding = PngEncoding.IMAGEIO;
+		compressionLevel = Deflater.DEFAULT_COMPRESSION;
+		previewCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+		symmetric = false;
 	}
 	
 	/**
-	 * Output this generated FractalTree to a location on disk as an image,
-	 * and output a generation message in the same directory at relativePath.
-	 * @param relativePath Directory relative to this classpath to create the file.
-	 * @param filename Name of the file to create in directory relativePath.
-	 * @param imageType Type of image to create (e.g. "png")
-	 * @return Absolute path of the image file created on disk.
-	 * @throws Exception If I/O error occurred, or if cancelled.
+	 * Set generation to run in parallel on a ForkJoinPool. The fractal is drawn serially down to
+	 * splitDepth, and each subtree below that depth then becomes its own task.
+	 * Generated images are identical to serial generation.
+	 * @param parallelism Number of worker threads to use (<= 1 generates serially).
+	 * @param splitDepth Depth at which to split into subtree tasks (<= 0 picks a depth that gives
+	 * 					 every worker several subtrees to balance the load).
 	 */
-	public String outputToFile(String relativePath, String imageFilename, String imageType) throws Exception
+	public void setParallelism(int parallelism, int splitDepth)
 	{
-		final String msgPrefix = "Fractal2D.outputToFile: ";
-		if(cancelled != null && cancelled.get()) {
-			//System.out.println(msgPrefix + "cancelled!");
-			throw new CancellationException("Image writing to disk was cancelled.");
+		this.parallelism = parallelism;
+		this.splitDepth = splitDepth;
+	}
+	
+	/**
+	 * Set a shared pool to draw parallel subtrees on (see setParallelism), instead of starting
+	 * a new pool of parallelism threads for every generation. The pool is not shut down by generation.
+	 * @param renderPool Shared pool, or null to start a pool per generation.
+	 */
+	public void setRenderPool(ForkJoinPool renderPool)
+	{
+		this.renderPool = renderPool;
+	}
+	
+	/**
+	 * Set generation to stop recursing into a subtree once it lies completely off-canvas
+	 * (which leaves the image unchanged), or once all of its descendants lie within
+	 * pixelThreshold of the node they descend from (which only changes pixels within pixelThreshold of it).
+	 * @param culling If true, cull subtrees when generating.
+	 * @param pixelThreshold Size (px) below which descendants are not drawn (<= 0 only culls off-canvas subtrees).
+	 */
+	public void setCulling(boolean culling, double pixelThreshold)
+	{
+		this.culling = culling;
+		this.cullingThreshold = pixelThreshold;
+	}
+	
+	/**
+	 * Set images to be drawn by exploiting the fractal's symmetry (see getSymmetry): only a fundamental part of it
+	 * (the root and the subtrees of 1/order of the root's children) is drawn, and its pixels are then mirrored or
+	 * turned onto the rest of the image, which cuts the nodes drawn by a factor of about the symmetry's order.
+	 * Images are exactly symmetric, so they may differ by a pixel from asymmetric generation where the rasterizer
+	 * rounds a node and its mirror image differently (e.g. GRAPHICS2D covers pixel x from x to x + 1, so its
+	 * mirrored nodes are a pixel off), and pixels whose mirror image lies off-canvas are not replicated.
+	 * Vector output always draws every node.
+	 * @param symmetric If true, draw images symmetrically if the fractal has a symmetry.
+	 */
+	public void setSymmetric(boolean symmetric)
+	{
+		this.symmetric = symmetric;
+	}
+	
+	/**
+	 * @return true if images are drawn symmetrically (see setSymmetric).
+	 */
+	public boolean isSymmetric()
+	{
+		return symmetric && getSymmetry() != Symmetry.NONE;
+	}
+	
+	/**
+	 * Change the number of iterations to generate, e.g. to downgrade an expensive fractal.
+	 * @param iterations Number of fractal iterations to perform.
+	 */
+	public void setIterations(int iterations)
+	{
+		this.totalIterations = iterations;
+	}
+	
+	/**
+	 * @return number of fractal iterations to perform.
+	 */
+	public int getIterations()
+	{
+		return totalIterations;
+	}
+	
+	/**
+	 * Set how often previews are published when generating progressively (see setPreviewListener):
+	 * every everyLevels levels or everyMillis ms, whichever comes first.
+	 * @param everyLevels Publish a preview at least every everyLevels levels (<= 0 for never by level).
+	 * @param everyMillis Publish a preview at least every everyMillis ms (<= 0 for never by time).
+	 */
+	public void setPreviews(int everyLevels, long everyMillis)
+	{
+		this.previewLevels = everyLevels;
+		this.previewInterval = everyMillis;
+	}
+	
+	/**
+	 * Set generation to be progressive if previews are set (see setPreviews): breadth-first by level,
+	 * each level drawn on top of the previous ones, publishing the image to listener as previews are due.
+	 * Levels are drawn serially until the next level would have more than maxFrontierNodes nodes; the rest of the fractal
+	 * is then drawn depth-first (in parallel if set) without further previews.
+	 * Generated images are identical to depth-first generation. Tiles are never generated progressively.
+	 * @param listener Listener to publish previews to, or null to generate depth-first.
+	 */
+	public void setPreviewListener(PreviewListener listener)
+	{
+		this.previewListener = listener;
+	}
+	
+	/**
+	 * Set a time budget for generation: the fractal is generated breadth-first (as with setPreviewListener),
+	 * and once the next level would not finish within timeBudget ms, generation stops with a complete image
+	 * of the deepest level finished so far (see getDepthReached). The 1st level is always drawn.
+	 * Tiles are never generated with a time budget.
+	 * @param timeBudget Time (ms) generation may take (<= 0 for no limit).
+	 */
+	public void setTimeBudget(long timeBudget)
+	{
+		this.timeBudget = timeBudget;
+	}
+	
+	/**
+	 * @return number of levels completely drawn by the last generation: totalIterations unless
+	 * 		   it ran out of time (see setTimeBudget) or was cancelled.
+	 */
+	public int getDepthReached()
+	{
+		return depthReached;
+	}
+	
+	/**
+	 * @return true if the last generation ran out of its time budget before drawing every level,
+	 * 		   so that its image only goes down to getDepthReached.
+	 */
+	public boolean isTimeLimited()
+	{
+		return timeBudget > 0 && depthReached < totalIterations && !cancelled.get();
+	}
+	
+	/**
+	 * @return true if the current image should be generated breadth-first by level (see setPreviewListener
+	 * 		   and setTimeBudget), false if depth-first.
+	 */
+	protected boolean isDrawnByLevel()
+	{
+		boolean previews = previewListener != null && (previewLevels > 0 || previewInterval > 0);
+		return (previews || timeBudget > 0) && image != null && image.getWidth() == width && image.getHeight() == height;
+	}
+	
+	/**
+	 * @return true if the current generation has a time budget and has run out of it after drawing the 1st level.
+	 */
+	protected boolean isOutOfTime()
+	{
+		return deadline != 0 && depthReached > 0 && System.nanoTime() - deadline > 0;
+	}
+	
+	/**
+	 * Predict whether drawing nodes more nodes finishes within the current generation's time budget,
+	 * from the average time per node drawn so far.
+	 * @param nodes Number of nodes to draw.
+	 * @return true if there is no time budget or they are predicted to fit in it.
+	 */
+	protected boolean fitsInTime(double nodes)
+	{
+		if(deadline == 0 || depthReached == 0) {
+			return true;
 		}
-		
-		ClassLoader classLoader = getClass().getClassLoader();
-		URL classpath = classLoader.getResource(".");
-		File outputDirectory = new File(classpath.getPath() + relativePath);
-		
-		//1. Create output directory if doesn't exist already
-		if(!outputDirectory.exists()) {
-			System.out.println(msgPrefix + "attempting to create non-existant directory '" + outputDirectory.getAbsolutePath() + "'");
-			if(outputDirectory.mkdirs()) {
-				System.out.println(msgPrefix + "created new directory successfully.");
+		long now = System.nanoTime();
+		double nanosPerNode = (double) (now - generationStart) / Math.max(1, nodesDrawn.sum());
+		return now + nodes * nanosPerNode - deadline <= 0;
+	}
+	
+	/**
+	 * Method for derived classes to call from breadth-first generation when a level ran out of time
+	 * partway through: restores image to the last completely drawn level.
+	 */
+	protected void restoreLevel()
+	{
+		if(levelSnapshot != null) {
+			Object pixels = getPixels();
+			System.arraycopy(levelSnapshot, 0, pixels, 0, Array.getLength(pixels));
+		}
+	}
+	
+	/**
+	 * @return data of image: int[] (RGB) or byte[] (INDEXED and BINARY).
+	 */
+	private Object getPixels()
+	{
+		return getPixels(image);
+	}
+	
+	private static Object getPixels(BufferedImage image)
+	{
+		DataBuffer buffer = image.getRaster().getDataBuffer();
+		if(buffer instanceof DataBufferInt) {
+			return ((DataBufferInt) buffer).getData();
+		}
+		return ((DataBufferByte) buffer).getData();
+	}
+	
+	/**
+	 * Draw the subtrees below the deepest level drawn breadth-first depth-first instead (in parallel if set),
+	 * unless they are not predicted to fit in the time budget. If they run out of time anyway, image
+	 * is restored to the last level drawn.
+	 * @param subtrees Subtrees below every node of the level.
+	 * @param nodes Total number of nodes in subtrees.
+	 */
+	protected void drawRemainingLevels(List<Subtree> subtrees, double nodes)
+	{
+		if(!fitsInTime(nodes)) {
+			return;
+		}
+		if(isParallel()) {
+			drawParallel(subtrees);
+		} else {
+			for(Subtree subtree : subtrees) {
+				if(cancelled.get() || isOutOfTime()) {
+					break;
+				}
+				subtree.draw(canvas);
+			}
+		}
+		if(isOutOfTime()) {
+			restoreLevel();
+		} else if(!cancelled.get()) {
+			depthReached = totalIterations;
+		}
+	}
+	
+	/**
+	 * Method for derived classes to call from breadth-first generation once every level down to depth is drawn.
+	 * Publishes a preview if one is due, unless depth is the last level.
+	 * @param depth Number of levels drawn so far.
+	 */
+	protected void levelDrawn(int depth)
+	{
+		if(cancelled.get()) {
+			return;
+		}
+		depthReached = depth;
+		if(deadline != 0 && depth < totalIterations) {
+			replicate(); //so that the image restored if the next level runs out of time is complete
+			Object pixels = getPixels();
+			if(levelSnapshot == null) {
+				levelSnapshot = pixels instanceof int[] ? ((int[]) pixels).clone() : ((byte[]) pixels).clone();
 			} else {
-				throw new Exception(msgPrefix + "could not make directory at '" + outputDirectory.getAbsolutePath() + "'.");
+				System.arraycopy(pixels, 0, levelSnapshot, 0, Array.getLength(pixels));
 			}
 		}
-		
-		//2. Create output image file and message file if any don't exist already
-		String fullRelativePath = classpath.getPath() + relativePath;
-		File outputImageFile = new File(fullRelativePath + imageFilename);
-		String fullpath = outputImageFile.getAbsolutePath();
-		if(!outputImageFile.exists()) {
-			System.out.println(msgPrefix + "attempt to create new file at path '" + outputImageFile.getAbsolutePath() + "'");
-			outputImageFile.createNewFile();
-			System.out.println(msgPrefix + "created new file successfully.");
+		if(depth >= totalIterations || previewListener == null) {
+			return; //the full image is published by whoever generated it
+		}
+		long now = System.currentTimeMillis();
+		boolean levelsDue = previewLevels > 0 && depth - lastPreviewDepth >= previewLevels;
+		boolean timeDue = previewInterval > 0 && now - lastPreviewTime >= previewInterval;
+		if(levelsDue || timeDue) {
+			lastPreviewDepth = depth;
+			lastPreviewTime = now;
+			replicate();
+			previewListener.preview(this, depth);
+		}
+	}
+	
+	/**
+	 * Set how nodes are drawn onto the image when generating.
+	 * @param rasterizer Rasterizer to use (GRAPHICS2D by default).
+	 */
+	public void setRasterizer(Rasterizer rasterizer)
+	{
+		this.rasterizer = rasterizer;
+	}
+	
+	/**
+	 * Set the format of the pixels of the image this Fractal2D is drawn onto. INDEXED and BINARY
+	 * images use 4x and 32x less memory than RGB, and are encoded as smaller palette PNGs.
+	 * @param pixelFormat PixelFormat to use (RGB by default).
+	 */
+	public void setPixelFormat(PixelFormat pixelFormat)
+	{
+		this.pixelFormat = pixelFormat;
+	}
+	
+	/**
+	 * @return bytes per row of an image imageWidth pixels wide in the current pixel format.
+	 */
+	protected long getBytesPerRow(int imageWidth)
+	{
+		if(pixelFormat == PixelFormat.BINARY) {
+			return (imageWidth + 7) / 8;
+		}
+		return pixelFormat == PixelFormat.INDEXED ? imageWidth : 4L * imageWidth;
+	}
+	
+	/**
+	 * @return palette of images in the current pixel format, or null for RGB.
+	 */
+	protected IndexColorModel getPalette()
+	{
+		if(pixelFormat == PixelFormat.BINARY) {
+			return binaryPalette;
+		}
+		return pixelFormat == PixelFormat.INDEXED ? indexedPalette : null;
+	}
+	
+	/**
+	 * @return a new image in the current pixel format, all background (black).
+	 */
+	protected BufferedImage createImage(int imageWidth, int imageHeight)
+	{
+		if(pixelFormat == PixelFormat.BINARY) {
+			return new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_BYTE_BINARY, binaryPalette);
+		} else if(pixelFormat == PixelFormat.INDEXED) {
+			return new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_BYTE_INDEXED, indexedPalette);
+		}
+		return new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+	}
+	
+	/**
+	 * Draw the next generation onto image (cleared to the background first) instead of onto a new image,
+	 * e.g. the image of a previous frame of an animation that has been encoded already. Ignored unless
+	 * image has the size and pixel format the next generation would create.
+	 * @param image Image that is no longer used elsewhere.
+	 */
+	public void reuseImage(BufferedImage image)
+	{
+		this.reusableImage = image;
+	}
+	
+	private static void clear(Object pixels)
+	{
+		if(pixels instanceof int[]) {
+			Arrays.fill((int[]) pixels, 0);
 		} else {
-			System.out.println(msgPrefix + "overwriting existing file at '" + outputImageFile.getAbsolutePath() + "'");
+			Arrays.fill((byte[]) pixels, (byte) 0);
 		}
-		
-		//3. Write image to file (if operation not cancelled)
+	}
+	
+	private static IndexColorModel createPalette(int bits)
+	{
+		byte[] levels = {0, (byte) 0xFF};
+		return new IndexColorModel(bits, 2, levels, levels, levels);
+	}
+	
+	/**
+	 * Set how PNG images of this Fractal2D are encoded. Images decode to the same pixels either way.
+	 * @param pngEncoding PngEncoding to use (IMAGEIO by default).
+	 * @param compressionLevel Deflate level of images encoded by PARALLEL and of tiled images,
+	 * 						   from 0 (none) or 1 (fastest) to 9 (smallest), or -1 (default).
+	 * @param previewCompressionLevel Deflate level of preview images (see encodePreview) encoded by PARALLEL.
+	 */
+	public void setPngEncoding(PngEncoding pngEncoding, int compressionLevel, int previewCompressionLevel)
+	{
+		this.pngEncoding = pngEncoding;
+		this.compressionLevel = compressionLevel;
+		this.previewCompressionLevel = previewCompressionLevel;
+	}
+	
+	/**
+	 * Compute how far a subtree can reach relative to the size of its root node, by number of levels.
+	 * @param scalingFactor Factor that each child node is scaled by relative to its parent.
+	 * @return array where [k] is 1 + scalingFactor + ... + scalingFactor^(k-1), for k = 0 to totalIterations.
+	 */
+	protected double[] computeReach(double scalingFactor)
+	{
+		double[] reach = new double[Math.max(totalIterations, 0) + 1];
+		double levelFactor = 1;
+		for(int k = 1; k < reach.length; k++) {
+			reach[k] = reach[k - 1] + levelFactor;
+			levelFactor *= scalingFactor;
+		}
+		return reach;
+	}
+	
+	/**
+	 * Compute a single entry of computeReach without computing the rest.
+	 * @return 1 + scalingFactor + ... + scalingFactor^(levels-1).
+	 */
+	protected static double reach(double scalingFactor, int levels)
+	{
+		if(scalingFactor == 1) {
+			return levels;
+		}
+		return (1 - Math.pow(scalingFactor, levels)) / (1 - scalingFactor);
+	}
+	
+	/**
+	 * @return true if the square of half-size extent around (centerX, centerY) lies completely
+	 * 		   outside of image (the canvas, or the current tile) with a margin of 1px for the stroke.
+	 */
+	protected boolean isOffImage(double centerX, double centerY, double extent)
+	{
+		int imageWidth = image != null ? image.getWidth() : width;
+		int imageHeight = image != null ? image.getHeight() : height;
+		return centerX + extent < originX - 1 || centerX - extent > originX + imageWidth + 1 ||
+			   centerY + extent < originY - 1 || centerY - extent > originY + imageHeight + 1;
+	}
+	
+	/**
+	 * @return true if subtrees are drawn in parallel (see drawParallel): only onto an image,
+	 * 		   since vector output is written in the order it is drawn.
+	 */
+	protected boolean isParallel()
+	{
+		return parallelism > 1 && image != null;
+	}
+	
+	/**
+	 * Get the depth at which to split generation into parallel subtrees.
+	 * @param branchingFactor Number of children per node of the fractal.
+	 * @return splitDepth if set, otherwise the smallest depth with at least 4 subtrees per worker.
+	 */
+	protected int resolveSplitDepth(int branchingFactor)
+	{
+		if(splitDepth > 0) {
+			return splitDepth;
+		}
+		int depth = 1;
+		long subtreeCount = Math.max(branchingFactor, 2);
+		while(subtreeCount < 4L * parallelism) {
+			subtreeCount *= Math.max(branchingFactor, 2);
+			depth++;
+		}
+		return depth;
+	}
+	
+	/**
+	 * Get a key that identifies the image this Fractal2D generates: equal for any two Fractal2Ds
+	 * that are equal and use the same rasterizer, and (with overwhelming probability) different otherwise.
+	 * @return SHA-256 hash (hex) of the fractal type and all of its parameters.
+	 */
+	public String getRenderKey()
+	{
+		StringBuilder params = new StringBuilder(getClass().getSimpleName());
+		params.append(";iterations=").append(totalIterations);
+		appendRenderParams(params);
+		return Helper.sha256Hex(params.toString());
+	}
+	
+	/**
+	 * Get a key that identifies every Fractal2D that only differs from this one by its iterations
+	 * (see deepenFrom).
+	 * @return SHA-256 hash (hex) of the fractal type and all of its parameters except iterations.
+	 */
+	public String getDeepeningKey()
+	{
+		StringBuilder params = new StringBuilder(getClass().getSimpleName());
+		appendRenderParams(params);
+		return Helper.sha256Hex(params.toString());
+	}
+	
+	/**
+	 * Append every parameter compared by equals (and anything else that changes the generated image)
+	 * to params, except for iterations, which getRenderKey appends itself (and getDeepeningKey leaves out).
+	 * Derived classes must call super.appendRenderParams first and then append their own.
+	 * @param params Canonical parameter string being built.
+	 */
+	protected void appendRenderParams(StringBuilder params)
+	{
+		params.append(";width=").append(width)
+			  .append(";height=").append(height)
+			  .append(";padding_horizontal=").append(padding_horizontal)
+			  .append(";padding_vertical=").append(padding_vertical)
+			  .append(";rasterizer=").append(rasterizer)
+			  .append(";pixelFormat=").append(pixelFormat);
+		if(culling) {
+			params.append(";cullingThreshold=").append(Math.max(cullingThreshold, 0) + 0.0);
+		}
+		if(isSymmetric()) {
+			params.append(";symmetry=").append(getSymmetry());
+		}
+	}
+	
+	/**
+	 * Encode this generated Fractal2D as an image.
+	 * @param imageType Type of image to create (e.g. "png")
+	 * @return Encoded image.
+	 * @throws Exception If encoding failed, or if cancelled.
+	 */
+	public byte[] encode(String imageType) throws Exception
+	{
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		write(imageType, output);
+		return output.toByteArray();
+	}
+	
+	/**
+	 * Encode this generated Fractal2D as an image, writing it to output as it is encoded.
+	 * @param imageType Type of image to create (e.g. "png")
+	 * @param output Stream to write the encoded image to. Is not closed.
+	 * @throws Exception If encoding or writing failed, or if cancelled.
+	 */
+	public void write(String imageType, OutputStream output) throws Exception
+	{
+		write(imageType, output, compressionLevel);
+	}
+	
+	/**
+	 * Encode this Fractal2D's image as a preview while it is being generated, with previewCompressionLevel.
+	 * @param imageType Type of image to create (e.g. "png")
+	 * @return Encoded image.
+	 * @throws Exception If encoding failed, or if cancelled.
+	 */
+	public byte[] encodePreview(String imageType) throws Exception
+	{
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		write(imageType, output, previewCompressionLevel);
+		return output.toByteArray();
+	}
+	
+	private void write(String imageType, OutputStream output, int pngCompressionLevel) throws Exception
+	{
 		if(cancelled != null && cancelled.get()) {
-			//System.out.println(msgPrefix + "cancelled!");
-			throw new CancellationException("Image writing to disk was cancelled.");
+			throw new CancellationException("Image encoding was cancelled.");
+		}
+		if(pngEncoding == PngEncoding.PARALLEL && "png".equalsIgnoreCase(imageType)) {
+			PngEncoder encoder = new PngEncoder(output, width, height, getPalette(), pngCompressionLevel, getPngExecutor());
+			encoder.writeRows(image);
+			encoder.finish();
+			return;
+		}
+		//Buffer in memory rather than in ImageIO's default temporary file cache, so nothing touches the disk
+		ImageOutputStream imageOutput = new MemoryCacheImageOutputStream(output);
+		try {
+			if(!ImageIO.write(image, imageType, imageOutput)) {
+				throw new IOException("Fractal2D.write: no writer for image type '" + imageType + "'.");
+			}
+		} finally {
+			imageOutput.close(); //flushes to output, but does not close it
+		}
+	}
+	
+	/**
+	 * Generate this Fractal2D as an SVG image, streaming each node to output as it is drawn
+	 * (depth-first, on the calling thread) instead of drawing onto an image. No document is built
+	 * in memory: only lines not yet written in a batch are held (see SvgCanvas).
+	 * @param output Stream to write the SVG (UTF-8) to. Is not closed.
+	 * @param precision Number of decimal places (0-6) to round coordinates to.
+	 * @param maxPathSegments Maximum number of line segments batched into each <path> of a level
+	 * 						  (<= 1 writes each line as a <line> element instead).
+	 * @throws Exception If writing failed, or if cancelled.
+	 */
+	public void writeSvg(OutputStream output, int precision, int maxPathSegments) throws Exception
+	{
+		Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+		//Same colors as a new image and its Graphics: white on black
+		SvgCanvas svg = new SvgCanvas(writer, width, height, 0xFFFFFF, 0x000000, precision, maxPathSegments);
+		initVector(svg);
+		nodesDrawn.reset();
+		try {
+			draw();
+		} catch (UncheckedIOException e) {
+			cancelled.set(true); //e.g. client went away
+			throw e.getCause();
+		}
+		if(cancelled != null && cancelled.get()) {
+			throw new CancellationException("SVG image writing was cancelled.");
+		}
+		svg.finish();
+	}
+	
+	/**
+	 * @return executor to compress PARALLEL PNG images on, or null to compress them serially
+	 * 		   when there are no other cores to compress on.
+	 */
+	private static Executor getPngExecutor()
+	{
+		return ForkJoinPool.getCommonPoolParallelism() > 1 ? ForkJoinPool.commonPool() : null;
+	}
+	
+	/**
+	 * Generate and encode this Fractal2D as a PNG one tile at a time, writing each tile's rows
+	 * to output as soon as it is drawn. Tiles are horizontal strips of the canvas, and each one
+	 * only draws the subtrees that reach into it, so memory use is bounded by the tile size
+	 * (width * tileHeight pixels) rather than by the size of the whole image.
+	 * @param output Stream to write the PNG to. Is not closed.
+	 * @param tileHeight Height (px) of each tile.
+	 * @throws Exception If encoding or writing failed, or if cancelled.
+	 */
+	public void writeTiled(OutputStream output, int tileHeight) throws Exception
+	{
+		PngEncoder encoder = createTiledEncoder(output, height);
+		for(int tileY = 0; tileY < height; tileY += tileHeight) {
+			if(cancelled != null && cancelled.get()) {
+				throw new CancellationException("Tiled image encoding was cancelled.");
+			}
+			encoder.writeRows(generateTile(tileY, Math.min(tileHeight, height - tileY)));
 		}
-		ImageIO.write(image, imageType, outputImageFile);
-		return fullpath;
+		encoder.finish();
+	}
+	
+	/**
+	 * Generate a single tile of the canvas (see writeTiled), drawing only the subtrees that reach into it.
+	 * @param tileY Canvas y-coordinate of the tile's topmost row.
+	 * @param tileHeight Height (px) of the tile.
+	 * @return image of the tile, as wide as the canvas.
+	 */
+	public BufferedImage generateTile(int tileY, int tileHeight)
+	{
+		initImage(0, tileY, width, tileHeight);
+		draw();
+		canvas.dispose();
+		replicate();
+		return image;
+	}
+	
+	/**
+	 * Generate a single tile of the canvas and encode it as a PNG image of its own (e.g. for a TileCoordinator).
+	 * @param tileY Canvas y-coordinate of the tile's topmost row.
+	 * @param tileHeight Height (px) of the tile.
+	 * @return encoded PNG of the tile.
+	 * @throws Exception If encoding failed, or if cancelled.
+	 */
+	public byte[] encodeTile(int tileY, int tileHeight) throws Exception
+	{
+		BufferedImage tile = generateTile(tileY, tileHeight);
+		if(cancelled != null && cancelled.get()) {
+			throw new CancellationException("Tile encoding was cancelled.");
+		}
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PngEncoder encoder = createTiledEncoder(output, tileHeight);
+		encoder.writeRows(tile);
+		encoder.finish();
+		return output.toByteArray();
+	}
+	
+	/**
+	 * Create a PngEncoder for rows of tiles of this Fractal2D (see generateTile).
+	 * @param output Stream to write the PNG to.
+	 * @param imageHeight Height (px) of the PNG.
+	 */
+	public PngEncoder createTiledEncoder(OutputStream output, int imageHeight) throws IOException
+	{
+		return new PngEncoder(output, width, imageHeight, getPalette(), compressionLevel,
+							  pngEncoding == PngEncoding.PARALLEL ? getPngExecutor() : null);
 	}
 	
 	protected void initImage()
 	{
-		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		initImage(0, 0, width, height);
+	}
+	
+	/**
+	 * Create a new image for a tile of the canvas to draw onto.
+	 * @param originX Canvas x-coordinate of the tile's leftmost column.
+	 * @param originY Canvas y-coordinate of the tile's topmost row.
+	 * @param imageWidth Width of the tile.
+	 * @param imageHeight Height of the tile.
+	 */
+	protected void initImage(int originX, int originY, int imageWidth, int imageHeight)
+	{
+		this.originX = originX;
+		this.originY = originY;
+		if(reusableImage != null && reusableImage.getWidth() == imageWidth && reusableImage.getHeight() == imageHeight
+		   && reusableImage.getColorModel().equals(createImage(1, 1).getColorModel()))
+		{
+			image = reusableImage;
+			clear(getPixels());
+		} else {
+			image = createImage(imageWidth, imageHeight);
+		}
+		reusableImage = null;
 		gfx = image.createGraphics();
+		canvas = createCanvas(image);
+		offImageCulling = culling || imageWidth != width || imageHeight != height;
+	}
+	
+	/**
+	 * Draw onto a vector canvas (e.g. SvgCanvas) covering the whole canvas instead of onto an image.
+	 * @param target Canvas to draw onto.
+	 */
+	protected void initVector(Fractal2DCanvas target)
+	{
+		originX = 0;
+		originY = 0;
+		image = null;
+		gfx = null;
+		canvas = target;
+		offImageCulling = culling;
+	}
+	
+	/**
+	 * Create a canvas for the current rasterizer that draws onto target
+	 * with the drawing settings (color, stroke etc.) of gfx.
+	 * @param target Image to draw onto, with the same size and origin as image.
+	 * @return new Fractal2DCanvas.
+	 */
+	protected Fractal2DCanvas createCanvas(BufferedImage target)
+	{
+		if(rasterizer == Rasterizer.DIRECT) {
+			return new RasterCanvas(target, gfx.getColor().getRGB(), originX, originY, width, height);
+		}
+		Graphics2D targetGfx = (target == image) ? gfx : target.createGraphics();
+		targetGfx.setColor(gfx.getColor());
+		targetGfx.setStroke(gfx.getStroke());
+		targetGfx.setRenderingHints(gfx.getRenderingHints());
+		targetGfx.translate(-originX, -originY);
+		return new Graphics2DCanvas(targetGfx);
+	}
+	
+	/**
+	 * Draw subtrees in parallel on renderPool, or a ForkJoinPool of parallelism threads if none is set.
+	 * Each worker thread draws onto its own image buffer, and the buffers are composited
+	 * onto image once every subtree is done. Because every node is drawn with the same color,
+	 * the result is the same as drawing each subtree directly onto image.
+	 * If cancelled is set (or the time budget runs out), workers skip the subtrees they have not started
+	 * and nothing is composited.
+	 * @param subtrees Subtrees to draw.
+	 */
+	protected void drawParallel(List<Subtree> subtrees)
+	{
+		Map<Thread, WorkerBuffer> buffers = new ConcurrentHashMap<>();
+		ForkJoinPool pool = renderPool != null ? renderPool : new ForkJoinPool(parallelism);
+		try {
+			List<ForkJoinTask<?>> tasks = new ArrayList<>(subtrees.size());
+			for(Subtree subtree : subtrees) {
+				tasks.add(pool.submit(() -> {
+					if(cancelled.get() || isOutOfTime()) {
+						return;
+					}
+					WorkerBuffer buffer = buffers.computeIfAbsent(Thread.currentThread(), 
+																  (Thread t) -> new WorkerBuffer());
+					subtree.draw(buffer.canvas);
+				}));
+			}
+			for(ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+		} finally {
+			if(pool != renderPool) {
+				pool.shutdownNow();
+			}
+		}
+		
+		boolean incomplete = cancelled.get() || isOutOfTime();
+		for(WorkerBuffer buffer : buffers.values()) {
+			buffer.canvas.dispose();
+			if(!incomplete) {
+				composite(buffer.image);
+			}
+		}
+	}
+	
+	/**
+	 * WorkerBuffer --- Image (with the same size and type as image) and a canvas with the same
+	 * 					drawing settings as canvas that a single worker thread draws its subtrees onto.
+	 */
+	private class WorkerBuffer
+	{
+		private final BufferedImage image;
+		private final Fractal2DCanvas canvas;
+		
+		private WorkerBuffer()
+		{
+			image = createImage(Fractal2D.this.image.getWidth(), Fractal2D.this.image.getHeight());
+			canvas = createCanvas(image);
+		}
+	}
+	
+	/**
+	 * Copy every non-background (non-zero) pixel of buffer onto image.
+	 * @param buffer Image of the same size and type as image.
+	 */
+	private void composite(BufferedImage buffer)
+	{
+		if(pixelFormat == PixelFormat.INDEXED || pixelFormat == PixelFormat.BINARY) {
+			//Palette indices are 0 (background) or 1, so OR-ing packed bytes copies every drawn pixel at once
+			byte[] src = ((DataBufferByte) buffer.getRaster().getDataBuffer()).getData();
+			byte[] dst = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+			for(int i = 0; i < src.length; i++) {
+				dst[i] |= src[i];
+			}
+			return;
+		}
+		int[] src = ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
+		int[] dst = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		for(int i = 0; i < src.length; i++) {
+			if(src[i] != 0) {
+				dst[i] = src[i];
+			}
+		}
+	}
+	
+	/**
+	 * If drawing symmetrically (see setSymmetric), replicate the fundamental part drawn onto image by every
+	 * transform of the symmetry. Each transform maps image onto the pixels it turns into: image itself for
+	 * the whole canvas (and for tiles of MIRROR, which maps rows onto themselves), and otherwise another region
+	 * of the canvas, which the fundamental part is drawn onto first. Replicating again changes nothing.
+	 */
+	private void replicate()
+	{
+		Symmetry symmetry = getSymmetry();
+		if(!symmetric || symmetry == Symmetry.NONE || image == null || cancelled.get()) {
+			return;
+		}
+		for(int transform = 1; transform < symmetry.order; transform++) {
+			//Corners of the region that transform maps onto image, within the canvas
+			int[] corner0 = inverseTransform(symmetry, transform, originX, originY);
+			int[] corner1 = inverseTransform(symmetry, transform, originX + image.getWidth() - 1, 
+											 originY + image.getHeight() - 1);
+			int sourceX = Math.max(Math.min(corner0[0], corner1[0]), 0);
+			int sourceY = Math.max(Math.min(corner0[1], corner1[1]), 0);
+			int sourceWidth = Math.min(Math.max(corner0[0], corner1[0]) + 1, width) - sourceX;
+			int sourceHeight = Math.min(Math.max(corner0[1], corner1[1]) + 1, height) - sourceY;
+			if(sourceWidth <= 0 || sourceHeight <= 0) {
+				continue;
+			}
+			if(sourceX >= originX && sourceY >= originY && sourceX + sourceWidth <= originX + image.getWidth() 
+			   && sourceY + sourceHeight <= originY + image.getHeight()) 
+			{
+				replicateFrom(image, originX, originY, symmetry, transform);
+			} else {
+				replicateFrom(drawFundamental(sourceX, sourceY, sourceWidth, sourceHeight), sourceX, sourceY, 
+							  symmetry, transform);
+			}
+		}
+	}
+	
+	/**
+	 * Draw the fundamental part onto a new image of a region of the canvas, leaving image as it is.
+	 * @return image of the region.
+	 */
+	private BufferedImage drawFundamental(int regionX, int regionY, int regionWidth, int regionHeight)
+	{
+		BufferedImage target = image;
+		Graphics2D targetGfx = gfx;
+		Fractal2DCanvas targetCanvas = canvas;
+		int targetX = originX, targetY = originY;
+		boolean targetCulling = offImageCulling;
+		initImage(regionX, regionY, regionWidth, regionHeight);
+		draw();
+		canvas.dispose();
+		BufferedImage region = image;
+		image = target;
+		gfx = targetGfx;
+		canvas = targetCanvas;
+		originX = targetX;
+		originY = targetY;
+		offImageCulling = targetCulling;
+		return region;
+	}
+	
+	/**
+	 * Copy every drawn (non-zero) pixel of source that a transform maps onto image.
+	 * @param source Image of the same pixel format as image (possibly image itself).
+	 * @param sourceX Canvas x-coordinate of source's leftmost column.
+	 * @param sourceY Canvas y-coordinate of source's topmost row.
+	 * @param transform Index of the transform of symmetry (a turn by transform / order of a full turn).
+	 */
+	private void replicateFrom(BufferedImage source, int sourceX, int sourceY, Symmetry symmetry, int transform)
+	{
+		Object sourcePixels = getPixels(source);
+		Object pixels = getPixels(image);
+		int sourceStride = (int) getBytesPerRow(source.getWidth()) / (sourcePixels instanceof int[] ? 4 : 1);
+		int stride = (int) getBytesPerRow(image.getWidth()) / (pixels instanceof int[] ? 4 : 1);
+		int sourceWidth = source.getWidth(), sourceHeight = source.getHeight();
+		for(int y = 0; y < image.getHeight(); y++) {
+			//The transform is affine, so each row of image maps onto a line of source with a constant step
+			int[] rowStart = inverseTransform(symmetry, transform, originX, originY + y);
+			int[] rowNext = inverseTransform(symmetry, transform, originX + 1, originY + y);
+			int stepX = rowNext[0] - rowStart[0], stepY = rowNext[1] - rowStart[1];
+			int fromX = rowStart[0] - sourceX, fromY = rowStart[1] - sourceY;
+			//Only the columns of the row that map onto source, so that the loops below need no bounds checks
+			int startX = Math.max(firstWithin(fromX, stepX, sourceWidth), firstWithin(fromY, stepY, sourceHeight));
+			int endX = Math.min(Math.min(endWithin(fromX, stepX, sourceWidth), endWithin(fromY, stepY, sourceHeight)), 
+								image.getWidth());
+			fromX += startX * stepX;
+			fromY += startX * stepY;
+			if(pixelFormat == PixelFormat.BINARY) {
+				byte[] bits = (byte[]) sourcePixels;
+				for(int x = startX; x < endX; x++, fromX += stepX, fromY += stepY) {
+					if((bits[fromY * sourceStride + (fromX >> 3)] & (0x80 >>> (fromX & 7))) != 0) {
+						((byte[]) pixels)[y * stride + (x >> 3)] |= 0x80 >>> (x & 7);
+					}
+				}
+			} else if(pixels instanceof int[]) {
+				int[] from = (int[]) sourcePixels, to = (int[]) pixels;
+				int fromIndex = fromY * sourceStride + fromX, fromStep = stepY * sourceStride + stepX;
+				for(int x = startX; x < endX; x++, fromIndex += fromStep) {
+					if(from[fromIndex] != 0) {
+						to[y * stride + x] = from[fromIndex];
+					}
+				}
+			} else {
+				byte[] from = (byte[]) sourcePixels, to = (byte[]) pixels;
+				int fromIndex = fromY * sourceStride + fromX, fromStep = stepY * sourceStride + stepX;
+				for(int x = startX; x < endX; x++, fromIndex += fromStep) {
+					if(from[fromIndex] != 0) {
+						to[y * stride + x] = from[fromIndex];
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return smallest k >= 0 for which from + k * step (step -1, 0 or 1) lies within [0, size), if any.
+	 */
+	private static int firstWithin(int from, int step, int size)
+	{
+		if(step == 0) {
+			return 0;
+		}
+		return Math.max(step > 0 ? -from : from - size + 1, 0);
+	}
+	
+	/**
+	 * @return k past the last one for which from + k * step (step -1, 0 or 1) lies within [0, size), or 0 if none.
+	 */
+	private static int endWithin(int from, int step, int size)
+	{
+		if(step == 0) {
+			return from >= 0 && from < size ? Integer.MAX_VALUE : 0;
+		}
+		return Math.max(step > 0 ? size - from : from + 1, 0);
+	}
+	
+	/**
+	 * @return canvas coordinates {x, y} of the pixel that a transform of symmetry maps onto pixel (x, y).
+	 */
+	private int[] inverseTransform(Symmetry symmetry, int transform, int x, int y)
+	{
+		int centerX = width / 2, centerY = height / 2;
+		int dx = x - centerX, dy = y - centerY;
+		if(symmetry == Symmetry.MIRROR) {
+			return new int[] {centerX - dx, y};
+		}
+		int quarterTurns = transform * 4 / symmetry.order; //turned back by as many quarter turns
+		if(quarterTurns == 1) {
+			return new int[] {centerX + dy, centerY - dx};
+		} else if(quarterTurns == 2) {
+			return new int[] {centerX - dx, centerY - dy};
+		}
+		return new int[] {centerX - dy, centerY + dx};
 	}
 	
 	protected void drawLine(double startX, double startY, double endX, double endY)
 	{
-		Line2D line = new Line2D.Double(startX, startY, endX, endY);
-		gfx.draw(line);
+		drawLine(canvas, startX, startY, endX, endY);
+	}
+	
+	protected void drawLine(Fractal2DCanvas canvas, double startX, double startY, double endX, double endY)
+	{
+		nodesDrawn.increment();
+		canvas.drawLine(startX, startY, endX, endY);
 	}
 	
 	protected void drawEllipse(double centerX, double centerY, double width, double height)
 	{
-		//Ellipse2D.Double constructor generates ellipse 
-		//whose leftmost point is at minX and whose topmost point is at minY
-		double minX = centerX - (width / 2);
-		double minY = centerY - (height / 2);
-		Ellipse2D.Double ellipse = new Ellipse2D.Double(minX, minY, width, height);
-		gfx.draw(ellipse);
+		drawEllipse(canvas, centerX, centerY, width, height);
+	}
+	
+	protected void drawEllipse(Fractal2DCanvas canvas, double centerX, double centerY, double width, double height)
+	{
+		nodesDrawn.increment();
+		canvas.drawEllipse(centerX, centerY, width, height);
+	}
+	
+	/**
+	 * Draw a line segment at a depth (level, 0 for the root) of the fractal.
+	 */
+	protected void drawLine(Fractal2DCanvas canvas, int depth, double startX, double startY, double endX, double endY)
+	{
+		canvas.setDepth(depth);
+		drawLine(canvas, startX, startY, endX, endY);
+	}
+	
+	/**
+	 * Draw an ellipse at a depth (level, 0 for the root) of the fractal.
+	 */
+	protected void drawEllipse(Fractal2DCanvas canvas, int depth, double centerX, double centerY, double width, double height)
+	{
+		canvas.setDepth(depth);
+		drawEllipse(canvas, centerX, centerY, width, height);
 	}
 }
@@ -0,0 +1,33 @@
+package com.fractals;
+
+/**
+ * Fractal2DCanvas --- Interface for a drawing surface that a Fractal2D draws its nodes onto.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public interface Fractal2DCanvas 
+{
+	/**
+	 * Draw a line segment from (startX, startY) to (endX, endY).
+	 */
+	public void drawLine(double startX, double startY, double endX, double endY);
+	
+	/**
+	 * Draw the outline of an ellipse centered at (centerX, centerY).
+	 * @param width Total width (horizontal diameter) of the ellipse.
+	 * @param height Total height (vertical diameter) of the ellipse.
+	 */
+	public void drawEllipse(double centerX, double centerY, double width, double height);
+	
+	/**
+	 * Set the depth (level, 0 for the root) of the nodes drawn next. Canvases that group nodes
+	 * by level (e.g. SvgCanvas) use it; others ignore it.
+	 */
+	public default void setDepth(int depth) {}
+	
+	/**
+	 * Release any resources held by this canvas once drawing is finished.
+	 */
+	public void dispose();
+}
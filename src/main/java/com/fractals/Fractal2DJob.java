@@ -0,0 +1,269 @@
+package com.fractals;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Fractal2DJob --- A single Fractal2D generation/output task queued on a Fractal2DRunner,
+ * 					identified by a unique job ID (see JobRegistry), whose status changes can be listened to.
+ * 					Holds the latest preview image while generating, and the final image if it
+ * 					could not be put in the RenderCache (e.g. if it ran out of time budget).
+ * 					Shared by every request for an equal Fractal2D while it is in flight (its waiters),
+ * 					and only cancelled once every waiter has cancelled it. Each waiter is identified by
+ * 					its own token (see Waiter), so it can only leave the job once.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class Fractal2DJob 
+{
+	private final String id;				   //unique ID of this job
+	private final Fractal2D fractal2D;		   //fractal to generate
+	private final String renderKey;			   //Fractal2D.getRenderKey of fractal2D
+	private final Date submitted;			   //time this job was queued
+	private volatile Date started;			   //time this job started generating, or null
+	private volatile Date finished;			   //time this job was DONE or CANCELLED, or null
+	private CompletableFuture<String> future;  //completes with the job's loading message once done
+	private volatile Status status;			   //current stage of this job
+	private volatile String message;		   //loading message once DONE, otherwise null
+	private volatile int previewDepth;		   //depth of the latest preview image output while generating (0 if none)
+	private volatile byte[] image;			   //latest preview image, or the final image if not cached; otherwise null
+	private final Set<String> waiters;		   //tokens of the requests sharing this job that have not cancelled it
+	private final List<Consumer<Fractal2DJob>> listeners; //called on every status change
+	
+	/**
+	 * Waiter --- A single request's share of a Fractal2DJob: the job, and the token that request
+	 * 			  (and only it) cancels its share with (see Fractal2DRunner.cancel).
+	 */
+	public static class Waiter
+	{
+		private final Fractal2DJob job;
+		private final String token;
+		
+		Waiter(Fractal2DJob job, String token)
+		{
+			this.job = job;
+			this.token = token;
+		}
+		
+		public Fractal2DJob getJob() {
+			return job;
+		}
+		
+		public String getToken() {
+			return token;
+		}
+	}
+	
+	/**
+	 * Status --- Stage a Fractal2DJob is at. DONE and CANCELLED are final.
+	 */
+	public enum Status
+	{
+		QUEUED,
+		GENERATING,
+		ENCODING,
+		DONE,
+		CANCELLED;
+		
+		public boolean isFinished() {
+			return this == DONE || this == CANCELLED;
+		}
+	}
+	
+	/**
+	 * Creates a not-yet-queued job for fractal2D with a new unique ID.
+	 * @param fractal2D Fractal2D to generate.
+	 */
+	public Fractal2DJob(Fractal2D fractal2D)
+	{
+		this.id = UUID.randomUUID().toString();
+		this.fractal2D = fractal2D;
+		this.renderKey = fractal2D.getRenderKey();
+		this.submitted = new Date();
+		this.started = null;
+		this.finished = null;
+		this.future = null;
+		this.status = Status.QUEUED;
+		this.message = null;
+		this.previewDepth = 0;
+		this.image = null;
+		this.waiters = new HashSet<>();
+		this.listeners = new CopyOnWriteArrayList<>();
+	}
+	
+	/**
+	 * Cancel this job: a queued job will not start, and a running one stops generating/writing.
+	 * @return true if the job was cancelled, false if it had already finished.
+	 */
+	public boolean cancel()
+	{
+		if(future == null || future.isDone()) {
+			return false;
+		}
+		fractal2D.cancelled.set(true);
+		future.cancel(true);
+		setStatus(Status.CANCELLED, null);
+		return true;
+	}
+	
+	/**
+	 * Add a request to the waiters of this job, unless it has already finished.
+	 * @return the new waiter, or null if the job has finished (or been cancelled).
+	 */
+	synchronized Waiter addWaiter()
+	{
+		if(status.isFinished()) {
+			return null;
+		}
+		String token = UUID.randomUUID().toString();
+		waiters.add(token);
+		return new Waiter(this, token);
+	}
+	
+	/**
+	 * Remove a request from the waiters of this job. Each waiter is only removed once.
+	 * @param token Token of the waiter (see Waiter.getToken).
+	 * @return true if removed, false if token is not (or no longer) a waiter of this job.
+	 */
+	synchronized boolean removeWaiter(String token)
+	{
+		return token != null && waiters.remove(token);
+	}
+	
+	/**
+	 * Move this job to a new status and notify all listeners, unless it has already finished.
+	 * @param status New status.
+	 * @param message Loading message (for DONE), or null.
+	 */
+	void setStatus(Status status, String message)
+	{
+		synchronized(this) {
+			if(this.status.isFinished()) {
+				return;
+			}
+			this.message = message;
+			this.status = status;
+			if(status == Status.GENERATING && started == null) {
+				started = new Date();
+			}
+			if(status.isFinished()) {
+				finished = new Date();
+			}
+		}
+		notifyListeners();
+	}
+	
+	/**
+	 * Record that a preview image down to depth was encoded, and notify all listeners.
+	 * @param preview Encoded preview image.
+	 * @param depth Number of fractal levels in the preview.
+	 */
+	void setPreview(byte[] preview, int depth)
+	{
+		this.image = preview;
+		this.previewDepth = depth;
+		notifyListeners();
+	}
+	
+	/**
+	 * Set the image of this job: its final image if not cached, or null once it is.
+	 */
+	void setImage(byte[] image) {
+		this.image = image;
+	}
+	
+	private void notifyListeners()
+	{
+		for(Consumer<Fractal2DJob> listener : listeners) {
+			listener.accept(this);
+		}
+	}
+	
+	/**
+	 * Listen to this job's status changes and previews. Listeners are called on the thread changing the status.
+	 * @param listener Called with this job after every status change or preview.
+	 */
+	public void addListener(Consumer<Fractal2DJob> listener) {
+		listeners.add(listener);
+	}
+	
+	public void removeListener(Consumer<Fractal2DJob> listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * @return percent (0-100) of this job done: 100 once DONE, otherwise estimated from generating fractal2D.
+	 */
+	public int getProgress()
+	{
+		switch(status) {
+			case QUEUED:
+				return 0;
+			case ENCODING:
+				return 99;
+			case DONE:
+				return 100;
+			default:
+				return fractal2D.getProgress();
+		}
+	}
+	
+	public String getId() {
+		return id;
+	}
+	
+	public Fractal2D getFractal2D() {
+		return fractal2D;
+	}
+	
+	public String getRenderKey() {
+		return renderKey;
+	}
+	
+	public Date getSubmitted() {
+		return submitted;
+	}
+	
+	public Date getStarted() {
+		return started;
+	}
+	
+	public Date getFinished() {
+		return finished;
+	}
+	
+	public CompletableFuture<String> getFuture() {
+		return future;
+	}
+	
+	void setFuture(CompletableFuture<String> future) {
+		this.future = future;
+	}
+	
+	public Status getStatus() {
+		return status;
+	}
+	
+	public String getMessage() {
+		return message;
+	}
+	
+	public int getPreviewDepth() {
+		return previewDepth;
+	}
+	
+	public synchronized int getWaiters() {
+		return waiters.size();
+	}
+	
+	public byte[] getImage() {
+		return image;
+	}
+}
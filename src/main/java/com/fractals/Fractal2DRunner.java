@@ -1,93 +1,211 @@
 package com.fractals;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
-import org.springframework.scheduling.annotation.Async;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
- * Fractal2DRunner --- Generates and outputs a Fractal2D as an image to the disk 
- * 					   asynchronously via CompletableFuture<String>.
+ * Fractal2DRunner --- Generates Fractal2Ds as images put in the RenderCache (and so its RenderStore)
+ * 					   asynchronously as Fractal2DJobs, on a dedicated thread pool
+ * 					   with a bounded queue. Images already in the RenderCache are
+ * 					   not generated again. Each job's status (and preview images,
+ * 					   if generated progressively) can be followed until shortly after it finishes.
+ * 					   The time spent in each stage is recorded in RenderMetrics.
+ * 					   Concurrent requests for equal Fractal2Ds are coalesced: they share a single job (or
+ * 					   generation) in flight, which is only cancelled once every one of them has cancelled it.
+ * 					   The image and leaf frontier of Fractal2Ds recently generated for pages are kept (see RenderSnapshot),
+ * 					   so a Fractal2D that only has more iterations than one of them draws only the new levels.
  * @author Scott Wolfskill
  * @created     02/18/2019
- * @last_edit   02/25/2019
+ * @last_edit   10/18/2026
  */
 @Service
-public class Fractal2DRunner 
+public class Fractal2DRunner
 {
-	private Fractal2D fractal2D;
-	private String outputImagePath;
-	private CompletableFuture<String> runner;
-	
-	public interface ModelParamSetter
+	private final ThreadPoolExecutor executor;	  //runs queued jobs
+	private final ForkJoinPool renderPool;		  //draws the parallel subtrees of every job (see Fractal2D.setRenderPool), or null
+	private final JobRegistry jobRegistry;		  //every job by job ID, until shortly after it finishes
+	private final Map<String, Fractal2DJob> jobsInFlight; //queued and running jobs by flight key (see getFlightKey)
+	private final Map<String, Flight<?>> flights;		  //shared generations in flight by flight key and kind
+	private final RenderCache renderCache;		  //encoded images of previously generated Fractal2Ds
+	private final RenderMetrics renderMetrics;
+	private final long maxSnapshotBytes;		  //maximum total size of all snapshots kept
+	private final LinkedHashMap<String, RenderSnapshot> snapshots; //snapshots by deepening key in least to most recently used order
+	private long snapshotBytes;					  //current total size of all snapshots kept
+
+	/**
+	 * Flight --- Generation of a Fractal2D in flight, shared by every caller (waiter) that requested
+	 * 			  an equal Fractal2D meanwhile. Cancelled once every waiter has cancelled its future.
+	 */
+	private static class Flight<T>
 	{
-		/**
-		 * Method that typically updates a Thymeleaf page model attribute with loadingMessage.
-		 * @param loadingMessage Status message on fractal generation.
-		 */
-		public void setModelParams(String loadingMessage);
-	}
-	
-	public Fractal2DRunner() {
-		this.fractal2D = null;
-		this.outputImagePath = null;
-		this.runner = null;
+		private final Fractal2D fractal2D;		  //Fractal2D being generated (that of the first waiter)
+		private final CompletableFuture<T> future; //completes with the shared result
+		private int waiters;					  //callers whose futures are not cancelled (guarded by flights)
+
+		private Flight(Fractal2D fractal2D, CompletableFuture<T> future)
+		{
+			this.fractal2D = fractal2D;
+			this.future = future;
+			this.waiters = 0;
+		}
 	}
-	
-	public boolean isDuplicate(Fractal2D fractal2D, String outputImagePath)
+
+	/**
+	 * Creates a Fractal2DRunner with its own pool of worker threads.
+	 * @param threads Number of jobs to run at once.
+	 * @param renderParallelism Number of threads of the pool shared by every job generated in parallel
+	 * 							(<= 1 for no pool; see Fractal2D.setParallelism).
+	 * @param queueCapacity Number of jobs that may wait for a thread before new jobs are rejected.
+	 * @param maxSnapshotBytes Maximum total size of the snapshots of generated Fractal2Ds to deepen from (0 disables deepening).
+	 * @param jobRegistry Registry to register every job in.
+	 * @param renderCache Cache of encoded images to check before generating, and to add generated images to.
+	 * @param renderMetrics Metrics to record jobs and the time spent in each stage to.
+	 */
+	public Fractal2DRunner(@Value("${fractals.runner.threads:4}") int threads,
+						   @Value("${fractals.render.parallelism:1}") int renderParallelism,
+						   @Value("${fractals.runner.queue-capacity:16}") int queueCapacity,
+						   @Value("${fractals.runner.snapshot-max-bytes:67108864}") long maxSnapshotBytes,
+						   JobRegistry jobRegistry, RenderCache renderCache, RenderMetrics renderMetrics)
 	{
-		boolean pathsEqual = outputImagePath.equals(this.outputImagePath);
-		return fractal2D.equals(this.fractal2D) && pathsEqual;
+		this.jobRegistry = jobRegistry;
+		this.jobsInFlight = new HashMap<>();
+		this.flights = new HashMap<>();
+		this.renderCache = renderCache;
+		this.renderMetrics = renderMetrics;
+		this.maxSnapshotBytes = maxSnapshotBytes;
+		this.snapshots = new LinkedHashMap<String, RenderSnapshot>(16, 0.75f, true); //access order
+		this.snapshotBytes = 0;
+
+		AtomicInteger threadCount = new AtomicInteger(0);
+		ThreadFactory threadFactory = (Runnable runnable) -> {
+			Thread thread = new Thread(runnable, "fractal2d-runner-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+											   new ArrayBlockingQueue<Runnable>(queueCapacity), threadFactory,
+											   new ThreadPoolExecutor.AbortPolicy());
+		renderMetrics.registerRunner(executor);
+		this.renderPool = renderParallelism > 1 ? new ForkJoinPool(renderParallelism) : null;
 	}
-	
+
 	/**
-	 * Queues a Fractal2D for asynchronous generation/output to file as PNG image
-	 * at relativePath/filename, using CompletableFuture. Optionally cancels in-progress generation task first.
-	 * @param modelParamSetter Interface (typically lambda exp.) implementing ModelParamSetter.
-	 * @param relativePath Relative directory that filename is within.
-	 * @param filename Filename (with extension) of the image to output the generated fractal to.
-	 * @param cancelIfRunning If true, will cancel an in-progress generation before starting the new generation.
-	 * @param allowDuplicates If false and fractal2D equals an in-progress generation, no new task will be started.
-	 * @return true if new generation/output task was queued, false if identical task already in-progress. 
+	 * Queues a Fractal2D as a new job for asynchronous generation as a PNG image put in the RenderCache
+	 * (see getImage). Other queued and running jobs are not affected.
+	 * If the image is cached, the returned job is already done. If a job for an equal Fractal2D is
+	 * already queued or running, that job is returned instead, with the caller added to its waiters.
+	 * Its loading message, once done, is the job's message.
+	 * @param fractal2D Fractal2D to generate.
+	 * @return the caller's waiter of the job (registered in the JobRegistry), whose token cancels
+	 * 		   the caller's share of it (see cancel); the token is null if the job is already done.
+	 * @throws RenderQueueFullException If the queue is full.
 	 */
-	public boolean generateAndOutputToFile(ModelParamSetter modelParamSetter, Fractal2D fractal2D,
-			String relativePath, String filename, boolean cancelIfRunning, boolean allowDuplicates) 
+	public Fractal2DJob.Waiter generateAndStore(Fractal2D fractal2D)
 	{
 		Date start = new Date();
-		String relativePath_full = relativePath + filename;
-		if(!allowDuplicates && isDuplicate(fractal2D, relativePath_full)) {
-			//TODO fix issue where shows 'Generating...' when cancel duplicate request
-			System.out.println("Fractal2D runner was not started due to it being a duplicate of the last submitted task (allowDuplicates was false).");
-			return false;
-		}
-		if(cancelIfRunning) {
-			cancel();
-		}
-		this.fractal2D = fractal2D;
-		this.outputImagePath = relativePath_full;
-		runner = CompletableFuture.supplyAsync(() -> {
+		final String renderKey = fractal2D.getRenderKey();
+		final String flightKey = getFlightKey(fractal2D);
+		if(renderCache.get(renderKey) != null) {
+			Fractal2DJob job = new Fractal2DJob(fractal2D);
+			String loadingMessage = "Generated (cached).";
+			System.out.println(fractal2D.getClass().getSimpleName() + " found in render cache: '" + loadingMessage + "'");
+			job.setFuture(CompletableFuture.completedFuture(loadingMessage));
+			job.setStatus(Fractal2DJob.Status.DONE, loadingMessage);
+			jobRegistry.register(job);
+			return new Fractal2DJob.Waiter(job, null);
+		}
+		synchronized(jobsInFlight) {
+			Fractal2DJob inFlight = jobsInFlight.get(flightKey);
+			Fractal2DJob.Waiter joined = inFlight != null ? inFlight.addWaiter() : null;
+			if(joined != null) {
+				System.out.println(fractal2D.getClass().getSimpleName() + " request joined job " + inFlight.getId() 
+								   + " (" + inFlight.getWaiters() + " waiters).");
+				renderMetrics.recordCoalesced(fractal2D);
+				return joined;
+			}
+			Fractal2DJob.Waiter waiter = submitJob(fractal2D, start);
+			Fractal2DJob job = waiter.getJob();
+			jobsInFlight.put(flightKey, job);
+			job.getFuture().whenComplete((String loadingMessage, Throwable t) -> {
+				synchronized(jobsInFlight) {
+					jobsInFlight.remove(flightKey, job);
+				}
+			});
+			return waiter;
+		}
+	}
+
+	/**
+	 * Queue a new job for fractal2D (see generateAndStore).
+	 * @return the job's first waiter (added before the job can finish).
+	 * @throws RenderQueueFullException If the queue is full.
+	 */
+	private Fractal2DJob.Waiter submitJob(Fractal2D fractal2D, Date start)
+	{
+		Fractal2DJob job = new Fractal2DJob(fractal2D);
+		Fractal2DJob.Waiter waiter = job.addWaiter();
+		final String renderKey = job.getRenderKey();
+		CompletableFuture<String> runner = submit(fractal2D, () -> {
 			final String fractalType = fractal2D.getClass().getSimpleName();
-			System.out.println(fractalType + " runner started.");
+			System.out.println(fractalType + " runner started (job " + job.getId() + ").");
 			//1. Generate fractal2D
 			String loadingMessage;
-			fractal2D.generate();
-			
-			//2. Attempt to output generated fractal2D to file
-			try 
+			job.setStatus(Fractal2DJob.Status.GENERATING, null);
+			fractal2D.setPreviewListener((Fractal2D generating, int depth) -> encodePreview(job, generating, depth));
+			generateNow(fractal2D, true); //a page may ask for more iterations next
+
+			//2. Attempt to encode and cache (and store) generated fractal2D
+			try
 			{
-				String fullPath = fractal2D.outputToFile(relativePath, filename, "png");
-				loadingMessage = "Generated at " + fullPath;
-			} 
+				job.setStatus(Fractal2DJob.Status.ENCODING, null);
+				long encodeStart = System.nanoTime();
+				byte[] imageData = fractal2D.encode("png");
+				renderMetrics.recordEncode(fractal2D, System.nanoTime() - encodeStart);
+				if(fractal2D.cancelled.get()) {
+					throw new CancellationException("Image encoding was cancelled.");
+				}
+				if(!fractal2D.isTimeLimited()) { //the key is only for the full depth
+					long writeStart = System.nanoTime();
+					renderCache.put(renderKey, imageData);
+					renderMetrics.recordWrite(fractal2D, System.nanoTime() - writeStart, imageData.length);
+					job.setImage(null);
+				} else {
+					job.setImage(imageData);
+				}
+				loadingMessage = "Generated.";
+				if(fractal2D.isTimeLimited()) {
+					loadingMessage += " (depth " + fractal2D.getDepthReached() + " of " + fractal2D.getIterations() 
+									  + ": time budget of " + fractal2D.timeBudget + " ms reached)";
+				}
+			}
 			catch (Exception e)
 			{
-				loadingMessage = "Could not output " + fractalType + " to file: '" 
+				loadingMessage = "Could not store " + fractalType + " image: '"
 						+ e.getClass().toString() + ": "+ e.getMessage() + "'";
 				System.out.println(loadingMessage);
 			}
-			
-			//3. Update Thymeleaf page model's params and return
-			modelParamSetter.setModelParams(loadingMessage);
+
+			//3. Finish the job and return
+			job.setStatus(Fractal2DJob.Status.DONE, loadingMessage); //no-op if cancelled
 			if(fractal2D.cancelled.get()) {
 				System.out.println("Cancelled " + fractalType + " runner finished.");
 			} else {
@@ -97,23 +215,348 @@ public class Fractal2DRunner
 			}
 			return loadingMessage;
 		});
-		return true;
+		job.setFuture(runner);
+		jobRegistry.register(job);
+		return waiter;
 	}
-	
+
 	/**
-	 * Cancels a currently running generation/output task, if any.
-	 * @return True if a task was cancelled, false if no task was running.
+	 * Get the image of a Fractal2D: from the RenderCache (or its store) once generated, otherwise
+	 * the latest image of a recent job generating it (a preview, or its final image if not cached).
+	 * @param renderKey Fractal2D.getRenderKey of the image.
+	 * @return encoded PNG image, or null if none.
 	 */
-	public boolean cancel()
+	public byte[] getImage(String renderKey)
 	{
-		// Cancel any currently running task
-		if (runner != null && !runner.isDone()) {
-			runner.cancel(true);
-			this.fractal2D.cancelled.set(true);
-			System.out.println("Cancelling already-running Fractal2D.");
-			return true;
+		byte[] image = renderCache.peek(renderKey); //serving an image is not a render request
+		if(image != null) {
+			return image;
 		}
-		return false; //no task running to cancel
+		Fractal2DJob latest = null;
+		for(Fractal2DJob job : jobRegistry.getJobs()) {
+			if(job.getRenderKey().equals(renderKey) && job.getImage() != null
+			   && (latest == null || job.getSubmitted().after(latest.getSubmitted()))) {
+				latest = job;
+			}
+		}
+		return latest != null ? latest.getImage() : null;
+	}
+
+	/**
+	 * Queues a Fractal2D for asynchronous generation only, e.g. to be encoded straight to a response.
+	 * @param fractal2D Fractal2D to generate.
+	 * @return future that completes with fractal2D once it has been generated.
+	 * @throws RenderQueueFullException If the queue is full.
+	 */
+	public CompletableFuture<Fractal2D> generate(Fractal2D fractal2D)
+	{
+		return submit(fractal2D, () -> {
+			generateNow(fractal2D, false);
+			return fractal2D;
+		});
+	}
+
+	/**
+	 * Queues a Fractal2D for asynchronous generation only, sharing the generation of any equal Fractal2D
+	 * already in flight (see coalesce). The Fractal2D it completes with may be that of another caller,
+	 * so it must only be read (e.g. encoded) and never modified.
+	 * @param fractal2D Fractal2D to generate.
+	 * @return future that completes with an equal Fractal2D once generated. Cancelling it leaves the generation.
+	 * @throws RenderQueueFullException If the queue is full.
+	 */
+	public CompletableFuture<Fractal2D> generateShared(Fractal2D fractal2D)
+	{
+		return coalesce("generate:" + getFlightKey(fractal2D), fractal2D, () -> {
+			generateNow(fractal2D, false);
+			return fractal2D;
+		});
+	}
+
+	/**
+	 * Queues a Fractal2D for asynchronous generation and encoding, e.g. as one image of a batch,
+	 * sharing the generation and encoding of any equal Fractal2D already in flight (see coalesce).
+	 * @param fractal2D Fractal2D to generate.
+	 * @param imageType Type of image to encode (e.g. "png").
+	 * @return future that completes with the encoded image once generated and encoded
+	 * 		   (exceptionally if encoding failed or fractal2D was cancelled). Cancelling it leaves the generation.
+	 * @throws RenderQueueFullException If the queue is full.
+	 */
+	public CompletableFuture<byte[]> generateAndEncode(Fractal2D fractal2D, String imageType)
+	{
+		return coalesce("encode:" + imageType + ":" + getFlightKey(fractal2D), fractal2D, () -> {
+			generateNow(fractal2D, false);
+			try {
+				long encodeStart = System.nanoTime();
+				byte[] imageData = fractal2D.encode(imageType);
+				renderMetrics.recordEncode(fractal2D, System.nanoTime() - encodeStart);
+				return imageData;
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+
+	/**
+	 * Submit a task for a Fractal2D, unless one with the same key is already in flight, and return a future
+	 * (one per caller) of its result. A caller leaves the flight by cancelling its future; once every caller
+	 * has left, the task is cancelled too.
+	 * @param key Key of the task: equal for tasks with equal results.
+	 * @param fractal2D Fractal2D the task is for.
+	 * @param task Task to run on a runner thread if none with key is in flight.
+	 * @return future that completes with the shared result of the task.
+	 * @throws RenderQueueFullException If a new task was needed and the queue is full.
+	 */
+	private <T> CompletableFuture<T> coalesce(String key, Fractal2D fractal2D, Supplier<T> task)
+	{
+		CompletableFuture<T> waiter = new CompletableFuture<>();
+		Flight<T> flight;
+		synchronized(flights) {
+			@SuppressWarnings("unchecked")
+			Flight<T> inFlight = (Flight<T>) flights.get(key);
+			if(inFlight != null) {
+				renderMetrics.recordCoalesced(fractal2D);
+				flight = inFlight;
+			} else {
+				Flight<T> started = new Flight<>(fractal2D, submit(fractal2D, task));
+				flights.put(key, started);
+				flight = started;
+			}
+			flight.waiters++;
+		}
+		flight.future.whenComplete((T result, Throwable t) -> {
+			synchronized(flights) { //before any waiter completes, so later requests start a new flight
+				flights.remove(key, flight);
+			}
+			if(t != null) {
+				waiter.completeExceptionally(t);
+			} else {
+				waiter.complete(result);
+			}
+		});
+		waiter.whenComplete((T result, Throwable t) -> {
+			if(waiter.isCancelled()) {
+				leave(key, flight);
+			}
+		});
+		return waiter;
+	}
+
+	/**
+	 * Remove a waiter from a flight, cancelling it if no waiters remain and it is not done.
+	 */
+	private void leave(String key, Flight<?> flight)
+	{
+		synchronized(flights) {
+			flight.waiters--;
+			if(flight.waiters > 0 || flight.future.isDone()) {
+				return;
+			}
+			flights.remove(key, flight); //later requests start a new flight
+		}
+		flight.fractal2D.cancelled.set(true);
+		flight.future.cancel(true);
+		renderMetrics.recordCancelled(flight.fractal2D);
+	}
+
+	/**
+	 * Get the key of the requests that can share the generation of a Fractal2D: its render key
+	 * and its time budget (which changes the depth reached, but not the render key).
+	 */
+	private static String getFlightKey(Fractal2D fractal2D)
+	{
+		return fractal2D.getRenderKey() + ";timeBudget=" + fractal2D.timeBudget;
+	}
+
+	/**
+	 * @return number of jobs and shared generations in flight (see coalesce).
+	 */
+	public int getFlightCount()
+	{
+		int count;
+		synchronized(jobsInFlight) {
+			count = jobsInFlight.size();
+		}
+		synchronized(flights) {
+			return count + flights.size();
+		}
+	}
+
+	/**
+	 * Generate a Fractal2D on the calling thread, recording how long it took. If a snapshot of the same
+	 * Fractal2D with fewer iterations is kept, only the levels below it are drawn.
+	 * @param keepSnapshot If true, a snapshot of fractal2D is kept afterwards in place of any shallower one
+	 * 					   (taking one walks the whole fractal again and copies its image, so only jobs
+	 * 					   likely to be re-requested with more iterations take one).
+	 */
+	private void generateNow(Fractal2D fractal2D, boolean keepSnapshot)
+	{
+		Date start = new Date();
+		String deepening = "";
+		if(maxSnapshotBytes > 0) {
+			RenderSnapshot snapshot = getSnapshot(fractal2D.getDeepeningKey());
+			if(snapshot != null && fractal2D.deepenFrom(snapshot)) {
+				deepening = ", deepened from depth " + snapshot.getDepth();
+			}
+		}
+		long generateStart = System.nanoTime();
+		fractal2D.generate();
+		renderMetrics.recordGenerate(fractal2D, System.nanoTime() - generateStart);
+		long elapsed = new Date().getTime() - start.getTime();
+		System.out.println(fractal2D.getClass().getSimpleName() + " generated in " + elapsed + " ms (depth "
+						   + fractal2D.getDepthReached() + " of " + fractal2D.getIterations() + deepening + ").");
+		if(keepSnapshot && maxSnapshotBytes > 0 && !hasSnapshot(fractal2D.getDeepeningKey(), fractal2D.getIterations())) {
+			RenderSnapshot snapshot = fractal2D.snapshot();
+			if(snapshot != null) {
+				putSnapshot(snapshot);
+			}
+		}
+	}
+
+	/**
+	 * Get the snapshot kept for a deepening key, marking it as most recently used.
+	 * @return the snapshot, or null if none is kept.
+	 */
+	private synchronized RenderSnapshot getSnapshot(String deepeningKey)
+	{
+		return snapshots.get(deepeningKey);
+	}
+
+	/**
+	 * @return true if a snapshot of at least depth levels is kept for a deepening key.
+	 */
+	private synchronized boolean hasSnapshot(String deepeningKey, int depth)
+	{
+		RenderSnapshot snapshot = snapshots.get(deepeningKey);
+		return snapshot != null && snapshot.getDepth() >= depth;
+	}
+
+	/**
+	 * Keep a snapshot as most recently used in place of any other of the same deepening key,
+	 * discarding least recently used snapshots until all fit within maxSnapshotBytes.
+	 */
+	private synchronized void putSnapshot(RenderSnapshot snapshot)
+	{
+		if(snapshot.getBytes() > maxSnapshotBytes) {
+			return;
+		}
+		RenderSnapshot replaced = snapshots.put(snapshot.getDeepeningKey(), snapshot);
+		snapshotBytes += snapshot.getBytes() - (replaced != null ? replaced.getBytes() : 0);
+		Iterator<RenderSnapshot> leastRecentlyUsed = snapshots.values().iterator();
+		while(snapshotBytes > maxSnapshotBytes) {
+			snapshotBytes -= leastRecentlyUsed.next().getBytes();
+			leastRecentlyUsed.remove();
+		}
+	}
+
+	/**
+	 * @return number of snapshots kept to deepen from.
+	 */
+	public synchronized int getSnapshotCount()
+	{
+		return snapshots.size();
+	}
+
+	/**
+	 * @return number of jobs this runner runs at once.
+	 */
+	public int getThreads()
+	{
+		return executor.getMaximumPoolSize();
+	}
+
+	/**
+	 * Queues any rendering task to run on this runner's threads, recording how long it waited.
+	 * @param fractal2D Fractal2D that the task renders.
+	 * @param task Task to run.
+	 * @return future that completes with the task's result.
+	 * @throws RenderQueueFullException If the queue is full.
+	 */
+	public <T> CompletableFuture<T> submit(Fractal2D fractal2D, Supplier<T> task)
+	{
+		final long queued = System.nanoTime();
+		fractal2D.setRenderPool(renderPool);
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				renderMetrics.recordQueueWait(fractal2D, System.nanoTime() - queued);
+				return task.get();
+			}, executor);
+		} catch (RejectedExecutionException e) {
+			throw new RenderQueueFullException("Fractal2D runner queue is full (" + executor.getQueue().size()
+											   + " jobs waiting); try again later.");
+		}
+	}
+
+	/**
+	 * Encode a preview image of a job's fractal while it is being generated progressively,
+	 * for getImage to return until the finished image is cached.
+	 */
+	private void encodePreview(Fractal2DJob job, Fractal2D generating, int depth)
+	{
+		try {
+			job.setPreview(generating.encodePreview("png"), depth);
+		} catch (Exception e) {
+			System.out.println("Could not encode " + generating.getClass().getSimpleName() + " preview (depth " + depth 
+							   + "): '" + e.getClass().toString() + ": " + e.getMessage() + "'");
+		}
+	}
+	
+	/**
+	 * Get a job that is queued or running.
+	 * @param jobId ID of the job.
+	 * @return the job, or null if no such job is queued or running.
+	 */
+	public Fractal2DJob getJob(String jobId)
+	{
+		return jobRegistry.getActive(jobId);
 	}
 	
+	/**
+	 * Get a job that is queued, running or recently finished (see JobRegistry).
+	 * @param jobId ID of the job.
+	 * @return the job, or null if unknown (or finished long ago).
+	 */
+	public Fractal2DJob getRecentJob(String jobId)
+	{
+		return jobRegistry.get(jobId);
+	}
+
+	/**
+	 * Cancels a queued or running job for one of its waiters: the job itself is only cancelled
+	 * once no other waiters remain (see generateAndStore). Each waiter only cancels its share once.
+	 * @param jobId ID of the job to cancel.
+	 * @param token Token of the caller's waiter of the job (see Fractal2DJob.Waiter).
+	 * @return True if the job was cancelled (for the caller), false if no such job is queued or running,
+	 * 		   or token is not (or no longer) one of its waiters.
+	 */
+	public boolean cancel(String jobId, String token)
+	{
+		Fractal2DJob job = jobRegistry.getActive(jobId);
+		if(job == null) {
+			return false; //no such job queued or running to cancel
+		}
+		synchronized(jobsInFlight) { //no new waiter may join in between
+			if(!job.removeWaiter(token)) {
+				return false; //not a waiter, or already left
+			}
+			if(job.getWaiters() > 0) {
+				System.out.println("Fractal2D job " + jobId + " left by a waiter (" + job.getWaiters() + " remaining).");
+				return true;
+			}
+			if(!job.cancel()) {
+				return false; //already finished
+			}
+		}
+		System.out.println("Cancelling Fractal2D job " + jobId + ".");
+		renderMetrics.recordCancelled(job.getFractal2D());
+		return true;
+	}
+
+	@PreDestroy
+	public void shutdown()
+	{
+		executor.shutdownNow();
+		if(renderPool != null) {
+			renderPool.shutdownNow();
+		}
+	}
 }
@@ -0,0 +1,161 @@
+package com.fractals;
+
+/**
+ * Fractal2DSpec --- Parameters of a single Fractal2D in a batch render request (JSON), named like
+ * 					 the query parameters of RenderController's endpoints and with the same defaults.
+ * 					 Parameters that are left out take the default of the spec's type. Also sent to the
+ * 					 workers that render tiles of a distributed render (see TileCoordinator).
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class Fractal2DSpec
+{
+	private String type;		//"fractal-tree" or "fractal-circle"
+	private Integer w;			//width  of the image
+	private Integer h;			//height of the image
+	private Integer i;			//iterations
+	private Double angle;		//angle (degrees) between branches (fractal-tree only)
+	private Double factor;		//scaling factor of each level
+	private Integer satellites; //satellites per circle (fractal-circle only)
+	private Integer padding_w;	//padding (px) for left/right sides of the image
+	private Integer padding_h;	//padding (px) for top/bottom sides of the image
+	private Double culling;		//if set, cull subtrees below this size (px), whatever the server's render settings
+
+	/**
+	 * Create the Fractal2D this spec describes.
+	 * @return new, non-generated Fractal2D.
+	 * @throws InvalidFractalSpecException If type is missing or unknown.
+	 */
+	public Fractal2D toFractal2D()
+	{
+		if("fractal-tree".equals(type)) {
+			return new FractalTree(orDefault(w, 500), orDefault(h, 500), orDefault(i, 10),
+								   Math.toRadians(orDefault(angle, 60.0)), orDefault(factor, 0.77),
+								   orDefault(padding_w, 40), orDefault(padding_h, 40));
+		} else if("fractal-circle".equals(type)) {
+			return new FractalCircle(orDefault(w, 700), orDefault(h, 500), orDefault(i, 4), orDefault(satellites, 4),
+									 orDefault(factor, 0.5), orDefault(padding_w, 40), orDefault(padding_h, 40));
+		}
+		throw new InvalidFractalSpecException("Unknown fractal type '" + type
+											  + "' (expected 'fractal-tree' or 'fractal-circle').");
+	}
+
+	/**
+	 * Apply the settings of this spec that override the server's render settings (see RenderSettings.applyTo).
+	 * @param fractal2D Fractal2D created by toFractal2D, with the server's render settings applied.
+	 */
+	public void applyTo(Fractal2D fractal2D)
+	{
+		if(culling != null) {
+			fractal2D.setCulling(true, culling);
+		}
+	}
+
+	/**
+	 * Get a copy of this spec with the iterations and culling of a Fractal2D created from it as admitted
+	 * (and maybe downgraded) by RenderAdmission, so that other servers render exactly the same image.
+	 * @param fractal2D Fractal2D created by toFractal2D.
+	 * @return new spec.
+	 */
+	public Fractal2DSpec withSettingsOf(Fractal2D fractal2D)
+	{
+		Fractal2DSpec spec = new Fractal2DSpec();
+		spec.type = type;
+		spec.w = w;
+		spec.h = h;
+		spec.i = fractal2D.getIterations();
+		spec.angle = angle;
+		spec.factor = factor;
+		spec.satellites = satellites;
+		spec.padding_w = padding_w;
+		spec.padding_h = padding_h;
+		spec.culling = fractal2D.culling ? fractal2D.cullingThreshold : null;
+		return spec;
+	}
+
+	private static <T> T orDefault(T value, T defaultValue)
+	{
+		return value != null ? value : defaultValue;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public Integer getW() {
+		return w;
+	}
+
+	public void setW(Integer w) {
+		this.w = w;
+	}
+
+	public Integer getH() {
+		return h;
+	}
+
+	public void setH(Integer h) {
+		this.h = h;
+	}
+
+	public Integer getI() {
+		return i;
+	}
+
+	public void setI(Integer i) {
+		this.i = i;
+	}
+
+	public Double getAngle() {
+		return angle;
+	}
+
+	public void setAngle(Double angle) {
+		this.angle = angle;
+	}
+
+	public Double getFactor() {
+		return factor;
+	}
+
+	public void setFactor(Double factor) {
+		this.factor = factor;
+	}
+
+	public Integer getSatellites() {
+		return satellites;
+	}
+
+	public void setSatellites(Integer satellites) {
+		this.satellites = satellites;
+	}
+
+	public Integer getPadding_w() {
+		return padding_w;
+	}
+
+	public void setPadding_w(Integer padding_w) {
+		this.padding_w = padding_w;
+	}
+
+	public Integer getPadding_h() {
+		return padding_h;
+	}
+
+	public void setPadding_h(Integer padding_h) {
+		this.padding_h = padding_h;
+	}
+
+	public Double getCulling() {
+		return culling;
+	}
+
+	public void setCulling(Double culling) {
+		this.culling = culling;
+	}
+}
@@ -1,6 +1,9 @@
 package com.fractals;
 
 import java.awt.geom.Ellipse2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -9,14 +12,16 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * 					 for a set number of iterations.
  * @author Scott Wolfskill
  * @created     02/14/2019
- * @last_edit   02/25/2019
+ * @last_edit   10/18/2026
  */
 public class FractalCircle extends Fractal2D 
 {
 	protected int satelliteCount;   //Number of child node 'satellites' to generate per iteration
 	protected double scalingFactor; //Scaling factor for the radius of each child node in the fractal
+	private double[] reach;			//[k]: 1 + scalingFactor + ... + scalingFactor^(k-1)
 	
 	private static double initialRadiusFactor = 0.20; //set initial radius to be 20% of min(usableWidth, usableHeight)'s value
+	private static final int nodeStride = 3;		  //values per node when generating by level: centerX, centerY, radius
 	
 	/**
 	 * Creates a non-generated FractalCircle with specified parameters.
@@ -57,22 +62,216 @@ public class FractalCircle extends Fractal2D
 		return true;
 	}
 	
+	@Override
+	protected double getNodeCount()
+	{
+		return countNodes(satelliteCount, getDrawnLevels());
+	}
+	
+	@Override
+	protected int getDrawnLevels()
+	{
+		if(!culling || scalingFactor >= 1) {
+			return totalIterations; //nodes never shrink below the threshold
+		}
+		//Level l's satellites are culled once they all lie within cullingThreshold of its circles (see iterate)
+		double usableWidth = width - 2 * padding_horizontal;
+		double usableHeight = height - 2 * padding_horizontal;
+		double radius = initialRadiusFactor * Math.min(usableWidth, usableHeight);
+		for(int level = 1; level < totalIterations; level++) {
+			int iterationsRemaining = totalIterations - level + 1;
+			if(radius * (2 * reach(scalingFactor, iterationsRemaining) - 1) < cullingThreshold) {
+				return level;
+			}
+			radius *= scalingFactor;
+		}
+		return totalIterations;
+	}
+	
+	@Override
+	protected double getNanosPerNode()
+	{
+		return rasterizer == Rasterizer.DIRECT ? 300 : 2000;
+	}
+	
+	/**
+	 * Satellites are spaced evenly around their parent starting at angle 0, so the fractal is satelliteCount-fold
+	 * rotationally symmetric about the canvas's center. Only turns by multiples of 90 degrees map the pixel grid
+	 * onto itself exactly, so the part of that symmetry which can be replicated exactly is used.
+	 */
+	@Override
+	protected Symmetry getSymmetry()
+	{
+		if(satelliteCount % 4 == 0 && width == height) {
+			return Symmetry.QUARTER_TURN;
+		}
+		return satelliteCount % 2 == 0 ? Symmetry.HALF_TURN : Symmetry.NONE;
+	}
+	
+	@Override
+	protected void appendRenderParams(StringBuilder params)
+	{
+		super.appendRenderParams(params);
+		params.append(";satelliteCount=").append(satelliteCount)
+			  .append(";scalingFactor=").append(scalingFactor + 0.0); //+ 0.0 so that -0.0 and 0.0 (which are equal) append the same
+	}
+	
 	/**
-	 * Generates the FractalCircle on image by running for totalIterations iterations.
+	 * Draws the FractalCircle on canvas by running for totalIterations iterations.
 	 */
 	@Override
-	public void generate()
+	protected void draw()
 	{
-		initImage();
 		double usableWidth = width - 2 * padding_horizontal;
 		double usableHeight = height - 2 * padding_horizontal;
 		double centerX = width / 2;
 		double centerY = height / 2;
 		double startRadius = initialRadiusFactor * Math.min(usableWidth, usableHeight);
-		iterate(centerX, centerY, startRadius, totalIterations);
+		reach = computeReach(scalingFactor);
+		if(isDrawnByLevel()) {
+			drawByLevel(centerX, centerY, startRadius);
+		} else if(isParallel()) {
+			//Draw the top satellites, then draw each satellite subtree below splitDepth on its own task
+			List<Subtree> subtrees = new ArrayList<Subtree>();
+			iterate(canvas, subtrees, resolveSplitDepth(satelliteCount), centerX, centerY, startRadius, totalIterations);
+			drawParallel(subtrees);
+		} else {
+			iterate(canvas, null, 0, centerX, centerY, startRadius, totalIterations);
+		}
+	}
+	
+	/**
+	 * Draw the circles breadth-first, one level at a time, calling levelDrawn after each level
+	 * and stopping at the deepest level that finishes within the time budget, if any.
+	 * Every circle is culled and drawn exactly like iterate would, so the final image is the same.
+	 * Each level's circles are held in a flat array of nodeStride values per circle.
+	 */
+	private void drawByLevel(double centerX, double centerY, double startRadius)
+	{
+		double[] level = {centerX, centerY, startRadius};
+		int levelCount = 1;
+		for(int iterationsRemaining = totalIterations; iterationsRemaining > 0 && levelCount > 0; iterationsRemaining--) {
+			if((long) levelCount * satelliteCount > maxFrontierNodes) {
+				drawDepthFirst(level, levelCount, iterationsRemaining);
+				return;
+			}
+			if(!fitsInTime(levelCount)) {
+				return; //stop at the deepest level finished within the time budget
+			}
+			double[] nextLevel = new double[levelCount * satelliteCount * nodeStride];
+			int nextCount = 0;
+			for(int i = 0; i < levelCount * nodeStride; i += nodeStride) {
+				if(cancelled.get()) {
+					return;
+				}
+				if(isOutOfTime()) {
+					restoreLevel();
+					return;
+				}
+				double circleX = level[i], circleY = level[i + 1], radius = level[i + 2];
+				if(radius <= 0) {
+					continue;
+				}
+				double extent = offImageCulling ? radius * (2 * reach[iterationsRemaining] - 1) : 0;
+				if(offImageCulling && isOffImage(circleX, circleY, extent)) {
+					continue;
+				}
+				drawEllipse(canvas, totalIterations - iterationsRemaining, circleX, circleY, radius * 2, radius * 2);
+				if(iterationsRemaining == 1 || (culling && extent < cullingThreshold)) {
+					continue;
+				}
+				int satellites = iterationsRemaining == totalIterations ? getFundamentalChildren(satelliteCount) : satelliteCount;
+				nextCount = putSatellites(nextLevel, nextCount, satellites, circleX, circleY, radius);
+			}
+			level = nextLevel;
+			levelCount = nextCount;
+			levelDrawn(totalIterations - iterationsRemaining + 1);
+		}
+		levelDrawn(totalIterations); //including any levels left that were culled entirely
 	}
 	
-	private void iterate(double centerX, double centerY, double radius, int iterationsRemaining)
+	/**
+	 * Add the satellites of a circle to the circles of the next level (as in drawByLevel).
+	 * @param satellites Number of satellites to add, starting at angle 0 (satelliteCount for all of them).
+	 * @return number of circles in nextLevel afterwards.
+	 */
+	private int putSatellites(double[] nextLevel, int nextCount, int satellites, double circleX, double circleY, 
+							  double radius)
+	{
+		double childRadius = scalingFactor * radius;
+		double radiiSum = radius + childRadius;
+		for(int satellite = 0; satellite < satellites; satellite++) {
+			double childAngle_rad = (2 * Math.PI * satellite) / satelliteCount;
+			nextLevel[nextCount * nodeStride] = radiiSum * Math.cos(childAngle_rad) + circleX;
+			nextLevel[nextCount * nodeStride + 1] = radiiSum * Math.sin(childAngle_rad) + circleY;
+			nextLevel[nextCount * nodeStride + 2] = childRadius;
+			nextCount++;
+		}
+		return nextCount;
+	}
+	
+	@Override
+	protected double[] computeFrontier(int maxNodes)
+	{
+		if(countNodes(satelliteCount, totalIterations + 1) - countNodes(satelliteCount, totalIterations) > maxNodes) {
+			return null;
+		}
+		double usableWidth = width - 2 * padding_horizontal;
+		double usableHeight = height - 2 * padding_horizontal;
+		double[] level = {width / 2, height / 2, initialRadiusFactor * Math.min(usableWidth, usableHeight)};
+		int levelCount = 1;
+		for(int depth = 0; depth < totalIterations; depth++) {
+			double[] nextLevel = new double[levelCount * satelliteCount * nodeStride];
+			int nextCount = 0;
+			for(int i = 0; i < levelCount * nodeStride; i += nodeStride) {
+				if(level[i + 2] > 0) { //circles of no radius are neither drawn nor have satellites
+					int satellites = depth == 0 ? getFundamentalChildren(satelliteCount) : satelliteCount;
+					nextCount = putSatellites(nextLevel, nextCount, satellites, level[i], level[i + 1], level[i + 2]);
+				}
+			}
+			level = nextLevel;
+			levelCount = nextCount;
+		}
+		return level.length == levelCount * nodeStride ? level : Arrays.copyOf(level, levelCount * nodeStride);
+	}
+	
+	@Override
+	protected int getFrontierCount(double[] frontier)
+	{
+		return frontier.length / nodeStride;
+	}
+	
+	@Override
+	protected void drawFrontier(double[] frontier, int frontierCount, int iterationsRemaining)
+	{
+		reach = computeReach(scalingFactor);
+		drawDepthFirst(frontier, frontierCount, iterationsRemaining);
+	}
+	
+	/**
+	 * Draw the satellites below every circle of a level depth-first (see drawRemainingLevels).
+	 * @param level Circles of the level, as in drawByLevel.
+	 */
+	private void drawDepthFirst(double[] level, int levelCount, int iterationsRemaining)
+	{
+		List<Subtree> subtrees = new ArrayList<Subtree>();
+		for(int i = 0; i < levelCount * nodeStride; i += nodeStride) {
+			final int circle = i;
+			subtrees.add((Fractal2DCanvas target) -> iterate(target, null, 0, level[circle], level[circle + 1], 
+						 level[circle + 2], iterationsRemaining));
+		}
+		drawRemainingLevels(subtrees, levelCount * countNodes(satelliteCount, iterationsRemaining));
+	}
+	
+	/**
+	 * Draw the circle centered at (centerX, centerY) and then its satellites recursively.
+	 * @param target Canvas to draw onto.
+	 * @param subtrees If not null, satellites at splitDepthRemaining levels below this one are added to subtrees
+	 * 				   instead of being drawn.
+	 * @param splitDepthRemaining Number of levels below this circle at which to split into subtrees.
+	 */
+	private void iterate(Fractal2DCanvas target, List<Subtree> subtrees, int splitDepthRemaining,
+						 double centerX, double centerY, double radius, int iterationsRemaining)
 	{
 		final String msgPrefix = "FractalCircle.iterate: ";
 		if(cancelled != null && cancelled.get()) {
@@ -85,19 +284,34 @@ public class FractalCircle extends Fractal2D
 			System.out.println(msgPrefix + " radius (" + radius + ") became too small! ");
 			return;
 		}
+		//Every circle of this subtree lies within radius * (1 + 2*scalingFactor + ... + 2*scalingFactor^(k-1))
+		//of (centerX, centerY), since each satellite's center is (radius + childRadius) from its parent's
+		double extent = offImageCulling ? radius * (2 * reach[iterationsRemaining] - 1) : 0;
+		if(offImageCulling && isOffImage(centerX, centerY, extent)) {
+			return;
+		}
+		if(subtrees != null && splitDepthRemaining == 0) {
+			subtrees.add((Fractal2DCanvas buffer) -> iterate(buffer, null, 0, centerX, centerY, radius, iterationsRemaining));
+			return;
+		}
 		//1. Draw parent circle at (centerX, centerY)
-		drawEllipse(centerX, centerY, radius * 2, radius * 2);
+		drawEllipse(target, totalIterations - iterationsRemaining, centerX, centerY, radius * 2, radius * 2);
+		if(culling && extent < cullingThreshold) {
+			return; //all satellites lie within cullingThreshold of (centerX, centerY)
+		}
 		
 		//2. Calculate info and call iterate on each child satellite recursively
+		//(only on the root's 1st satellites when replicating them, see setSymmetric)
 		double childRadius = scalingFactor * radius;
 		double radiiSum = radius + childRadius;
+		int satellites = iterationsRemaining == totalIterations ? getFundamentalChildren(satelliteCount) : satelliteCount;
 		
-		for(int i = 0; i < satelliteCount; i++)
+		for(int i = 0; i < satellites; i++)
 		{
 			double childAngle_rad = (2 * Math.PI * i) / satelliteCount;
 			double childCenterX = radiiSum * Math.cos(childAngle_rad) + centerX;
 			double childCenterY = radiiSum * Math.sin(childAngle_rad) + centerY;
-			iterate(childCenterX, childCenterY, childRadius, iterationsRemaining - 1);
+			iterate(target, subtrees, splitDepthRemaining - 1, childCenterX, childCenterY, childRadius, iterationsRemaining - 1);
 		}
 	}
 
@@ -7,6 +7,9 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -17,15 +20,17 @@ import javax.imageio.ImageIO;
  * 				   with a specified angle between them for each existing node every iteration.
  * @author Scott Wolfskill
  * @created     02/12/2019
- * @last_edit   02/25/2019
+ * @last_edit   10/18/2026
  */
 public class FractalTree extends Fractal2D
 {
 	protected double angle;		      //angle (radians) created between existing line segment
 	protected double scalingFactor;	  //factor to scale line segment length by each iteration
+	private double[] reach;			  //[k]: length of a k-level subtree's longest path, relative to its 1st segment
 	
 	private static double initialSegmentLengthFactor = 0.20; //set initial segmentLength to be 20% of usableHeight's value
 	private static double initialAngle_deg = 90; //initial angle (degrees) of the 1st line segment
+	private static final int nodeStride = 6;	 //values per node when generating by level: startX, startY, endX, endY, angle, segmentLength
 	
 	/**
 	 * Creates a non-generated FractalTree with specified parameters.
@@ -67,11 +72,59 @@ public class FractalTree extends Fractal2D
 		return true;
 	}
 	
+	@Override
+	protected double getNodeCount()
+	{
+		return countNodes(2, getDrawnLevels());
+	}
+	
+	@Override
+	protected int getDrawnLevels()
+	{
+		if(!culling || scalingFactor >= 1) {
+			return totalIterations; //nodes never shrink below the threshold
+		}
+		//Level l's children are culled once its segments' descendants reach less than cullingThreshold (see iterate)
+		double segmentLength = initialSegmentLengthFactor * (height - 2 * padding_vertical);
+		for(int level = 1; level < totalIterations; level++) {
+			int iterationsRemaining = totalIterations - level + 1;
+			if(segmentLength * (reach(scalingFactor, iterationsRemaining) - 1) < cullingThreshold) {
+				return level;
+			}
+			segmentLength *= scalingFactor;
+		}
+		return totalIterations;
+	}
+	
+	@Override
+	protected double getNanosPerNode()
+	{
+		return rasterizer == Rasterizer.DIRECT ? 150 : 350;
+	}
+	
 	/**
-	 * Generates the FractalTree on image by running for totalIterations iterations.
+	 * The 1st segment is vertical and every node's children lie at +-angle/2 from it,
+	 * so the right subtree is the mirror image of the left subtree.
 	 */
 	@Override
-	public void generate()
+	protected Symmetry getSymmetry()
+	{
+		return Symmetry.MIRROR;
+	}
+	
+	@Override
+	protected void appendRenderParams(StringBuilder params)
+	{
+		super.appendRenderParams(params);
+		params.append(";angle=").append(angle + 0.0) //+ 0.0 so that -0.0 and 0.0 (which are equal) append the same
+			  .append(";scalingFactor=").append(scalingFactor + 0.0);
+	}
+	
+	/**
+	 * Draws the FractalTree on canvas by running for totalIterations iterations.
+	 */
+	@Override
+	protected void draw()
 	{
 		//Set segmentLength to be a percent factor of the total usable height
 		//(taking into account padding on both top and bottom)
@@ -83,14 +136,163 @@ public class FractalTree extends Fractal2D
 		double endX = startX;
 		double endY = startY - segmentLength;
 		double startAngle = Math.toRadians(initialAngle_deg);
-		initImage();
+		reach = computeReach(scalingFactor);
 		/*gfx.setBackground(Color.DARK_GRAY); //update the color to set as background color when clearRect is called
 		gfx.clearRect(0, 0, width, height); //set width x height region with background color only
 		gfx.setColor(Color.blue);*/ //set paint color to use in future draw calls
-		iterate(startX, startY, endX, endY, startAngle, segmentLength, totalIterations); //begin iterating (iterationsRemaining) times
+		if(isDrawnByLevel()) {
+			drawByLevel(startX, startY, endX, endY, startAngle, segmentLength);
+		} else if(isParallel()) {
+			//Draw the top of the tree, then draw each subtree below splitDepth on its own task
+			List<Subtree> subtrees = new ArrayList<Subtree>();
+			iterate(canvas, subtrees, resolveSplitDepth(2), startX, startY, endX, endY, 
+					startAngle, segmentLength, totalIterations);
+			drawParallel(subtrees);
+		} else {
+			iterate(canvas, null, 0, startX, startY, endX, endY, 
+					startAngle, segmentLength, totalIterations); //begin iterating (iterationsRemaining) times
+		}
+	}
+	
+	/**
+	 * Draw the tree breadth-first, one level at a time, calling levelDrawn after each level
+	 * and stopping at the deepest level that finishes within the time budget, if any.
+	 * Every node is culled and drawn exactly like iterate would, so the final image is the same.
+	 * Each level's nodes are held in a flat array of nodeStride values per node.
+	 */
+	private void drawByLevel(double startX, double startY, double endX, double endY, 
+							 double startAngle, double segmentLength)
+	{
+		double[] level = {startX, startY, endX, endY, startAngle, segmentLength};
+		int levelCount = 1;
+		for(int iterationsRemaining = totalIterations; iterationsRemaining > 0 && levelCount > 0; iterationsRemaining--) {
+			if((long) levelCount * 2 > maxFrontierNodes) {
+				drawDepthFirst(level, levelCount, iterationsRemaining);
+				return;
+			}
+			if(!fitsInTime(levelCount)) {
+				return; //stop at the deepest level finished within the time budget
+			}
+			double[] nextLevel = new double[levelCount * 2 * nodeStride];
+			int nextCount = 0;
+			for(int i = 0; i < levelCount * nodeStride; i += nodeStride) {
+				if(cancelled.get()) {
+					return;
+				}
+				if(isOutOfTime()) {
+					restoreLevel();
+					return;
+				}
+				double nodeStartX = level[i], nodeStartY = level[i + 1], nodeEndX = level[i + 2], nodeEndY = level[i + 3];
+				double currAngle = level[i + 4], length = level[i + 5];
+				if(length <= 0) {
+					continue;
+				}
+				if(offImageCulling && isOffImage(nodeStartX, nodeStartY, length * reach[iterationsRemaining])) {
+					continue;
+				}
+				drawLine(canvas, totalIterations - iterationsRemaining, nodeStartX, nodeStartY, nodeEndX, nodeEndY);
+				if(iterationsRemaining == 1 || 
+				   (culling && length * (reach[iterationsRemaining] - 1) < cullingThreshold)) {
+					continue;
+				}
+				int children = iterationsRemaining == totalIterations ? getFundamentalChildren(2) : 2;
+				nextCount = putChildren(nextLevel, nextCount, children, nodeEndX, nodeEndY, currAngle, length);
+			}
+			level = nextLevel;
+			levelCount = nextCount;
+			levelDrawn(totalIterations - iterationsRemaining + 1);
+		}
+		levelDrawn(totalIterations); //including any levels left that were culled entirely
 	}
 	
-	private void iterate(double startX, double startY, double endX, double endY, 
+	/**
+	 * Add the left and right children of a node to the nodes of the next level (as in drawByLevel).
+	 * @param children Number of children to add: 2, or 1 for the left child only.
+	 * @return number of nodes in nextLevel afterwards.
+	 */
+	private int putChildren(double[] nextLevel, int nextCount, int children, double endX, double endY, 
+							double currAngle, double segmentLength)
+	{
+		double childSegmentLength = scalingFactor * segmentLength;
+		for(int child = 0; child < children; child++) {
+			int side = 1 - 2 * child; //left child (1), then right child (-1)
+			double childAngle = currAngle + side * angle / 2;
+			nextLevel[nextCount * nodeStride] = endX;
+			nextLevel[nextCount * nodeStride + 1] = endY;
+			nextLevel[nextCount * nodeStride + 2] = endX + childSegmentLength * Math.cos(childAngle);
+			nextLevel[nextCount * nodeStride + 3] = endY - childSegmentLength * Math.sin(childAngle);
+			nextLevel[nextCount * nodeStride + 4] = childAngle;
+			nextLevel[nextCount * nodeStride + 5] = childSegmentLength;
+			nextCount++;
+		}
+		return nextCount;
+	}
+	
+	@Override
+	protected double[] computeFrontier(int maxNodes)
+	{
+		if(countNodes(2, totalIterations + 1) - countNodes(2, totalIterations) > maxNodes) {
+			return null;
+		}
+		double segmentLength = initialSegmentLengthFactor * (height - 2 * padding_vertical);
+		double startX = width / 2;
+		double startY = height - padding_vertical;
+		double[] level = {startX, startY, startX, startY - segmentLength, Math.toRadians(initialAngle_deg), segmentLength};
+		int levelCount = 1;
+		for(int depth = 0; depth < totalIterations; depth++) {
+			double[] nextLevel = new double[levelCount * 2 * nodeStride];
+			int nextCount = 0;
+			for(int i = 0; i < levelCount * nodeStride; i += nodeStride) {
+				if(level[i + 5] > 0) { //segments of no length are neither drawn nor have children
+					int children = depth == 0 ? getFundamentalChildren(2) : 2;
+					nextCount = putChildren(nextLevel, nextCount, children, level[i + 2], level[i + 3], 
+											level[i + 4], level[i + 5]);
+				}
+			}
+			level = nextLevel;
+			levelCount = nextCount;
+		}
+		return level.length == levelCount * nodeStride ? level : Arrays.copyOf(level, levelCount * nodeStride);
+	}
+	
+	@Override
+	protected int getFrontierCount(double[] frontier)
+	{
+		return frontier.length / nodeStride;
+	}
+	
+	@Override
+	protected void drawFrontier(double[] frontier, int frontierCount, int iterationsRemaining)
+	{
+		reach = computeReach(scalingFactor);
+		drawDepthFirst(frontier, frontierCount, iterationsRemaining);
+	}
+	
+	/**
+	 * Draw the subtrees below every node of a level depth-first (see drawRemainingLevels).
+	 * @param level Nodes of the level, as in drawByLevel.
+	 */
+	private void drawDepthFirst(double[] level, int levelCount, int iterationsRemaining)
+	{
+		List<Subtree> subtrees = new ArrayList<Subtree>();
+		for(int i = 0; i < levelCount * nodeStride; i += nodeStride) {
+			final int node = i;
+			subtrees.add((Fractal2DCanvas target) -> iterate(target, null, 0, level[node], level[node + 1], level[node + 2], 
+						 level[node + 3], level[node + 4], level[node + 5], iterationsRemaining));
+		}
+		drawRemainingLevels(subtrees, levelCount * countNodes(2, iterationsRemaining));
+	}
+	
+	/**
+	 * Draw the line segment from (startX, startY) to (endX, endY) and then its children recursively.
+	 * @param target Canvas to draw onto.
+	 * @param subtrees If not null, nodes at splitDepthRemaining levels below this one are added to subtrees
+	 * 				   instead of being drawn.
+	 * @param splitDepthRemaining Number of levels below this node at which to split into subtrees.
+	 */
+	private void iterate(Fractal2DCanvas target, List<Subtree> subtrees, int splitDepthRemaining,
+						 double startX, double startY, double endX, double endY, 
 						 double currAngle, double segmentLength, int iterationsRemaining)
 	{
 		final String msgPrefix = "FractalTree.iterate: ";
@@ -104,8 +306,19 @@ public class FractalTree extends Fractal2D
 			System.out.println(msgPrefix + "segmentLength (" + segmentLength + ") became too small! ");
 			return;
 		}
+		if(offImageCulling && isOffImage(startX, startY, segmentLength * reach[iterationsRemaining])) {
+			return; //every segment of this subtree lies within its longest path of (startX, startY)
+		}
+		if(subtrees != null && splitDepthRemaining == 0) {
+			subtrees.add((Fractal2DCanvas buffer) -> iterate(buffer, null, 0, startX, startY, endX, endY, 
+														currAngle, segmentLength, iterationsRemaining));
+			return;
+		}
 		//1. Draw single parent line segment
-		drawLine(startX, startY, endX, endY);
+		drawLine(target, totalIterations - iterationsRemaining, startX, startY, endX, endY);
+		if(culling && segmentLength * (reach[iterationsRemaining] - 1) < cullingThreshold) {
+			return; //all children lie within cullingThreshold of (endX, endY)
+		}
 		
 		//2. Calculate endpoints of left and right child nodes
 		double childSegmentLength = scalingFactor * segmentLength;
@@ -117,9 +330,14 @@ public class FractalTree extends Fractal2D
 		double rchild_endX = endX + childSegmentLength * Math.cos(rchild_angle);
 		double rchild_endY = endY - childSegmentLength * Math.sin(rchild_angle);
 		
-		//3. Call iterate on each child recursively
-		iterate(endX, endY, lchild_endX, lchild_endY, lchild_angle, childSegmentLength, iterationsRemaining - 1); //left child
-		iterate(endX, endY, rchild_endX, rchild_endY, rchild_angle, childSegmentLength, iterationsRemaining - 1); //right child
+		//3. Call iterate on each child recursively (only the left child of the root when mirroring it, see setSymmetric)
+		iterate(target, subtrees, splitDepthRemaining - 1, endX, endY, lchild_endX, lchild_endY, 
+				lchild_angle, childSegmentLength, iterationsRemaining - 1); //left child
+		if(iterationsRemaining == totalIterations && getFundamentalChildren(2) == 1) {
+			return;
+		}
+		iterate(target, subtrees, splitDepthRemaining - 1, endX, endY, rchild_endX, rchild_endY, 
+				rchild_angle, childSegmentLength, iterationsRemaining - 1); //right child
 	}
 	
 }
@@ -5,6 +5,10 @@ import java.util.Date;
 import java.util.LinkedList;
 import java.util.function.Supplier;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -20,20 +24,19 @@ import org.springframework.web.bind.annotation.ResponseBody;
  * 		    and then display the fractal HTML page.
  * @author Scott Wolfskill
  * @created     02/12/2019
- * @last_edit   02/26/2019
+ * @last_edit   10/18/2026
  */
 @Controller
 public class GenerateFractalController 
 {
-	private static Fractal2DRunner fractal2DRunner = null;
-	private static Model model = null;
-	
-	private final String staticDir = "static/";
-	private final String defaultFractalImageDirectory = "images/";
-	private final String defaultFractalTreeFilename = "fractal-tree.png";
-	private final String defaultFractalTreePath = defaultFractalImageDirectory + defaultFractalTreeFilename;
-	private final String defaultFractalCircleFilename = "fractal-circle.png";
-	private final String defaultFractalCirclePath = defaultFractalImageDirectory + defaultFractalCircleFilename;
+	@Autowired
+	private Fractal2DRunner fractal2DRunner;
+	@Autowired
+	private JobRegistry jobRegistry;
+	@Autowired
+	private RenderSettings renderSettings;
+	@Autowired
+	private RenderAdmission renderAdmission;
 	
 	/**
 	 * Queue a FractalTree for async generation, and return fractal.html
@@ -45,8 +48,8 @@ public class GenerateFractalController
 	 * @param factor Scaling factor for each child node in the fractal.
 	 * @param padding_w Horizontal padding in the image to generate.
 	 * @param padding_h Vertical padding in the image to generate.
-	 * @param fractalImagePath Relative path (inside "static/" directory) to generate fractal image at.
 	 * @param model Thymeleaf page model
+	 * @param response Response to add the estimated render cost headers to.
 	 * @return fractal.html
 	 */
 	@GetMapping("/fractal-tree")
@@ -58,8 +61,7 @@ public class GenerateFractalController
 			@RequestParam(name="factor", required=false, defaultValue="0.77") double factor,
 			@RequestParam(name="padding_w", required=false, defaultValue="40") int padding_w,
 			@RequestParam(name="padding_h", required=false, defaultValue="40") int padding_h,
-			@RequestParam(name="src", required=false, defaultValue=defaultFractalTreePath) String fractalImagePath,
-			Model model)
+			Model model, HttpServletResponse response)
 	{
 		double angle_rad = Math.toRadians(angle);
 		FractalTree fractalTree = new FractalTree(width, height, iterations, angle_rad,
@@ -69,9 +71,9 @@ public class GenerateFractalController
 		model.addAttribute("angle", angle);
 		model.addAttribute("factor", factor);
 		
-		// Generate on separate thread using Fractal2DRunner, if not duplicate request
-		generateFractal2D(fractalTree, fractalImagePath, "Fractal Tree", "/fractal-tree", 
-				  "fragments/fractal-tree-params.html", model);
+		// Generate on separate thread using Fractal2DRunner
+		generateFractal2D(fractalTree, "Fractal Tree", "/fractal-tree", 
+				  "fragments/fractal-tree-params.html", model, response);
 		
 		return "fractal";
 	}
@@ -86,8 +88,8 @@ public class GenerateFractalController
 	 * @param factor Scaling factor for each child node in the fractal.
 	 * @param padding_w Horizontal padding in the image to generate.
 	 * @param padding_h Vertical padding in the image to generate.
-	 * @param fractalImagePath Relative path (inside "static/" directory) to generate fractal image at.
 	 * @param model Thymeleaf page model
+	 * @param response Response to add the estimated render cost headers to.
 	 * @return fractal.html
 	 */
 	@GetMapping("/fractal-circle")
@@ -99,8 +101,7 @@ public class GenerateFractalController
 			@RequestParam(name="factor", required=false, defaultValue="0.5") double factor,
 			@RequestParam(name="padding_w", required=false, defaultValue="40") int padding_w,
 			@RequestParam(name="padding_h", required=false, defaultValue="40") int padding_h,
-			@RequestParam(name="src", required=false, defaultValue=defaultFractalCirclePath) String fractalImagePath,
-			Model model)
+			Model model, HttpServletResponse response)
 	{
 		FractalCircle fractalCircle = new FractalCircle(width, height, iterations, satellites,
 												  	    factor, padding_w, padding_h);
@@ -109,74 +110,88 @@ public class GenerateFractalController
 		model.addAttribute("satellites", satellites);
 		model.addAttribute("factor", factor);
 					
-		// Generate on separate thread using Fractal2DRunner, if not duplicate request
-		generateFractal2D(fractalCircle, fractalImagePath, "Fractal Circles", "/fractal-circle", 
-						  "fragments/fractal-circle-params.html", model);
+		// Generate on separate thread using Fractal2DRunner
+		generateFractal2D(fractalCircle, "Fractal Circles", "/fractal-circle", 
+						  "fragments/fractal-circle-params.html", model, response);
 		
 		return "fractal";
 	}
 	
 	/**
-	 * Return the String value of the page model's loadingMessage attribute.
-	 * @return ResponseEntity containing a single String
+	 * Return the loading message of a job: its message once DONE, otherwise a message for its status.
+	 * @param jobId ID of the job (the page's data-job-id).
+	 * @return ResponseEntity containing a single String, or HTTP 404 if the job is unknown (or expired).
 	 */
 	@GetMapping("/get-loading-message")
-	public @ResponseBody ResponseEntity<?> getLoadingMessage()
+	public @ResponseBody ResponseEntity<?> getLoadingMessage(@RequestParam(name="job") String jobId)
 	{
-		if(model != null) {
-			String loadingMessage = (String) model.asMap().get("loadingMessage");
-			return ResponseEntity.ok(loadingMessage);
-		} else {
-			String errMessage = "No loading message found; no fractal generation has been attempted.";
-			return ResponseEntity.badRequest().body(errMessage);
+		Fractal2DJob job = jobRegistry.get(jobId);
+		if(job == null) {
+			String errMessage = "No loading message found; no such job (or it finished long ago).";
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errMessage);
 		}
+		return ResponseEntity.ok(getLoadingMessage(job));
 	}
 	
 	/**
-	 * Queue a Fractal2D for asynchronous generation using fractal2DRunner (unless duplicate request)
-	 * and set a Thymeleaf page model attributes.
-	 * @param toGenerate Fractal2D to generate & output to file asynchronously.
-	 * @param fractalImagePath Relative path of the output image to generate. (e.g. "images/fractal2d.png")
+	 * Queue a Fractal2D for asynchronous generation using fractal2DRunner (sharing the job of an equal
+	 * Fractal2D in flight, unless over the render budget, see RenderAdmission) and set the Thymeleaf page
+	 * model's attributes. The page follows the job by its ID (see JobStatusController), and its image is
+	 * served from the RenderStore by its render key (see RenderController.getStoredImage).
+	 * The page gives up its share of its previous job itself, once this one is queued (see JobStatusController.cancelJob).
+	 * @param toGenerate Fractal2D to generate & store asynchronously.
 	 * @param title Title of the Thymeleaf page to set.
 	 * @param action Action URI of the Fractal2D to generate.
 	 * @param params_page Thymeleaf fragment to load which holds form parameters for the fractal2D.
 	 * @param model Thymeleaf page model to set the attributes of.
-	 * @return true if queued for generation, false if duplicate request.
+	 * @param response Response to add the estimated render cost headers to.
+	 * @throws RenderQueueFullException If too many jobs are already queued (HTTP 429).
+	 * @throws RenderTooExpensiveException If toGenerate is over the render budget (HTTP 422).
 	 */
-	private boolean generateFractal2D(Fractal2D toGenerate, String fractalImagePath, String title, 
-									  String action, String params_page, Model model)
+	private void generateFractal2D(Fractal2D toGenerate, String title, String action, String params_page,
+								   Model model, HttpServletResponse response)
 	{
-		String relativePath = staticDir + Helper.getDirectoriesFromPath(fractalImagePath);
-		String filename = Helper.getFilenameFromPath(fractalImagePath);
-		String relativePath_full = relativePath + filename;
-		Fractal2DRunner.ModelParamSetter modelParamSetter = initFractal2DRunner(model);
+		renderSettings.applyTo(toGenerate);
+		RenderAdmission.Admission admission = renderAdmission.admit(toGenerate); //may downgrade toGenerate
+		String fractalImagePath = "/store/" + toGenerate.getRenderKey() + ".png"; //key of the admitted settings
+		admission.getCost().toHeaders().forEach(response::setHeader);
 		
-		//Generate on separate thread using Fractal2DRunner, if not duplicate request
-		if(fractal2DRunner.isDuplicate(toGenerate, relativePath_full)) {
-			System.out.println("generateFractal2D: duplicate " + toGenerate.getClass().getSimpleName() + " request.");
-			model.addAllAttributes(GenerateFractalController.model.asMap());
-			model.addAttribute("imagePath", fractalImagePath);
-			return false;
-		} else {
-			setFractal2DModelParams(title, action, fractalImagePath, params_page, toGenerate.width, 
-								    toGenerate.height, toGenerate.totalIterations, model);
+		setFractal2DModelParams(title, action, fractalImagePath, params_page, toGenerate.width, 
+							    toGenerate.height, toGenerate.totalIterations, model);
+		String renderCost = admission.getCost().toString();
+		if(admission.isDowngraded()) {
+			renderCost += " (downgraded from " + admission.getRequestedIterations() + " iterations to fit the server's budget)";
+		}
+		model.addAttribute("renderCost", renderCost);
 
-			fractal2DRunner.generateAndOutputToFile(modelParamSetter, toGenerate, relativePath, filename, true, false);
-			return true;
+		//Generate on separate thread using Fractal2DRunner
+		try {
+			Fractal2DJob.Waiter waiter = fractal2DRunner.generateAndStore(toGenerate);
+			Fractal2DJob job = waiter.getJob();
+			model.addAttribute("jobId", job.getId());
+			model.addAttribute("waiter", waiter.getToken());
+			if(job.getStatus().isFinished()) { //e.g. cached
+				model.addAttribute("loadingMessage", getLoadingMessage(job));
+			}
+		} catch (RenderQueueFullException e) {
+			model.addAttribute("loadingMessage", "Server is busy; please try again later.");
+			throw e;
 		}
 	}
 	
-	private Fractal2DRunner.ModelParamSetter initFractal2DRunner(Model model)
+	/**
+	 * @return loading message of a job: its message once DONE, otherwise a message for its status.
+	 */
+	private static String getLoadingMessage(Fractal2DJob job)
 	{
-		if(fractal2DRunner == null) {
-			fractal2DRunner = new Fractal2DRunner();
+		switch(job.getStatus()) {
+			case DONE:
+				return job.getMessage();
+			case CANCELLED:
+				return "Cancelled.";
+			default:
+				return "Generating...";
 		}
-		
-		Fractal2DRunner.ModelParamSetter modelParamSetter = (String loadingMessage) ->
-		{
-			setFractal2DModelParam_loadingMessage(loadingMessage, model);
-		};
-		return modelParamSetter;
 	}
 	
 	private void setFractal2DModelParams(String title, String action, String imagePath, String params_page, 
@@ -191,13 +206,5 @@ public class GenerateFractalController
 		model.addAttribute("height", height);
 		model.addAttribute("iterations", iterations);
 		model.addAttribute("loadingMessage", "Generating...");
-		this.model = model;
-	}
-	
-	private void setFractal2DModelParam_loadingMessage(String loadingMessage, Model model)
-	{
-		// This updates server-side model only. The client must get the updated attribute with 
-		// URI /get-loading-message
-		model.addAttribute("loadingMessage", loadingMessage);
 	}
 }
@@ -0,0 +1,115 @@
+package com.fractals;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * GifEncoder --- Encodes frames as an animated GIF one by one, writing each to an output stream
+ * 				  as soon as it is encoded. A single ImageIO writer and the metadata of the frames
+ * 				  are reused for every frame. Frames should be indexed (e.g. TYPE_BYTE_INDEXED), or
+ * 				  ImageIO has to reduce every frame to a palette first.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class GifEncoder
+{
+	private final ImageWriter writer;
+	private final ImageOutputStream output;
+	private final int delay;	  //time (1/100 s) each frame is shown for
+	private final boolean loop;	  //if true, the animation repeats forever
+	private int framesWritten;
+	private ImageTypeSpecifier frameType; //type of the frames the metadata was built for
+	private IIOMetadata firstMetadata;	  //metadata of the first frame (with the looping extension)
+	private IIOMetadata frameMetadata;	  //metadata of every other frame
+
+	/**
+	 * Creates a GifEncoder and writes the GIF header to output.
+	 * @param output Stream to write the GIF to. Is not closed.
+	 * @param delayMillis Time (ms) each frame is shown for (rounded to 10 ms).
+	 * @param loop If true, the animation repeats forever; otherwise it plays once.
+	 * @throws IOException If writing to output failed.
+	 */
+	public GifEncoder(OutputStream output, int delayMillis, boolean loop) throws IOException
+	{
+		this.writer = ImageIO.getImageWritersByFormatName("gif").next();
+		this.output = new MemoryCacheImageOutputStream(output);
+		this.delay = Math.max(0, (delayMillis + 5) / 10);
+		this.loop = loop;
+		this.framesWritten = 0;
+		writer.setOutput(this.output);
+		writer.prepareWriteSequence(null);
+	}
+
+	/**
+	 * Encode frame as the next frame of the animation, and flush it to output.
+	 * @param frame Image with the same size as every other frame. May be reused once this returns.
+	 * @throws IOException If writing to output failed.
+	 */
+	public void writeFrame(BufferedImage frame) throws IOException
+	{
+		//Not createFromRenderedImage, which gives TYPE_BYTE_INDEXED images the default 256-color palette
+		ImageTypeSpecifier type = new ImageTypeSpecifier(frame.getColorModel(), frame.getSampleModel());
+		if(!type.equals(frameType)) {
+			frameType = type;
+			firstMetadata = createMetadata(type, loop);
+			frameMetadata = createMetadata(type, false);
+		}
+		writer.writeToSequence(new IIOImage(frame, null, framesWritten == 0 ? firstMetadata : frameMetadata), null);
+		framesWritten++;
+		output.flush(); //writes everything encoded so far through to the underlying stream
+	}
+
+	/**
+	 * Write the GIF trailer, and release the writer.
+	 * @throws IOException If writing to output failed.
+	 */
+	public void finish() throws IOException
+	{
+		try {
+			writer.endWriteSequence();
+			output.close(); //flushes to the underlying stream, but does not close it
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	/**
+	 * Build the metadata of frames of a type: shown for delay, replacing the previous frame,
+	 * and with the NETSCAPE2.0 extension that makes the animation repeat if looping.
+	 */
+	private IIOMetadata createMetadata(ImageTypeSpecifier type, boolean looping) throws IOException
+	{
+		IIOMetadata metadata = writer.getDefaultImageMetadata(type, null);
+		String format = metadata.getNativeMetadataFormatName();
+		IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+		IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+		control.setAttribute("disposalMethod", "none");
+		control.setAttribute("userInputFlag", "FALSE");
+		control.setAttribute("transparentColorFlag", "FALSE");
+		control.setAttribute("delayTime", Integer.toString(delay));
+		control.setAttribute("transparentColorIndex", "0");
+		root.appendChild(control);
+		if(looping) {
+			IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+			IIOMetadataNode netscape = new IIOMetadataNode("ApplicationExtension");
+			netscape.setAttribute("applicationID", "NETSCAPE");
+			netscape.setAttribute("authenticationCode", "2.0");
+			netscape.setUserObject(new byte[] {1, 0, 0}); //sub-block 1: loop count (little-endian), 0 = forever
+			extensions.appendChild(netscape);
+			root.appendChild(extensions);
+		}
+		metadata.setFromTree(format, root);
+		return metadata;
+	}
+}
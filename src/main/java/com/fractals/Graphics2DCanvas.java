@@ -0,0 +1,54 @@
+package com.fractals;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+
+/**
+ * Graphics2DCanvas --- Fractal2DCanvas that draws through the general-purpose Java2D pipeline
+ * 						of a Graphics2D. Reuses a single Line2D and Ellipse2D for every node drawn,
+ * 						so a Graphics2DCanvas must only be used by one thread.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class Graphics2DCanvas implements Fractal2DCanvas 
+{
+	private final Graphics2D gfx;
+	private final Line2D.Double line;
+	private final Ellipse2D.Double ellipse;
+	
+	/**
+	 * Creates a Graphics2DCanvas that draws with the current settings (color, stroke etc.) of gfx.
+	 * @param gfx Graphics to draw onto.
+	 */
+	public Graphics2DCanvas(Graphics2D gfx)
+	{
+		this.gfx = gfx;
+		this.line = new Line2D.Double();
+		this.ellipse = new Ellipse2D.Double();
+	}
+	
+	@Override
+	public void drawLine(double startX, double startY, double endX, double endY)
+	{
+		line.setLine(startX, startY, endX, endY);
+		gfx.draw(line);
+	}
+	
+	@Override
+	public void drawEllipse(double centerX, double centerY, double width, double height)
+	{
+		//Ellipse2D frame's leftmost point is at minX and topmost point is at minY
+		double minX = centerX - (width / 2);
+		double minY = centerY - (height / 2);
+		ellipse.setFrame(minX, minY, width, height);
+		gfx.draw(ellipse);
+	}
+	
+	@Override
+	public void dispose()
+	{
+		gfx.dispose();
+	}
+}
@@ -1,10 +1,14 @@
 package com.fractals;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 /**
  * Helper --- Non-instantiable class containing general static helper methods.
  * @author Scott Wolfskill
  * @created     02/26/2019
- * @last_edit   02/26/2019
+ * @last_edit   10/18/2026
  */
 public class Helper 
 {
@@ -59,4 +63,24 @@ public class Helper
 		String directories = path.substring(start, end);
 		return directories;
 	}
+	
+	/**
+	 * Hashes a string with SHA-256.
+	 * @param input String to hash (encoded as UTF-8).
+	 * @return lowercase hex digest of input (64 characters).
+	 */
+	public static String sha256Hex(String input)
+	{
+		byte[] digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Helper.sha256Hex: SHA-256 is not available.", e); //required on every JVM
+		}
+		StringBuilder hex = new StringBuilder(digest.length * 2);
+		for(byte b : digest) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
 }
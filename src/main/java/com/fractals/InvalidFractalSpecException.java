@@ -0,0 +1,25 @@
+package com.fractals;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * InvalidFractalSpecException --- Thrown when a batch render request is empty, too large,
+ * 								   or has a Fractal2DSpec of an unknown type, when an animation
+ * 								   sweeps an unknown parameter or has too many frames, or when
+ * 								   a tile is not within the canvas.
+ * 								   Results in HTTP 400 (Bad Request).
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidFractalSpecException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	public InvalidFractalSpecException(String message)
+	{
+		super(message);
+	}
+}
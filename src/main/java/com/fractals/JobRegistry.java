@@ -0,0 +1,108 @@
+package com.fractals;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * JobRegistry --- Every Fractal2DJob by job ID, from when it is submitted until ttl after it finishes,
+ * 				   so that any number of clients can look up the status of their own job concurrently.
+ * 				   Lookups never lock: jobs are kept in a ConcurrentHashMap, and expired jobs are swept
+ * 				   out at most every sweepInterval by whichever thread registers a job first.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@Component
+public class JobRegistry
+{
+	private final Map<String, Fractal2DJob> jobs; //registered jobs by job ID
+	private final long ttl;						  //ms a finished job is kept
+	private final long sweepInterval;			  //ms between sweeps for expired jobs
+	private final AtomicLong nextSweep;			  //time (ms) of the next sweep
+
+	/**
+	 * Creates an empty JobRegistry.
+	 * @param ttl Time (ms) a finished job can still be looked up for.
+	 */
+	public JobRegistry(@Value("${fractals.jobs.ttl:300000}") long ttl)
+	{
+		this.jobs = new ConcurrentHashMap<>();
+		this.ttl = ttl;
+		this.sweepInterval = Math.max(ttl / 4, 1);
+		this.nextSweep = new AtomicLong(System.currentTimeMillis() + sweepInterval);
+	}
+
+	/**
+	 * Register a job, sweeping out expired jobs first if a sweep is due.
+	 * @param job Newly submitted job.
+	 */
+	public void register(Fractal2DJob job)
+	{
+		long now = System.currentTimeMillis();
+		long sweep = nextSweep.get();
+		if(now >= sweep && nextSweep.compareAndSet(sweep, now + sweepInterval)) {
+			expire(now);
+		}
+		jobs.put(job.getId(), job);
+	}
+
+	/**
+	 * Get a job that is queued, running or finished less than ttl ago.
+	 * @param jobId ID of the job.
+	 * @return the job, or null if unknown (or expired).
+	 */
+	public Fractal2DJob get(String jobId)
+	{
+		Fractal2DJob job = jobs.get(jobId);
+		if(job == null || isExpired(job, System.currentTimeMillis())) {
+			return null;
+		}
+		return job;
+	}
+
+	/**
+	 * Get a job that is queued or running.
+	 * @param jobId ID of the job.
+	 * @return the job, or null if unknown or finished.
+	 */
+	public Fractal2DJob getActive(String jobId)
+	{
+		Fractal2DJob job = jobs.get(jobId);
+		return job != null && !job.getStatus().isFinished() ? job : null;
+	}
+
+	/**
+	 * @return every registered job, possibly including expired jobs not yet swept out.
+	 * 		   Iterating it never fails, but may or may not reflect concurrent changes.
+	 */
+	public Collection<Fractal2DJob> getJobs()
+	{
+		return jobs.values();
+	}
+
+	/**
+	 * Remove every job that finished at least ttl before now.
+	 */
+	void expire(long now)
+	{
+		jobs.values().removeIf((Fractal2DJob job) -> isExpired(job, now));
+	}
+
+	private boolean isExpired(Fractal2DJob job, long now)
+	{
+		return job.getFinished() != null && now - job.getFinished().getTime() >= ttl;
+	}
+
+	public int getSize() {
+		return jobs.size();
+	}
+
+	public long getTtl() {
+		return ttl;
+	}
+}
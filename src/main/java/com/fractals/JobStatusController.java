@@ -0,0 +1,278 @@
+package com.fractals;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * JobStatusController ---
+ * 			Pushes the status of a Fractal2DJob to the client with Server-Sent Events
+ * 			as it changes, instead of the client polling for its loading message.
+ * 			The full status of a job (with its timings and image) can also be looked up once.
+ * 			A page following its job with its waiter token leaves the job once its client goes away,
+ * 			or as soon as it asks to (see cancelJob).
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@Controller
+public class JobStatusController
+{
+	private static final long progressInterval = 250; //ms between progress updates while a job is generating
+	private static final long heartbeatInterval = 5000; //ms without events after which a comment is sent, to notice clients gone
+	
+	@Autowired
+	private Fractal2DRunner fractal2DRunner;
+	private final ScheduledExecutorService progressScheduler; //sends progress updates for all open event streams
+	
+	public JobStatusController()
+	{
+		this.progressScheduler = Executors.newSingleThreadScheduledExecutor((Runnable runnable) -> {
+			Thread thread = new Thread(runnable, "job-status-progress");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Stream "status" events for a job: one immediately, one on every status change or preview, and progress
+	 * updates while generating. The stream completes once the job is DONE or CANCELLED.
+	 * Each event's data is JSON: {"status": Fractal2DJob.Status, "progress": 0-100,
+	 * "previewDepth": depth of the latest preview image (0 if none), "depthReached": levels completely drawn
+	 * (less than requested if the time budget ran out), "message": loading message or null}.
+	 * If the client goes away before the job has finished, its waiter (if given) leaves the job.
+	 * @param jobId ID of the job (see Fractal2DRunner.getRecentJob).
+	 * @param waiter Token of the client's waiter of the job (see Fractal2DJob.Waiter), or null.
+	 * @return event stream. For an unknown job, a single DONE event with no message.
+	 */
+	@GetMapping(path="/jobs/{jobId}/events", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter jobEvents(@PathVariable String jobId, 
+								@RequestParam(name="waiter", required=false) String waiter)
+	{
+		SseEmitter emitter = new SseEmitter();
+		Fractal2DJob job = fractal2DRunner.getRecentJob(jobId);
+		if(job == null) {
+			send(emitter, statusEvent(Fractal2DJob.Status.DONE, 100, 0, 0, null));
+			emitter.complete();
+			return emitter;
+		}
+		new JobEventStream(job, waiter, emitter).start();
+		return emitter;
+	}
+	
+	/**
+	 * Get the status of a job as JSON: the fields of its "status" events (see jobEvents), plus "id",
+	 * "waiters" (requests sharing the job), "submitted", "started" and "finished" (epoch ms, or null if not yet),
+	 * and "image" (path of the job's image, see RenderController.getStoredImage).
+	 * @param jobId ID of the job (see Fractal2DRunner.getRecentJob).
+	 * @return the job's status, or HTTP 404 if the job is unknown (or expired, see JobRegistry).
+	 */
+	@GetMapping(path="/jobs/{jobId}", produces=MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody ResponseEntity<Map<String, Object>> jobStatus(@PathVariable String jobId)
+	{
+		Fractal2DJob job = fractal2DRunner.getRecentJob(jobId);
+		if(job == null) {
+			return ResponseEntity.notFound().build();
+		}
+		Map<String, Object> status = new LinkedHashMap<>();
+		status.put("id", job.getId());
+		status.putAll(statusEvent(job.getStatus(), job.getProgress(), job.getPreviewDepth(),
+								  job.getFractal2D().getDepthReached(), job.getMessage()));
+		status.put("waiters", job.getWaiters());
+		status.put("submitted", job.getSubmitted().getTime());
+		status.put("started", job.getStarted() != null ? job.getStarted().getTime() : null);
+		status.put("finished", job.getFinished() != null ? job.getFinished().getTime() : null);
+		status.put("image", "/store/" + job.getRenderKey() + ".png");
+		return ResponseEntity.ok(status);
+	}
+	
+	/**
+	 * Cancel a client's share of a queued or running job (see Fractal2DRunner.cancel): the job itself
+	 * is only cancelled once every request sharing it has cancelled it.
+	 * @param jobId ID of the job.
+	 * @param waiter Token of the client's waiter of the job (see Fractal2DJob.Waiter).
+	 * @return HTTP 204 if cancelled, or HTTP 404 if no such job is queued or running, or waiter
+	 * 		   is not (or no longer) one of its waiters.
+	 */
+	@DeleteMapping("/jobs/{jobId}")
+	public ResponseEntity<Void> cancelJob(@PathVariable String jobId, @RequestParam(name="waiter") String waiter)
+	{
+		if(!fractal2DRunner.cancel(jobId, waiter)) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.noContent().build();
+	}
+	
+	@PreDestroy
+	public void shutdown()
+	{
+		progressScheduler.shutdownNow();
+	}
+	
+	private static Map<String, Object> statusEvent(Fractal2DJob.Status status, int progress, int previewDepth, 
+												   int depthReached, String message)
+	{
+		Map<String, Object> event = new LinkedHashMap<>();
+		event.put("status", status);
+		event.put("progress", progress);
+		event.put("previewDepth", previewDepth);
+		event.put("depthReached", depthReached);
+		event.put("message", message);
+		return event;
+	}
+	
+	/**
+	 * @return true if sent, false if the client went away.
+	 */
+	private static boolean send(SseEmitter emitter, Map<String, Object> event)
+	{
+		try {
+			emitter.send(SseEmitter.event().name("status").data(event, MediaType.APPLICATION_JSON));
+			return true;
+		} catch (IOException | IllegalStateException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * @return true if sent, false if the client went away.
+	 */
+	private static boolean sendHeartbeat(SseEmitter emitter)
+	{
+		try {
+			emitter.send(SseEmitter.event().comment("heartbeat"));
+			return true;
+		} catch (IOException | IllegalStateException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * JobEventStream --- Sends the status events of a single job to a single SseEmitter
+	 * 					  until either finishes, and leaves the job for its waiter if the client goes away first.
+	 */
+	private class JobEventStream
+	{
+		private final Fractal2DJob job;
+		private final String waiter;			//token of the client's waiter of the job, or null
+		private final SseEmitter emitter;
+		private final Consumer<Fractal2DJob> listener;
+		private ScheduledFuture<?> progressUpdates;
+		private Fractal2DJob.Status lastStatus; //last status sent
+		private int lastProgress;				//last progress sent
+		private int lastPreviewDepth;			//last preview depth sent
+		private long lastSent;					//System.nanoTime the last event (or heartbeat) was sent
+		private boolean closed;
+		
+		private JobEventStream(Fractal2DJob job, String waiter, SseEmitter emitter)
+		{
+			this.job = job;
+			this.waiter = waiter;
+			this.emitter = emitter;
+			this.listener = (Fractal2DJob changed) -> changed();
+			this.lastStatus = null;
+			this.lastProgress = -1;
+			this.lastPreviewDepth = 0;
+			this.lastSent = System.nanoTime();
+			this.closed = false;
+		}
+		
+		private void start()
+		{
+			emitter.onCompletion(this::close);
+			emitter.onTimeout(this::close); //the page falls back to polling, so it has not gone away
+			emitter.onError((Throwable t) -> clientGone());
+			job.addListener(listener);
+			progressUpdates = progressScheduler.scheduleWithFixedDelay(this::update, progressInterval,
+																	   progressInterval, TimeUnit.MILLISECONDS);
+			update(); //current status, and in case the job finished before the listener was added
+		}
+		
+		/**
+		 * Called on the runner thread changing the job, which must never wait on writing to a client:
+		 * the update is sent on progressScheduler instead.
+		 */
+		private void changed()
+		{
+			try {
+				progressScheduler.execute(this::update);
+			} catch (RejectedExecutionException e) {
+				job.removeListener(listener); //shutting down
+			}
+		}
+		
+		/**
+		 * Send the job's status if it, its progress or its preview changed since the last event sent,
+		 * completing the stream once the job has finished.
+		 */
+		private synchronized void update()
+		{
+			if(closed) {
+				return;
+			}
+			Fractal2DJob.Status status = job.getStatus();
+			int progress = job.getProgress();
+			int previewDepth = job.getPreviewDepth();
+			if(status != lastStatus || progress != lastProgress || previewDepth != lastPreviewDepth) {
+				lastStatus = status;
+				lastProgress = progress;
+				lastPreviewDepth = previewDepth;
+				int depthReached = job.getFractal2D().getDepthReached();
+				if(!send(emitter, statusEvent(status, progress, previewDepth, depthReached, job.getMessage()))) {
+					clientGone();
+					return;
+				}
+				lastSent = System.nanoTime();
+			} else if(System.nanoTime() - lastSent > TimeUnit.MILLISECONDS.toNanos(heartbeatInterval)) {
+				if(!sendHeartbeat(emitter)) {
+					clientGone();
+					return;
+				}
+				lastSent = System.nanoTime();
+			}
+			if(status.isFinished()) {
+				close();
+				emitter.complete();
+			}
+		}
+		
+		/**
+		 * Close the stream, and leave the job for the client's waiter unless the job has finished.
+		 */
+		private void clientGone()
+		{
+			close();
+			if(waiter != null && !job.getStatus().isFinished()) {
+				fractal2DRunner.cancel(job.getId(), waiter);
+			}
+		}
+		
+		private synchronized void close()
+		{
+			closed = true;
+			job.removeListener(listener);
+			if(progressUpdates != null) {
+				progressUpdates.cancel(false);
+			}
+		}
+	}
+}
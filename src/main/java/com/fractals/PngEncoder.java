@@ -0,0 +1,475 @@
+package com.fractals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.SampleModel;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * PngEncoder --- Encodes an RGB or palette (1-bit or 8-bit indexed) image as a PNG row by row, writing to an output stream as it goes,
+ * 				  so that the whole image never needs to be in memory at once.
+ * 				  Usage: writeRows for every block of rows from top to bottom, then finish.
+ * 				  Given an Executor, blocks of rows are compressed in parallel (like pigz) into independent
+ * 				  deflate segments that together form the single zlib stream any PNG reader expects.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class PngEncoder 
+{
+	private static final byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	private static final int maxChunkLength = 1 << 16; //maximum length of each IDAT chunk written
+	private static final int blockLength = 1 << 17;	   //approximate uncompressed length of each block compressed in parallel
+	private static final int dictionaryLength = 1 << 15; //deflate window: data before a block that it may refer back to
+	
+	private final DataOutputStream output;
+	private final int width;
+	private final int height;
+	private final IndexColorModel palette;	 //palette of indexed images, or null for RGB
+	private final int bitDepth;				 //bits per sample (RGB) or per palette index
+	private final int rowLength;			 //filter type byte + image bytes of each row
+	private final int compressionLevel;
+	private final Executor executor;		 //compresses blocks in parallel, or null to compress serially
+	private final ChunkOutputStream idatChunks; //writes compressed image data as IDAT chunks
+	private final Deflater deflater;		 //(serial only)
+	private final DeflaterOutputStream idat; //compresses image data into IDAT chunks (serial only)
+	private final byte[] row;				 //filter type byte + image bytes of the row being encoded (serial only)
+	private byte[] dictionary;				 //last uncompressed bytes written, for the next block (parallel only)
+	private long adler;						 //Adler-32 of all uncompressed bytes written (parallel only)
+	private int rowsWritten;
+	
+	/**
+	 * Creates a PngEncoder and writes the PNG header (signature and IHDR chunk) to output.
+	 * @param output Stream to write the PNG to. Is not closed.
+	 * @param width Width of the image.
+	 * @param height Height of the image.
+	 * @param compressionLevel Deflate compression level, from 0 (none) or 1 (fastest) to 9 (smallest),
+	 * 						   or -1 (Deflater.DEFAULT_COMPRESSION).
+	 * @throws IOException If writing to output failed.
+	 */
+	public PngEncoder(OutputStream output, int width, int height, int compressionLevel) throws IOException
+	{
+		this(output, width, height, compressionLevel, null);
+	}
+	
+	/**
+	 * Creates a PngEncoder and writes the PNG header (signature and IHDR chunk) to output.
+	 * @param output Stream to write the PNG to. Is not closed.
+	 * @param width Width of the image.
+	 * @param height Height of the image.
+	 * @param compressionLevel Deflate compression level, from 0 (none) or 1 (fastest) to 9 (smallest),
+	 * 						   or -1 (Deflater.DEFAULT_COMPRESSION).
+	 * @param executor If not null, compress blocks of rows in parallel on executor.
+	 * @throws IOException If writing to output failed.
+	 */
+	public PngEncoder(OutputStream output, int width, int height, int compressionLevel, Executor executor) throws IOException
+	{
+		this(output, width, height, null, compressionLevel, executor);
+	}
+	
+	/**
+	 * Creates a PngEncoder and writes the PNG header (signature, IHDR and any PLTE chunk) to output.
+	 * @param output Stream to write the PNG to. Is not closed.
+	 * @param width Width of the image.
+	 * @param height Height of the image.
+	 * @param palette Palette of a TYPE_BYTE_BINARY (1 bit per pixel) or TYPE_BYTE_INDEXED image,
+	 * 				  or null for a TYPE_INT_RGB image.
+	 * @param compressionLevel Deflate compression level, from 0 (none) or 1 (fastest) to 9 (smallest),
+	 * 						   or -1 (Deflater.DEFAULT_COMPRESSION).
+	 * @param executor If not null, compress blocks of rows in parallel on executor.
+	 * @throws IOException If writing to output failed.
+	 */
+	public PngEncoder(OutputStream output, int width, int height, IndexColorModel palette, 
+					  int compressionLevel, Executor executor) throws IOException
+	{
+		this.output = new DataOutputStream(output);
+		this.width = width;
+		this.height = height;
+		this.palette = palette;
+		if(palette != null && palette.getPixelSize() != 1 && palette.getPixelSize() != 8) {
+			throw new IllegalArgumentException("PngEncoder: palette must have 1 or 8 bits per pixel.");
+		}
+		this.bitDepth = palette != null ? palette.getPixelSize() : 8;
+		this.rowLength = 1 + (palette != null ? (width * bitDepth + 7) / 8 : 3 * width);
+		this.compressionLevel = compressionLevel;
+		this.executor = executor;
+		this.idatChunks = new ChunkOutputStream("IDAT", maxChunkLength);
+		if(executor == null) {
+			this.deflater = new Deflater(compressionLevel);
+			this.idat = new DeflaterOutputStream(idatChunks, deflater, maxChunkLength);
+			this.row = new byte[rowLength];
+		} else {
+			this.deflater = null;
+			this.idat = null;
+			this.row = null;
+		}
+		this.dictionary = null;
+		this.adler = 1; //Adler-32 of no bytes
+		this.rowsWritten = 0;
+		
+		this.output.write(signature);
+		ChunkOutputStream ihdr = new ChunkOutputStream("IHDR", 13);
+		DataOutputStream header = new DataOutputStream(ihdr);
+		header.writeInt(width);
+		header.writeInt(height);
+		header.writeByte(bitDepth);
+		header.writeByte(palette != null ? 3 : 2); //color type: palette or RGB
+		header.writeByte(0); //compression method: deflate
+		header.writeByte(0); //filter method: adaptive (per-row filter type)
+		header.writeByte(0); //interlace method: none
+		ihdr.close();
+		if(palette != null) {
+			ChunkOutputStream plte = new ChunkOutputStream("PLTE", 3 * palette.getMapSize());
+			for(int i = 0; i < palette.getMapSize(); i++) {
+				plte.write(palette.getRed(i));
+				plte.write(palette.getGreen(i));
+				plte.write(palette.getBlue(i));
+			}
+			plte.close();
+		}
+		if(executor != null) {
+			idatChunks.write(0x78); //zlib header: deflate with a 32K window...
+			idatChunks.write(getZlibFlags(compressionLevel)); //...and the compression level, without a preset dictionary
+		}
+	}
+	
+	/**
+	 * Rows --- Image rows to encode, each written as PNG image data (without filtering).
+	 */
+	private interface Rows
+	{
+		/**
+		 * Write row y into filtered at offset as a filter type byte followed by its image bytes.
+		 */
+		public void filterRow(int y, byte[] filtered, int offset);
+	}
+	
+	/**
+	 * Encode every row of rows as the next rows of the image.
+	 * @param rows Image as wide as the PNG: TYPE_INT_RGB, or with the palette's number of bits per pixel.
+	 * @throws IOException If writing to output failed.
+	 */
+	public void writeRows(BufferedImage rows) throws IOException
+	{
+		if(rows.getWidth() != width) {
+			throw new IllegalArgumentException("PngEncoder.writeRows: rows must be " + width + "px wide.");
+		}
+		if(rowsWritten + rows.getHeight() > height) {
+			throw new IllegalStateException("PngEncoder.writeRows: more than " + height + " rows written.");
+		}
+		Rows source = getRows(rows);
+		if(executor != null) {
+			writeRowsParallel(source, rows.getHeight());
+			return;
+		}
+		for(int y = 0; y < rows.getHeight(); y++) {
+			source.filterRow(y, row, 0);
+			idat.write(row);
+		}
+		rowsWritten += rows.getHeight();
+	}
+	
+	/**
+	 * @return the rows of image: RGB bytes of each pixel, or its packed palette indices as they are.
+	 */
+	private Rows getRows(BufferedImage image)
+	{
+		if(palette == null) {
+			if(image.getType() != BufferedImage.TYPE_INT_RGB) {
+				throw new IllegalArgumentException("PngEncoder.writeRows: rows must be TYPE_INT_RGB.");
+			}
+			int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			return (int y, byte[] filtered, int offset) -> {
+				filtered[offset] = 0; //filter type: none
+				int i = offset + 1;
+				for(int x = y * width; x < (y + 1) * width; x++) {
+					int rgb = data[x];
+					filtered[i++] = (byte) (rgb >> 16);
+					filtered[i++] = (byte) (rgb >> 8);
+					filtered[i++] = (byte) rgb;
+				}
+			};
+		}
+		if(!(image.getColorModel() instanceof IndexColorModel) || image.getColorModel().getPixelSize() != bitDepth) {
+			throw new IllegalArgumentException("PngEncoder.writeRows: rows must be indexed with " + bitDepth + " bits per pixel.");
+		}
+		//Rows of both are packed like PNG rows: 1 byte per pixel, or 8 pixels per byte with the leftmost in the high bit
+		byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		SampleModel sampleModel = image.getSampleModel();
+		int scanlineStride = sampleModel instanceof MultiPixelPackedSampleModel
+							 ? ((MultiPixelPackedSampleModel) sampleModel).getScanlineStride()
+							 : ((ComponentSampleModel) sampleModel).getScanlineStride();
+		return (int y, byte[] filtered, int offset) -> {
+			filtered[offset] = 0; //filter type: none
+			System.arraycopy(data, y * scanlineStride, filtered, offset + 1, rowLength - 1);
+		};
+	}
+	
+	/**
+	 * Compress blocks of rows in parallel, each into a deflate segment that ends on a byte boundary
+	 * (and is final only for the last rows of the image), and write them in order as they finish.
+	 * Each block is primed with the data before it, so compression is nearly as good as serial.
+	 * @param data Rows to write.
+	 * @param rowCount Number of rows in data.
+	 */
+	private void writeRowsParallel(Rows data, int rowCount) throws IOException
+	{
+		final int blockRows = Math.max(1, blockLength / rowLength);
+		final byte[] firstDictionary = dictionary;
+		List<CompletableFuture<CompressedBlock>> blocks = new ArrayList<>();
+		for(int firstRow = 0; firstRow < rowCount; firstRow += blockRows) {
+			final int start = firstRow;
+			final int end = Math.min(firstRow + blockRows, rowCount);
+			final boolean last = rowsWritten + end == height;
+			blocks.add(CompletableFuture.supplyAsync(() -> {
+				byte[] blockDictionary = start == 0 ? firstDictionary : getDictionary(data, start);
+				return compressBlock(filterRows(data, start, end), blockDictionary, last);
+			}, executor));
+		}
+		try {
+			for(CompletableFuture<CompressedBlock> block : blocks) {
+				CompressedBlock compressed = block.join();
+				idatChunks.write(compressed.data);
+				adler = combineAdler32(adler, compressed.adler, compressed.length);
+			}
+		} catch (CompletionException e) {
+			throw new IOException("PngEncoder.writeRows: parallel compression failed.", e.getCause());
+		}
+		dictionary = getDictionary(data, rowCount);
+		rowsWritten += rowCount;
+	}
+	
+	/**
+	 * @return filtered bytes of rows start (inclusive) to end (exclusive) of data.
+	 */
+	private byte[] filterRows(Rows data, int start, int end)
+	{
+		byte[] filtered = new byte[(end - start) * rowLength];
+		for(int y = start; y < end; y++) {
+			data.filterRow(y, filtered, (y - start) * rowLength);
+		}
+		return filtered;
+	}
+	
+	/**
+	 * @return up to the last dictionaryLength filtered bytes of data before row end.
+	 */
+	private byte[] getDictionary(Rows data, int end)
+	{
+		int start = Math.max(0, end - (dictionaryLength + rowLength - 1) / rowLength);
+		byte[] filtered = filterRows(data, start, end);
+		if(filtered.length <= dictionaryLength) {
+			return filtered;
+		}
+		byte[] tail = new byte[dictionaryLength];
+		System.arraycopy(filtered, filtered.length - dictionaryLength, tail, 0, dictionaryLength);
+		return tail;
+	}
+	
+	/**
+	 * Compress a block of filtered rows into a raw deflate segment.
+	 * @param uncompressed Filtered rows.
+	 * @param blockDictionary Data just before the block that it may refer back to, or null if none.
+	 * @param last If true, end the deflate stream; otherwise end on a byte boundary (sync flush).
+	 */
+	private CompressedBlock compressBlock(byte[] uncompressed, byte[] blockDictionary, boolean last)
+	{
+		Deflater blockDeflater = new Deflater(compressionLevel, true); //no zlib header/trailer
+		try {
+			if(blockDictionary != null) {
+				blockDeflater.setDictionary(blockDictionary);
+			}
+			blockDeflater.setInput(uncompressed);
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(uncompressed.length / 4 + 64);
+			byte[] buffer = new byte[maxChunkLength];
+			if(last) {
+				blockDeflater.finish();
+				while(!blockDeflater.finished()) {
+					compressed.write(buffer, 0, blockDeflater.deflate(buffer));
+				}
+			} else {
+				int length;
+				do {
+					length = blockDeflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					compressed.write(buffer, 0, length);
+				} while(length == buffer.length);
+			}
+			Adler32 blockAdler = new Adler32();
+			blockAdler.update(uncompressed, 0, uncompressed.length);
+			return new CompressedBlock(compressed.toByteArray(), blockAdler.getValue(), uncompressed.length);
+		} finally {
+			blockDeflater.end();
+		}
+	}
+	
+	/**
+	 * Combine the Adler-32 checksums of two consecutive sequences of bytes (as zlib's adler32_combine).
+	 * @param adler1 Adler-32 of the first sequence.
+	 * @param adler2 Adler-32 of the second sequence.
+	 * @param length2 Length of the second sequence.
+	 * @return Adler-32 of both sequences.
+	 */
+	protected static long combineAdler32(long adler1, long adler2, long length2)
+	{
+		final long base = 65521; //largest prime smaller than 65536
+		long remainder = length2 % base;
+		long sum1 = adler1 & 0xffff;
+		long sum2 = (remainder * sum1) % base;
+		sum1 += (adler2 & 0xffff) + base - 1;
+		sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + base - remainder;
+		return (sum1 % base) | ((sum2 % base) << 16);
+	}
+	
+	/**
+	 * @return FLG byte of a zlib header for compressionLevel: its FLEVEL, and a check value that
+	 * 		   makes the header (0x78, FLG) a multiple of 31.
+	 */
+	private static int getZlibFlags(int compressionLevel)
+	{
+		int level; //FLEVEL: 0 (fastest), 1 (fast), 2 (default), 3 (maximum)
+		if(compressionLevel == Deflater.DEFAULT_COMPRESSION || compressionLevel == 6) {
+			level = 2;
+		} else if(compressionLevel <= 1) {
+			level = 0;
+		} else if(compressionLevel <= 5) {
+			level = 1;
+		} else {
+			level = 3;
+		}
+		int flags = level << 6;
+		return flags + 31 - ((0x78 << 8) + flags) % 31;
+	}
+	
+	/**
+	 * Finish compressing the image data and write the end of the PNG (IEND chunk).
+	 * @throws IOException If writing to output failed.
+	 */
+	public void finish() throws IOException
+	{
+		if(rowsWritten != height) {
+			throw new IllegalStateException("PngEncoder.finish: only " + rowsWritten + " of " + height + " rows written.");
+		}
+		if(executor != null) {
+			DataOutputStream trailer = new DataOutputStream(idatChunks);
+			trailer.writeInt((int) adler); //zlib trailer: Adler-32 of the uncompressed data
+			idatChunks.flush(); //writes the last IDAT chunk
+		} else {
+			try {
+				idat.finish();
+				idat.flush(); //writes the last IDAT chunk
+			} finally {
+				deflater.end();
+			}
+		}
+		new ChunkOutputStream("IEND", 0).close();
+		output.flush();
+	}
+	
+	/**
+	 * CompressedBlock --- Deflate segment of a block of rows, with the Adler-32 and length of its uncompressed data.
+	 */
+	private static class CompressedBlock
+	{
+		private final byte[] data;
+		private final long adler;
+		private final int length;
+		
+		private CompressedBlock(byte[] data, long adler, int length)
+		{
+			this.data = data;
+			this.adler = adler;
+			this.length = length;
+		}
+	}
+	
+	/**
+	 * ChunkOutputStream --- Buffers data written to it and writes it to output as PNG chunks
+	 * 						 of a single type (length, type, data, CRC) whenever flushed or closed.
+	 */
+	private class ChunkOutputStream extends OutputStream
+	{
+		private final byte[] type;
+		private final byte[] data;
+		private int length;
+		private boolean written; //true once at least one chunk was written
+		
+		/**
+		 * @param type 4-letter PNG chunk type.
+		 * @param capacity Maximum length of each chunk written.
+		 */
+		private ChunkOutputStream(String type, int capacity)
+		{
+			this.type = type.getBytes(StandardCharsets.US_ASCII);
+			this.data = new byte[capacity];
+			this.length = 0;
+			this.written = false;
+		}
+		
+		@Override
+		public void write(int b) throws IOException
+		{
+			if(length == data.length) {
+				flush();
+			}
+			data[length++] = (byte) b;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			while(len > 0) {
+				if(length == data.length) {
+					flush();
+				}
+				int copied = Math.min(len, data.length - length);
+				System.arraycopy(b, off, data, length, copied);
+				length += copied;
+				off += copied;
+				len -= copied;
+			}
+		}
+		
+		/**
+		 * Write everything buffered as a chunk (an empty chunk only if nothing was written yet).
+		 */
+		@Override
+		public void flush() throws IOException
+		{
+			if(length == 0 && written) {
+				return;
+			}
+			CRC32 crc = new CRC32();
+			crc.update(type);
+			crc.update(data, 0, length);
+			output.writeInt(length);
+			output.write(type);
+			output.write(data, 0, length);
+			output.writeInt((int) crc.getValue());
+			length = 0;
+			written = true;
+		}
+		
+		@Override
+		public void close() throws IOException
+		{
+			flush();
+		}
+	}
+}
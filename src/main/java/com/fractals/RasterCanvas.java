@@ -0,0 +1,277 @@
+package com.fractals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.MultiPixelPackedSampleModel;
+
+/**
+ * RasterCanvas --- Fractal2DCanvas that rasterizes directly into the data buffer of a TYPE_INT_RGB,
+ * 					TYPE_BYTE_INDEXED or 1-bit TYPE_BYTE_BINARY BufferedImage without allocating anything per node drawn.
+ * 					Lines are clipped to the canvas and drawn with Bresenham's algorithm,
+ * 					and ellipses are drawn with the midpoint circle/ellipse algorithms.
+ * 					The image may be a tile of a larger canvas, in which case lines are still clipped
+ * 					to the whole canvas so that every tile gets exactly the pixels of an untiled image.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class RasterCanvas implements Fractal2DCanvas 
+{
+	private final int[] data;  //pixels of a TYPE_INT_RGB image, row by row (null for indexed images)
+	private final byte[] bytes; //palette indices of an indexed image, row by row (null for TYPE_INT_RGB)
+	private final int bitsPerPixel;	  //32 (TYPE_INT_RGB), 8 (TYPE_BYTE_INDEXED) or 1 (TYPE_BYTE_BINARY, packed high bit first)
+	private final int scanlineStride; //elements of data or bytes per row of the image
+	private final int width;   //width  of the image in pixels
+	private final int height;  //height of the image in pixels
+	private final int originX; //canvas x-coordinate of the image's leftmost column
+	private final int originY; //canvas y-coordinate of the image's topmost row
+	private final int canvasWidth;  //width  of the whole canvas in pixels
+	private final int canvasHeight; //height of the whole canvas in pixels
+	private final int color;   //RGB color (or palette index of indexed images) to draw with
+	private double clipT0;	   //start of the visible part of the line being clipped, in [0, 1]
+	private double clipT1;	   //end   of the visible part of the line being clipped, in [0, 1]
+	
+	/**
+	 * Creates a RasterCanvas that draws onto image.
+	 * @param image TYPE_INT_RGB, TYPE_BYTE_INDEXED or 1-bit TYPE_BYTE_BINARY image to draw onto.
+	 * @param color RGB color to draw with.
+	 */
+	public RasterCanvas(BufferedImage image, int color)
+	{
+		this(image, color, 0, 0, image.getWidth(), image.getHeight());
+	}
+	
+	/**
+	 * Creates a RasterCanvas that draws onto image, which is a tile of a larger canvas.
+	 * Coordinates drawn at are canvas coordinates.
+	 * @param image TYPE_INT_RGB, TYPE_BYTE_INDEXED or 1-bit TYPE_BYTE_BINARY image to draw onto.
+	 * @param color RGB color to draw with (the closest color of an indexed image's palette).
+	 * @param originX Canvas x-coordinate of the image's leftmost column.
+	 * @param originY Canvas y-coordinate of the image's topmost row.
+	 * @param canvasWidth Width of the whole canvas.
+	 * @param canvasHeight Height of the whole canvas.
+	 */
+	public RasterCanvas(BufferedImage image, int color, int originX, int originY, int canvasWidth, int canvasHeight)
+	{
+		if(image.getType() == BufferedImage.TYPE_INT_RGB) {
+			this.data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			this.bytes = null;
+			this.bitsPerPixel = 32;
+			this.scanlineStride = image.getWidth();
+			this.color = color & 0xFFFFFF;
+		} else if(image.getType() == BufferedImage.TYPE_BYTE_INDEXED || 
+				  (image.getType() == BufferedImage.TYPE_BYTE_BINARY && image.getColorModel().getPixelSize() == 1))
+		{
+			this.data = null;
+			this.bytes = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+			this.bitsPerPixel = image.getColorModel().getPixelSize();
+			this.scanlineStride = bitsPerPixel == 1 
+								  ? ((MultiPixelPackedSampleModel) image.getSampleModel()).getScanlineStride()
+								  : ((ComponentSampleModel) image.getSampleModel()).getScanlineStride();
+			this.color = ((byte[]) image.getColorModel().getDataElements(color, null))[0] & 0xFF;
+		} else {
+			throw new IllegalArgumentException("RasterCanvas: image must be of TYPE_INT_RGB, TYPE_BYTE_INDEXED " + 
+											   "or TYPE_BYTE_BINARY with 1 bit per pixel.");
+		}
+		this.width = image.getWidth();
+		this.height = image.getHeight();
+		this.originX = originX;
+		this.originY = originY;
+		this.canvasWidth = canvasWidth;
+		this.canvasHeight = canvasHeight;
+	}
+	
+	@Override
+	public void drawLine(double startX, double startY, double endX, double endY)
+	{
+		//1. Clip the line to the canvas (Liang-Barsky), so that nothing off-canvas is walked
+		double dx = endX - startX;
+		double dy = endY - startY;
+		clipT0 = 0;
+		clipT1 = 1;
+		if(!clip(-dx, startX) || !clip(dx, (canvasWidth - 1) - startX) ||
+		   !clip(-dy, startY) || !clip(dy, (canvasHeight - 1) - startY) ||
+		   !(clipT0 <= clipT1))
+		{
+			return; //entirely outside of the canvas (or NaN coordinates)
+		}
+		int x0 = (int) Math.round(startX + clipT0 * dx);
+		int y0 = (int) Math.round(startY + clipT0 * dy);
+		int x1 = (int) Math.round(startX + clipT1 * dx);
+		int y1 = (int) Math.round(startY + clipT1 * dy);
+		if(x0 > x1 || (x0 == x1 && y0 > y1)) {
+			//always walk left to right, so that a line covers the same pixels in either direction
+			int swap = x0;
+			x0 = x1;
+			x1 = swap;
+			swap = y0;
+			y0 = y1;
+			y1 = swap;
+		}
+		
+		//2. Bresenham's line algorithm (all octants)
+		int stepX = x0 < x1 ? 1 : -1;
+		int stepY = y0 < y1 ? 1 : -1;
+		int errX = Math.abs(x1 - x0);
+		int errY = -Math.abs(y1 - y0);
+		int err = errX + errY;
+		while(true) {
+			plot(x0, y0);
+			if(x0 == x1 && y0 == y1) {
+				break;
+			}
+			int err2 = 2 * err;
+			if(err2 >= errY) {
+				err += errY;
+				x0 += stepX;
+			}
+			if(err2 <= errX) {
+				err += errX;
+				y0 += stepY;
+			}
+		}
+	}
+	
+	@Override
+	public void drawEllipse(double centerX, double centerY, double width, double height)
+	{
+		int cx = (int) Math.round(centerX);
+		int cy = (int) Math.round(centerY);
+		int rx = (int) Math.round(width / 2);
+		int ry = (int) Math.round(height / 2);
+		if(!(rx >= 0 && ry >= 0) || cx + rx < originX || cx - rx >= originX + this.width || 
+		   cy + ry < originY || cy - ry >= originY + this.height) 
+		{
+			return; //entirely outside of the image (or NaN size)
+		}
+		if(rx == ry) {
+			drawCircle(cx, cy, rx);
+		} else {
+			drawMidpointEllipse(cx, cy, rx, ry);
+		}
+	}
+	
+	@Override
+	public void dispose() {}
+	
+	/**
+	 * Midpoint circle algorithm: walk one octant and plot its 8 reflections.
+	 */
+	private void drawCircle(int cx, int cy, int r)
+	{
+		int x = r;
+		int y = 0;
+		int err = 1 - r;
+		while(x >= y) {
+			plot(cx + x, cy + y);
+			plot(cx - x, cy + y);
+			plot(cx + x, cy - y);
+			plot(cx - x, cy - y);
+			plot(cx + y, cy + x);
+			plot(cx - y, cy + x);
+			plot(cx + y, cy - x);
+			plot(cx - y, cy - x);
+			y++;
+			if(err < 0) {
+				err += 2 * y + 1;
+			} else {
+				x--;
+				err += 2 * (y - x) + 1;
+			}
+		}
+	}
+	
+	/**
+	 * Midpoint ellipse algorithm: walk one quadrant in two regions (slope above/below -1) 
+	 * and plot its 4 reflections.
+	 */
+	private void drawMidpointEllipse(int cx, int cy, int rx, int ry)
+	{
+		long rx2 = (long) rx * rx;
+		long ry2 = (long) ry * ry;
+		long x = 0;
+		long y = ry;
+		long px = 0;
+		long py = 2 * rx2 * y;
+		
+		//1. Region 1: |slope| < 1, step x every time
+		long decision = Math.round(ry2 - rx2 * ry + 0.25 * rx2);
+		while(px < py) {
+			plot4(cx, cy, (int) x, (int) y);
+			x++;
+			px += 2 * ry2;
+			if(decision < 0) {
+				decision += ry2 + px;
+			} else {
+				y--;
+				py -= 2 * rx2;
+				decision += ry2 + px - py;
+			}
+		}
+		
+		//2. Region 2: |slope| >= 1, step y every time
+		decision = Math.round(ry2 * (x + 0.5) * (x + 0.5) + rx2 * (y - 1) * (y - 1) - rx2 * ry2);
+		while(y >= 0) {
+			plot4(cx, cy, (int) x, (int) y);
+			y--;
+			py -= 2 * rx2;
+			if(decision > 0) {
+				decision += rx2 - py;
+			} else {
+				x++;
+				px += 2 * ry2;
+				decision += rx2 - py + px;
+			}
+		}
+	}
+	
+	/**
+	 * Clip the line being drawn against a single canvas edge (one Liang-Barsky step).
+	 * @param p Change in distance to the edge along the line (negative if moving inwards).
+	 * @param q Distance of the line's start inside the edge.
+	 * @return false if the line is entirely outside of the edge.
+	 */
+	private boolean clip(double p, double q)
+	{
+		if(p == 0) {
+			return q >= 0; //parallel to the edge: visible only if inside it
+		}
+		double t = q / p;
+		if(p < 0) {
+			clipT0 = Math.max(clipT0, t);
+		} else {
+			clipT1 = Math.min(clipT1, t);
+		}
+		return true;
+	}
+	
+	private void plot4(int cx, int cy, int x, int y)
+	{
+		plot(cx + x, cy + y);
+		plot(cx - x, cy + y);
+		plot(cx + x, cy - y);
+		plot(cx - x, cy - y);
+	}
+	
+	/**
+	 * Set the pixel at canvas coordinates (x, y), if it is inside the image.
+	 */
+	private void plot(int x, int y)
+	{
+		x -= originX;
+		y -= originY;
+		if(x >= 0 && x < width && y >= 0 && y < height) {
+			if(bitsPerPixel == 32) {
+				data[y * scanlineStride + x] = color;
+			} else if(bitsPerPixel == 8) {
+				bytes[y * scanlineStride + x] = (byte) color;
+			} else {
+				int i = y * scanlineStride + (x >> 3);
+				int bit = 0x80 >>> (x & 7);
+				bytes[i] = (byte) (color != 0 ? bytes[i] | bit : bytes[i] & ~bit);
+			}
+		}
+	}
+}
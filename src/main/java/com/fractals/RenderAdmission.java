@@ -0,0 +1,163 @@
+package com.fractals;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * RenderAdmission --- Admission control (application.properties prefix "fractals.admission"):
+ * 					   checks the estimated cost of each Fractal2D against a budget before it is queued,
+ * 					   and queues, downgrades or rejects it if over budget.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@Component
+@ConfigurationProperties(prefix = "fractals.admission")
+public class RenderAdmission 
+{
+	private double maxNodes = 1e8;				//most nodes a single Fractal2D may draw
+	private long maxRasterBytes = 256L << 20;	//most image buffer memory a single Fractal2D may hold
+	private double maxCpuMillis = 30000;		//most CPU time (ms) a single Fractal2D may take
+	private OverBudget overBudget = OverBudget.QUEUE; //what to do with a Fractal2D over budget
+	private double downgradeCullingThreshold = 0.5; //culling threshold (px) set when downgrading
+	
+	/**
+	 * OverBudget --- What to do with a Fractal2D whose estimated cost exceeds the budget.
+	 */
+	public enum OverBudget
+	{
+		QUEUE,	   //queue it anyway
+		DOWNGRADE, //enable culling, then lower its iterations until it fits (rejected if it still does not)
+		REJECT	   //reject it
+	}
+	
+	/**
+	 * Admission --- Outcome of admitting a Fractal2D.
+	 */
+	public static class Admission
+	{
+		private final RenderCost cost;			//estimated cost of the Fractal2D as admitted
+		private final int requestedIterations;	//iterations before any downgrade
+		private final boolean downgraded;		//true if culling was enabled or iterations lowered to fit the budget
+		
+		private Admission(RenderCost cost, int requestedIterations, boolean downgraded)
+		{
+			this.cost = cost;
+			this.requestedIterations = requestedIterations;
+			this.downgraded = downgraded;
+		}
+		
+		public RenderCost getCost() {
+			return cost;
+		}
+		
+		public int getRequestedIterations() {
+			return requestedIterations;
+		}
+		
+		public boolean isDowngraded() {
+			return downgraded;
+		}
+	}
+	
+	/**
+	 * Admit a non-generated Fractal2D rendered all at once (see admit(Fractal2D, int)).
+	 */
+	public Admission admit(Fractal2D fractal2D)
+	{
+		return admit(fractal2D, fractal2D.height);
+	}
+	
+	/**
+	 * Admit a non-generated Fractal2D with its render settings applied, downgrading it in place if needed.
+	 * Raster memory is not affected by downgrading, so a Fractal2D whose image alone is over budget is rejected.
+	 * @param fractal2D Fractal2D to admit.
+	 * @param tileHeight Height (px) of the tiles it is rendered in (>= its height if rendered all at once).
+	 * @return outcome, with the estimated cost of fractal2D as admitted.
+	 * @throws RenderTooExpensiveException If fractal2D is over budget and may not (or cannot) be downgraded to fit.
+	 */
+	public Admission admit(Fractal2D fractal2D, int tileHeight)
+	{
+		final int requestedIterations = fractal2D.getIterations();
+		RenderCost cost = fractal2D.estimateCost(tileHeight);
+		if(fits(cost) || overBudget == OverBudget.QUEUE) {
+			return new Admission(cost, requestedIterations, false);
+		}
+		if(overBudget == OverBudget.DOWNGRADE && cost.getRasterBytes() <= maxRasterBytes) {
+			//1. Culling only leaves out sub-pixel detail, so try it before losing any levels
+			if(!fractal2D.culling || fractal2D.cullingThreshold < downgradeCullingThreshold) {
+				fractal2D.setCulling(true, downgradeCullingThreshold);
+				cost = fractal2D.estimateCost(tileHeight);
+			}
+			//2. Lower iterations to the most that fit (cost only grows with iterations, so binary search)
+			if(!fits(cost)) {
+				int fitting = 0;
+				int tooMany = fractal2D.getIterations();
+				while(tooMany - fitting > 1) {
+					int iterations = fitting + (tooMany - fitting) / 2;
+					fractal2D.setIterations(iterations);
+					if(fits(fractal2D.estimateCost(tileHeight))) {
+						fitting = iterations;
+					} else {
+						tooMany = iterations;
+					}
+				}
+				fractal2D.setIterations(Math.max(fitting, 1));
+				cost = fractal2D.estimateCost(tileHeight);
+			}
+			if(fits(cost)) {
+				System.out.println("RenderAdmission: downgraded " + fractal2D.getClass().getSimpleName() + " from " 
+								   + requestedIterations + " to " + fractal2D.getIterations() + " iterations.");
+				return new Admission(cost, requestedIterations, true);
+			}
+		}
+		throw new RenderTooExpensiveException("Fractal2D is too expensive to render (" + cost + "; budget: " + maxNodes 
+											  + " nodes, " + maxRasterBytes + " bytes raster, " + maxCpuMillis 
+											  + " ms CPU).", cost);
+	}
+	
+	private boolean fits(RenderCost cost)
+	{
+		return cost.isWithin(maxNodes, maxRasterBytes, maxCpuMillis);
+	}
+
+	public double getMaxNodes() {
+		return maxNodes;
+	}
+
+	public void setMaxNodes(double maxNodes) {
+		this.maxNodes = maxNodes;
+	}
+
+	public long getMaxRasterBytes() {
+		return maxRasterBytes;
+	}
+
+	public void setMaxRasterBytes(long maxRasterBytes) {
+		this.maxRasterBytes = maxRasterBytes;
+	}
+
+	public double getMaxCpuMillis() {
+		return maxCpuMillis;
+	}
+
+	public void setMaxCpuMillis(double maxCpuMillis) {
+		this.maxCpuMillis = maxCpuMillis;
+	}
+
+	public OverBudget getOverBudget() {
+		return overBudget;
+	}
+
+	public void setOverBudget(OverBudget overBudget) {
+		this.overBudget = overBudget;
+	}
+
+	public double getDowngradeCullingThreshold() {
+		return downgradeCullingThreshold;
+	}
+
+	public void setDowngradeCullingThreshold(double downgradeCullingThreshold) {
+		this.downgradeCullingThreshold = downgradeCullingThreshold;
+	}
+}
@@ -0,0 +1,177 @@
+package com.fractals;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * RenderCache --- In-memory cache of encoded Fractal2D images keyed by Fractal2D.getRenderKey,
+ * 				   holding at most maxBytes of image data and evicting the least recently used
+ * 				   images first once full. Backed by a RenderStore on disk, if any: images are written
+ * 				   through to it, and images it has are read back into memory on a miss.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@Component
+public class RenderCache
+{
+	private final long maxBytes;				 //maximum total size of all cached images
+	private final LinkedHashMap<String, byte[]> images; //cached images in least to most recently used order
+	private final RenderStore store;			 //store on disk backing this cache, or null
+	private long bytes;							 //current total size of all cached images
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private final AtomicLong evictions;
+	private final AtomicLong storeHits;			 //misses in memory that were found in the store
+
+	/**
+	 * Creates an empty RenderCache without a store.
+	 * @param maxBytes Maximum total size of all cached images (0 disables caching).
+	 */
+	public RenderCache(long maxBytes)
+	{
+		this(maxBytes, null);
+	}
+
+	/**
+	 * Creates an empty RenderCache.
+	 * @param maxBytes Maximum total size of all cached images in memory (0 disables caching in memory).
+	 * @param store Store on disk backing this cache, or null.
+	 */
+	@Autowired
+	public RenderCache(@Value("${fractals.cache.max-bytes:67108864}") long maxBytes, RenderStore store)
+	{
+		this.maxBytes = maxBytes;
+		this.store = store;
+		this.images = new LinkedHashMap<String, byte[]>(16, 0.75f, true); //access order
+		this.bytes = 0;
+		this.hits = new AtomicLong(0);
+		this.misses = new AtomicLong(0);
+		this.evictions = new AtomicLong(0);
+		this.storeHits = new AtomicLong(0);
+	}
+
+	/**
+	 * Get a cached image for a render request, counting it as a hit or miss and marking it as
+	 * most recently used. Images only in the store are read into memory.
+	 * @param renderKey Fractal2D.getRenderKey of the image.
+	 * @return encoded image, or null if neither cached nor stored.
+	 */
+	public byte[] get(String renderKey)
+	{
+		byte[] image = lookup(renderKey, true);
+		if(image != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return image;
+	}
+	
+	/**
+	 * Get a cached image like get, but without counting the lookup, e.g. to serve an image
+	 * already rendered (or being rendered) rather than to decide whether to render it.
+	 * @param renderKey Fractal2D.getRenderKey of the image.
+	 * @return encoded image, or null if neither cached nor stored.
+	 */
+	public byte[] peek(String renderKey)
+	{
+		return lookup(renderKey, false);
+	}
+	
+	private byte[] lookup(String renderKey, boolean counted)
+	{
+		byte[] image;
+		synchronized(this) {
+			image = images.get(renderKey);
+		}
+		if(image == null && store != null) {
+			image = store.get(renderKey);
+			if(image != null) {
+				if(counted) {
+					storeHits.incrementAndGet();
+				}
+				putInMemory(renderKey, image);
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Cache an image as most recently used, evicting least recently used images until
+	 * everything cached fits within maxBytes, and write it to the store. Images larger than
+	 * maxBytes are only written to the store.
+	 * @param renderKey Fractal2D.getRenderKey of the image.
+	 * @param image Encoded image. Must not be modified afterwards.
+	 */
+	public void put(String renderKey, byte[] image)
+	{
+		putInMemory(renderKey, image);
+		if(store != null) {
+			store.put(renderKey, image);
+		}
+	}
+
+	private void putInMemory(String renderKey, byte[] image)
+	{
+		if(image.length > maxBytes) {
+			return;
+		}
+		synchronized(this) {
+			byte[] replaced = images.put(renderKey, image);
+			bytes += image.length - (replaced != null ? replaced.length : 0);
+			Iterator<Map.Entry<String, byte[]>> leastRecentlyUsed = images.entrySet().iterator();
+			while(bytes > maxBytes) {
+				bytes -= leastRecentlyUsed.next().getValue().length;
+				leastRecentlyUsed.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	public synchronized int getSize() {
+		return images.size();
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return size of the largest image that put keeps, in memory or in the store.
+	 */
+	public long getMaxImageBytes()
+	{
+		return Math.max(maxBytes, store != null ? store.getMaxBytes() : 0);
+	}
+
+	public long getStoreHits() {
+		return storeHits.get();
+	}
+
+	public RenderStore getStore() {
+		return store;
+	}
+}
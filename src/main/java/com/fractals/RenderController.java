@@ -0,0 +1,845 @@
+package com.fractals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleFunction;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * RenderController ---
+ * 			Maps user-inputted URI to fractal generation via Spring, streaming the generated image
+ * 			straight to the response (chunked) instead of writing it to disk.
+ * 			Very large images can be rendered in tiles to bound memory use, or as SVG (vector) images
+ * 			streamed as they are drawn. Batches of fractals are rendered together and streamed as a ZIP,
+ * 			and parameter sweeps as animated GIFs. Print-size images can be distributed in tiles over
+ * 			worker instances of this app (see TileCoordinator). Images generated for the fractal pages
+ * 			are served from the RenderStore.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@Controller
+public class RenderController
+{
+	private static final long responseStartTimeout = 10; //seconds a started streamed render waits for its response stream
+	private static final MediaType imageSvg = MediaType.valueOf("image/svg+xml");
+	private static final MediaType applicationZip = MediaType.valueOf("application/zip");
+	private static final MediaType imageGif = MediaType.IMAGE_GIF;
+	private static final long queueRetryInterval = 100; //ms a batch waits before retrying a job rejected by a full queue
+
+	/**
+	 * StreamWriter --- Renders a Fractal2D straight to a response stream.
+	 */
+	private interface StreamWriter
+	{
+		public void write(OutputStream output) throws Exception;
+	}
+
+	@Autowired
+	private Fractal2DRunner fractal2DRunner;
+	@Autowired
+	private RenderSettings renderSettings;
+	@Autowired
+	private RenderCache renderCache;
+	@Autowired
+	private RenderAdmission renderAdmission;
+	@Autowired
+	private RenderMetrics renderMetrics;
+	@Autowired
+	private TileCoordinator tileCoordinator;
+	@Value("${fractals.batch.max-size:100}")
+	private int maxBatchSize; //most Fractal2DSpecs in a single batch request
+	@Value("${fractals.animation.max-frames:360}")
+	private int maxAnimationFrames; //most frames in a single animation
+
+	/**
+	 * Generate a FractalTree and stream it as a PNG image.
+	 * Takes the same parameters as GenerateFractalController.generateFractalTree.
+	 * @param tileHeight If > 0, render in tiles of this height (px) instead of all at once.
+	 * @return future that completes with the streamed PNG once generated.
+	 */
+	@GetMapping("/render/fractal-tree.png")
+	public @ResponseBody CompletableFuture<ResponseEntity<StreamingResponseBody>> renderFractalTree(
+			@RequestParam(name="w", required=false, defaultValue="500") int width,
+			@RequestParam(name="h", required=false, defaultValue="500") int height,
+			@RequestParam(name="i", required=false, defaultValue="10") int iterations,
+			@RequestParam(name="angle", required=false, defaultValue="60") double angle,
+			@RequestParam(name="factor", required=false, defaultValue="0.77") double factor,
+			@RequestParam(name="padding_w", required=false, defaultValue="40") int padding_w,
+			@RequestParam(name="padding_h", required=false, defaultValue="40") int padding_h,
+			@RequestParam(name="tile", required=false, defaultValue="0") int tileHeight)
+	{
+		double angle_rad = Math.toRadians(angle);
+		FractalTree fractalTree = new FractalTree(width, height, iterations, angle_rad,
+												  factor, padding_w, padding_h);
+		return renderPng(fractalTree, tileHeight);
+	}
+
+	/**
+	 * Generate a FractalCircle and stream it as a PNG image.
+	 * Takes the same parameters as GenerateFractalController.generateFractalCircle.
+	 * @param tileHeight If > 0, render in tiles of this height (px) instead of all at once.
+	 * @return future that completes with the streamed PNG once generated.
+	 */
+	@GetMapping("/render/fractal-circle.png")
+	public @ResponseBody CompletableFuture<ResponseEntity<StreamingResponseBody>> renderFractalCircle(
+			@RequestParam(name="w", required=false, defaultValue="700") int width,
+			@RequestParam(name="h", required=false, defaultValue="500") int height,
+			@RequestParam(name="i", required=false, defaultValue="4") int iterations,
+			@RequestParam(name="satellites", required=false, defaultValue="4") int satellites,
+			@RequestParam(name="factor", required=false, defaultValue="0.5") double factor,
+			@RequestParam(name="padding_w", required=false, defaultValue="40") int padding_w,
+			@RequestParam(name="padding_h", required=false, defaultValue="40") int padding_h,
+			@RequestParam(name="tile", required=false, defaultValue="0") int tileHeight)
+	{
+		FractalCircle fractalCircle = new FractalCircle(width, height, iterations, satellites,
+												  	    factor, padding_w, padding_h);
+		return renderPng(fractalCircle, tileHeight);
+	}
+
+	/**
+	 * Generate a FractalTree as an SVG image, streaming its line segments as they are drawn.
+	 * Takes the same parameters as renderFractalTree.
+	 * @param precision Number of decimal places (0-6) to round coordinates to.
+	 * @param batch Maximum number of line segments per <path> of each level (<= 1 for <line> elements).
+	 * @return response that streams the SVG as it is generated.
+	 */
+	@GetMapping("/render/fractal-tree.svg")
+	public @ResponseBody ResponseEntity<StreamingResponseBody> renderFractalTreeSvg(
+			@RequestParam(name="w", required=false, defaultValue="500") int width,
+			@RequestParam(name="h", required=false, defaultValue="500") int height,
+			@RequestParam(name="i", required=false, defaultValue="10") int iterations,
+			@RequestParam(name="angle", required=false, defaultValue="60") double angle,
+			@RequestParam(name="factor", required=false, defaultValue="0.77") double factor,
+			@RequestParam(name="padding_w", required=false, defaultValue="40") int padding_w,
+			@RequestParam(name="padding_h", required=false, defaultValue="40") int padding_h,
+			@RequestParam(name="precision", required=false, defaultValue="1") int precision,
+			@RequestParam(name="batch", required=false, defaultValue="1000") int batch)
+	{
+		double angle_rad = Math.toRadians(angle);
+		FractalTree fractalTree = new FractalTree(width, height, iterations, angle_rad,
+												  factor, padding_w, padding_h);
+		return renderSvg(fractalTree, precision, batch);
+	}
+
+	/**
+	 * Generate a FractalCircle as an SVG image, streaming its circles as they are drawn.
+	 * Takes the same parameters as renderFractalCircle.
+	 * @param precision Number of decimal places (0-6) to round coordinates to.
+	 * @return response that streams the SVG as it is generated.
+	 */
+	@GetMapping("/render/fractal-circle.svg")
+	public @ResponseBody ResponseEntity<StreamingResponseBody> renderFractalCircleSvg(
+			@RequestParam(name="w", required=false, defaultValue="700") int width,
+			@RequestParam(name="h", required=false, defaultValue="500") int height,
+			@RequestParam(name="i", required=false, defaultValue="4") int iterations,
+			@RequestParam(name="satellites", required=false, defaultValue="4") int satellites,
+			@RequestParam(name="factor", required=false, defaultValue="0.5") double factor,
+			@RequestParam(name="padding_w", required=false, defaultValue="40") int padding_w,
+			@RequestParam(name="padding_h", required=false, defaultValue="40") int padding_h,
+			@RequestParam(name="precision", required=false, defaultValue="1") int precision)
+	{
+		FractalCircle fractalCircle = new FractalCircle(width, height, iterations, satellites,
+												  	    factor, padding_w, padding_h);
+		return renderSvg(fractalCircle, precision, 0);
+	}
+
+	/**
+	 * Generate a FractalTree for each step of a parameter sweep, and stream the frames as an animated GIF.
+	 * Takes the same parameters as renderFractalTree, of which sweep replaces angle or factor.
+	 * @param sweep Parameter to sweep: "angle" (degrees) or "factor".
+	 * @param from Value of sweep in the first frame.
+	 * @param to Value of sweep in the last frame.
+	 * @param frames Number of frames.
+	 * @param delay Time (ms) each frame is shown for.
+	 * @param loop If true, the animation repeats forever.
+	 * @return response that streams the frames, in order, as they are generated.
+	 */
+	@GetMapping("/render/fractal-tree.gif")
+	public @ResponseBody ResponseEntity<StreamingResponseBody> renderFractalTreeAnimation(
+			@RequestParam(name="w", required=false, defaultValue="500") int width,
+			@RequestParam(name="h", required=false, defaultValue="500") int height,
+			@RequestParam(name="i", required=false, defaultValue="10") int iterations,
+			@RequestParam(name="angle", required=false, defaultValue="60") double angle,
+			@RequestParam(name="factor", required=false, defaultValue="0.77") double factor,
+			@RequestParam(name="padding_w", required=false, defaultValue="40") int padding_w,
+			@RequestParam(name="padding_h", required=false, defaultValue="40") int padding_h,
+			@RequestParam(name="sweep", required=false, defaultValue="angle") String sweep,
+			@RequestParam(name="from", required=false, defaultValue="0") double from,
+			@RequestParam(name="to", required=false, defaultValue="180") double to,
+			@RequestParam(name="frames", required=false, defaultValue="36") int frames,
+			@RequestParam(name="delay", required=false, defaultValue="100") int delay,
+			@RequestParam(name="loop", required=false, defaultValue="true") boolean loop)
+	{
+		DoubleFunction<Fractal2D> frame;
+		if("angle".equals(sweep)) {
+			frame = (double value) -> new FractalTree(width, height, iterations, Math.toRadians(value),
+													  factor, padding_w, padding_h);
+		} else if("factor".equals(sweep)) {
+			frame = (double value) -> new FractalTree(width, height, iterations, Math.toRadians(angle),
+													  value, padding_w, padding_h);
+		} else {
+			throw new InvalidFractalSpecException("Unknown FractalTree sweep '" + sweep + "' (expected 'angle' or 'factor').");
+		}
+		return renderAnimation(frame, from, to, frames, delay, loop);
+	}
+
+	/**
+	 * Generate a FractalCircle for each step of a parameter sweep, and stream the frames as an animated GIF.
+	 * Takes the same parameters as renderFractalCircle, of which sweep replaces factor or satellites.
+	 * @param sweep Parameter to sweep: "factor" or "satellites" (rounded to the nearest whole number).
+	 * @param from Value of sweep in the first frame.
+	 * @param to Value of sweep in the last frame.
+	 * @param frames Number of frames.
+	 * @param delay Time (ms) each frame is shown for.
+	 * @param loop If true, the animation repeats forever.
+	 * @return response that streams the frames, in order, as they are generated.
+	 */
+	@GetMapping("/render/fractal-circle.gif")
+	public @ResponseBody ResponseEntity<StreamingResponseBody> renderFractalCircleAnimation(
+			@RequestParam(name="w", required=false, defaultValue="700") int width,
+			@RequestParam(name="h", required=false, defaultValue="500") int height,
+			@RequestParam(name="i", required=false, defaultValue="4") int iterations,
+			@RequestParam(name="satellites", required=false, defaultValue="4") int satellites,
+			@RequestParam(name="factor", required=false, defaultValue="0.5") double factor,
+			@RequestParam(name="padding_w", required=false, defaultValue="40") int padding_w,
+			@RequestParam(name="padding_h", required=false, defaultValue="40") int padding_h,
+			@RequestParam(name="sweep", required=false, defaultValue="factor") String sweep,
+			@RequestParam(name="from", required=false, defaultValue="0.3") double from,
+			@RequestParam(name="to", required=false, defaultValue="0.6") double to,
+			@RequestParam(name="frames", required=false, defaultValue="36") int frames,
+			@RequestParam(name="delay", required=false, defaultValue="100") int delay,
+			@RequestParam(name="loop", required=false, defaultValue="true") boolean loop)
+	{
+		DoubleFunction<Fractal2D> frame;
+		if("factor".equals(sweep)) {
+			frame = (double value) -> new FractalCircle(width, height, iterations, satellites,
+														value, padding_w, padding_h);
+		} else if("satellites".equals(sweep)) {
+			frame = (double value) -> new FractalCircle(width, height, iterations, (int) Math.round(value),
+														factor, padding_w, padding_h);
+		} else {
+			throw new InvalidFractalSpecException("Unknown FractalCircle sweep '" + sweep 
+												  + "' (expected 'factor' or 'satellites').");
+		}
+		return renderAnimation(frame, from, to, frames, delay, loop);
+	}
+
+	/**
+	 * Stream the frames of a parameter sweep as an animated GIF (see GifEncoder), each frame being generated
+	 * on fractal2DRunner. As many frames are generated at once as the runner has threads, and each is encoded
+	 * and written as soon as every frame before it has been. The images of written frames are reused by
+	 * later frames, so memory use is bounded by the number of frames generating at once. Not cached.
+	 * @param frame Creates the Fractal2D of a frame from its value of the swept parameter.
+	 * @param from Value of the swept parameter in the first frame.
+	 * @param to Value of the swept parameter in the last frame.
+	 * @param frameCount Number of frames.
+	 * @param delay Time (ms) each frame is shown for.
+	 * @param loop If true, the animation repeats forever.
+	 * @return response that streams the animation as it is generated, with the estimated cost of the
+	 * 		   most expensive frame in the headers.
+	 * @throws InvalidFractalSpecException If frameCount is out of range (HTTP 400).
+	 * @throws RenderTooExpensiveException If any frame is over the render budget (HTTP 422).
+	 */
+	private ResponseEntity<StreamingResponseBody> renderAnimation(DoubleFunction<Fractal2D> frame, double from, double to,
+																  int frameCount, int delay, boolean loop)
+	{
+		if(frameCount < 1 || frameCount > maxAnimationFrames) {
+			throw new InvalidFractalSpecException("An animation must have 1 to " + maxAnimationFrames + " frames (had "
+												  + frameCount + ").");
+		}
+		List<Fractal2D> frames = new ArrayList<>(frameCount);
+		RenderCost maxCost = null;
+		for(int n = 0; n < frameCount; n++) {
+			Fractal2D toRender = frame.apply(frameCount > 1 ? from + (to - from) * n / (frameCount - 1) : from);
+			renderSettings.applyTo(toRender);
+			if(toRender.pixelFormat == Fractal2D.PixelFormat.RGB) {
+				toRender.setPixelFormat(Fractal2D.PixelFormat.INDEXED); //GIFs are indexed anyway
+			}
+			RenderCost cost = renderAdmission.admit(toRender).getCost();
+			if(maxCost == null || cost.getCpuMillis() > maxCost.getCpuMillis()) {
+				maxCost = cost;
+			}
+			frames.add(toRender);
+		}
+		StreamingResponseBody body = (OutputStream output) -> 
+				writeAnimation(frames, new CachingOutputStream(output, 0), delay, loop);
+		return response(maxCost, imageGif).body(body);
+	}
+
+	/**
+	 * Generate every frame of an animation on fractal2DRunner, keeping up to the runner's number of threads
+	 * queued or running at once, and encode each to output as a GIF frame once every frame before it is written.
+	 * If anything fails (e.g. the client went away), every frame not yet written is cancelled.
+	 * @throws IOException If writing to output failed, if generating a frame failed, or if interrupted.
+	 */
+	private void writeAnimation(List<Fractal2D> frames, CachingOutputStream output, int delay, boolean loop) 
+			throws IOException
+	{
+		GifEncoder gif = new GifEncoder(output, delay, loop);
+		Map<Integer, CompletableFuture<Fractal2D>> generating = new HashMap<>(); //by frame number
+		Deque<BufferedImage> writtenImages = new ArrayDeque<>(); //images of written frames, to be reused
+		int next = 0;	 //number of the next frame to generate
+		int written = 0; //number of frames written
+		try {
+			while(written < frames.size()) {
+				//1. Submit frames while below the runner's thread count (and while its queue accepts them)
+				while(next < frames.size() && next - written < fractal2DRunner.getThreads()) {
+					Fractal2D toRender = frames.get(next);
+					toRender.reuseImage(writtenImages.poll());
+					try {
+						generating.put(next, fractal2DRunner.generate(toRender));
+						next++;
+					} catch (RenderQueueFullException e) {
+						break; //retry once other jobs have left the queue
+					}
+				}
+
+				//2. Write the next frame in order once it is generated
+				CompletableFuture<Fractal2D> generated = generating.remove(written);
+				if(generated == null) {
+					Thread.sleep(queueRetryInterval); //the queue was full before it could be submitted
+					continue;
+				}
+				Fractal2D toRender;
+				try {
+					toRender = generated.join();
+				} catch (CompletionException e) {
+					throw new IOException("Generating frame " + written + " failed.", e.getCause());
+				}
+				if(toRender.cancelled.get()) {
+					throw new IOException("Frame " + written + " was cancelled.");
+				}
+				long writeStart = System.nanoTime();
+				long writeStartCount = output.getCount();
+				gif.writeFrame(toRender.image);
+				renderMetrics.recordWrite(toRender, System.nanoTime() - writeStart, output.getCount() - writeStartCount);
+				writtenImages.add(toRender.image);
+				written++;
+			}
+			gif.finish();
+		} catch (IOException | InterruptedException e) {
+			for(Fractal2D toRender : frames.subList(written, frames.size())) {
+				if(!toRender.cancelled.getAndSet(true)) { //e.g. client went away
+					renderMetrics.recordCancelled(toRender);
+				}
+			}
+			if(e instanceof InterruptedException) {
+				throw new InterruptedIOException("Animation rendering was interrupted.");
+			}
+			throw (IOException) e;
+		}
+	}
+
+	/**
+	 * Render a batch of fractals as PNG images, streamed as a ZIP with an entry for each image as soon
+	 * as it finishes. Identical specs are rendered once and share an entry, and index.csv (written last)
+	 * maps each spec, by position, to its entry (or to a .txt entry with the error if it failed).
+	 * As many images are generated at once as the runner has threads, so that a batch spreads over
+	 * every core without filling the queue ahead of other requests.
+	 * @param specs JSON list of the fractals to render.
+	 * @return response that streams the ZIP as the images are rendered, with the number of distinct
+	 * 		   images in X-Batch-Images.
+	 * @throws InvalidFractalSpecException If specs is empty, too large or has a spec of an unknown type (HTTP 400).
+	 * @throws RenderTooExpensiveException If any fractal is over the render budget (HTTP 422).
+	 */
+	@PostMapping(path="/render/batch.zip", consumes=MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody ResponseEntity<StreamingResponseBody> renderBatch(@RequestBody List<Fractal2DSpec> specs)
+	{
+		if(specs.isEmpty() || specs.size() > maxBatchSize) {
+			throw new InvalidFractalSpecException("A batch must have 1 to " + maxBatchSize + " fractals (had "
+												  + specs.size() + ").");
+		}
+		//1. Admit every fractal before rendering any, then deduplicate them by their (admitted) render key
+		Map<String, BatchEntry> entries = new LinkedHashMap<>();
+		List<BatchEntry> specEntries = new ArrayList<>(specs.size());
+		for(int n = 0; n < specs.size(); n++) {
+			Fractal2D toRender = specs.get(n).toFractal2D();
+			renderSettings.applyTo(toRender);
+			specs.get(n).applyTo(toRender);
+			renderAdmission.admit(toRender);
+			String name = n + "-" + specs.get(n).getType();
+			specEntries.add(entries.computeIfAbsent(toRender.getRenderKey(),
+													(String renderKey) -> new BatchEntry(name, toRender, renderKey)));
+		}
+
+		//2. Render them once the response stream is ready
+		List<BatchEntry> batch = new ArrayList<>(entries.values());
+		StreamingResponseBody body = (OutputStream output) -> {
+			ZipOutputStream zip = new ZipOutputStream(output);
+			try {
+				writeBatch(batch, zip);
+				StringBuilder index = new StringBuilder("spec,entry\n");
+				for(int n = 0; n < specEntries.size(); n++) {
+					index.append(n).append(',').append(specEntries.get(n).getEntryName()).append('\n');
+				}
+				writeZipEntry(zip, "index.csv", index.toString().getBytes(StandardCharsets.UTF_8));
+				zip.finish();
+			} catch (IOException e) {
+				for(BatchEntry entry : batch) {
+					if(entry.image == null && entry.error == null) {
+						entry.fractal2D.cancelled.set(true); //e.g. client went away
+						renderMetrics.recordCancelled(entry.fractal2D);
+					}
+				}
+				throw e;
+			}
+		};
+		return ResponseEntity.ok().contentType(applicationZip).header("X-Batch-Images", Integer.toString(batch.size()))
+							 .body(body);
+	}
+
+	/**
+	 * Render every entry of a batch on fractal2DRunner (or take it from the RenderCache), keeping up to
+	 * the runner's number of threads queued or running at once, and write each to zip as soon as it is done.
+	 * @throws IOException If writing to zip failed, or if interrupted.
+	 */
+	private void writeBatch(List<BatchEntry> batch, ZipOutputStream zip) throws IOException
+	{
+		BlockingQueue<BatchEntry> done = new LinkedBlockingQueue<>();
+		int next = 0;	  //index of the next entry to render
+		int rendering = 0; //entries queued or running on fractal2DRunner
+		for(int written = 0; written < batch.size(); ) {
+			//1. Submit entries while below the runner's thread count (and while its queue accepts them)
+			boolean queueFull = false;
+			while(next < batch.size() && rendering < fractal2DRunner.getThreads() && !queueFull) {
+				BatchEntry entry = batch.get(next);
+				byte[] cachedImage = renderCache.get(entry.renderKey);
+				if(cachedImage != null) {
+					entry.image = cachedImage;
+					done.add(entry);
+					next++;
+					continue;
+				}
+				try {
+					fractal2DRunner.generateAndEncode(entry.fractal2D, "png").whenComplete((byte[] image, Throwable t) -> {
+						entry.image = image;
+						entry.error = t;
+						done.add(entry);
+					});
+					entry.rendered = true;
+					rendering++;
+					next++;
+				} catch (RenderQueueFullException e) {
+					queueFull = true; //retry once other jobs have left the queue
+				}
+			}
+
+			//2. Write the next entry to finish
+			BatchEntry entry;
+			try {
+				entry = queueFull ? done.poll(queueRetryInterval, TimeUnit.MILLISECONDS) : done.take();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("Batch rendering was interrupted.");
+			}
+			if(entry == null) {
+				continue;
+			}
+			if(entry.rendered) {
+				rendering--;
+			}
+			written++;
+			if(entry.image == null) {
+				Throwable cause = entry.error instanceof CompletionException ? entry.error.getCause() : entry.error;
+				writeZipEntry(zip, entry.getEntryName(), ("Could not render " + entry.name + ": '" + cause.getClass()
+								+ ": " + cause.getMessage() + "'\n").getBytes(StandardCharsets.UTF_8));
+				continue;
+			}
+			long writeStart = System.nanoTime();
+			writeZipEntry(zip, entry.getEntryName(), entry.image);
+			renderMetrics.recordWrite(entry.fractal2D, System.nanoTime() - writeStart, entry.image.length);
+			if(entry.rendered && !entry.fractal2D.isTimeLimited()) { //the key is only for the full depth
+				renderCache.put(entry.renderKey, entry.image);
+			}
+		}
+	}
+
+	/**
+	 * Write data as a stored (uncompressed, as PNGs are already compressed) ZIP entry, and flush it to the response.
+	 */
+	private static void writeZipEntry(ZipOutputStream zip, String name, byte[] data) throws IOException
+	{
+		ZipEntry zipEntry = new ZipEntry(name);
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		zipEntry.setMethod(ZipEntry.STORED);
+		zipEntry.setSize(data.length);
+		zipEntry.setCompressedSize(data.length);
+		zipEntry.setCrc(crc.getValue());
+		zip.putNextEntry(zipEntry);
+		zip.write(data);
+		zip.closeEntry();
+		zip.flush();
+	}
+
+	/**
+	 * BatchEntry --- A distinct fractal of a batch request, and its image once rendered.
+	 */
+	private static class BatchEntry
+	{
+		private final String name;		   //position and type of the first spec of this fractal, e.g. "0-fractal-tree"
+		private final Fractal2D fractal2D;
+		private final String renderKey;
+		private volatile byte[] image;	   //encoded PNG, once rendered
+		private volatile Throwable error;  //why rendering failed, if it did
+		private boolean rendered;		   //true if generated on the runner rather than taken from the RenderCache
+
+		private BatchEntry(String name, Fractal2D fractal2D, String renderKey)
+		{
+			this.name = name;
+			this.fractal2D = fractal2D;
+			this.renderKey = renderKey;
+		}
+
+		/**
+		 * @return name of this fractal's ZIP entry: its PNG, or the error if rendering failed.
+		 */
+		private String getEntryName()
+		{
+			return name + (error != null ? ".txt" : ".png");
+		}
+	}
+
+	/**
+	 * Render a fractal as a PNG image distributed in tiles over the worker instances of this app
+	 * (see TileCoordinator), streaming each tile's rows as soon as every tile above it is returned.
+	 * Not cached. Without any workers configured, every tile is rendered here instead.
+	 * @param spec JSON spec of the fractal to render.
+	 * @param tileHeight Height (px) of each tile (<= 0 for fractals.tiles.height).
+	 * @return response that streams the PNG as the tiles are returned, with the estimated cost of rendering
+	 * 		   the fractal here in tiles in the headers.
+	 * @throws InvalidFractalSpecException If spec is of an unknown type (HTTP 400).
+	 * @throws RenderQueueFullException If too many jobs are already queued (HTTP 429).
+	 * @throws RenderTooExpensiveException If the fractal is over the render budget (HTTP 422).
+	 */
+	@PostMapping(path="/render/distributed.png", consumes=MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody ResponseEntity<StreamingResponseBody> renderDistributed(@RequestBody Fractal2DSpec spec,
+			@RequestParam(name="tile", required=false, defaultValue="0") int tileHeight)
+	{
+		final int tiles = tileHeight > 0 ? tileHeight : tileCoordinator.getTileHeight();
+		Fractal2D toRender = spec.toFractal2D();
+		renderSettings.applyTo(toRender);
+		spec.applyTo(toRender);
+		RenderCost cost = renderAdmission.admit(toRender, tiles).getCost();
+		Fractal2DSpec admitted = spec.withSettingsOf(toRender); //so that workers render it exactly as admitted here
+		return renderStreamed(toRender, cost, MediaType.IMAGE_PNG,
+							  (OutputStream output) -> tileCoordinator.write(toRender, admitted, output, tiles));
+	}
+
+	/**
+	 * Render a single tile of a fractal as a PNG image of its own, for a TileCoordinator.
+	 * @param spec JSON spec of the fractal to render a tile of.
+	 * @param tileY Canvas y-coordinate of the tile's topmost row.
+	 * @param tileHeight Height (px) of the tile.
+	 * @return future that completes with the tile's PNG once rendered, with the render key of the fractal
+	 * 		   (so that the coordinator can check it was rendered with the same settings) in X-Render-Key.
+	 * @throws InvalidFractalSpecException If spec is of an unknown type, or the tile is not within the canvas (HTTP 400).
+	 * @throws RenderQueueFullException If too many jobs are already queued (HTTP 429).
+	 * @throws RenderTooExpensiveException If the fractal is over the render budget (HTTP 422).
+	 */
+	@PostMapping(path="/render/tile.png", consumes=MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody CompletableFuture<ResponseEntity<byte[]>> renderTile(@RequestBody Fractal2DSpec spec,
+			@RequestParam(name="y") int tileY,
+			@RequestParam(name="tile") int tileHeight)
+	{
+		Fractal2D toRender = spec.toFractal2D();
+		if(tileY < 0 || tileHeight <= 0 || tileY + tileHeight > toRender.height) {
+			throw new InvalidFractalSpecException("Tile of rows " + tileY + " to " + (tileY + tileHeight - 1) 
+												  + " is not within the " + toRender.height + "px high canvas.");
+		}
+		renderSettings.applyTo(toRender);
+		spec.applyTo(toRender);
+		RenderCost cost = renderAdmission.admit(toRender, tileHeight).getCost();
+		final String renderKey = toRender.getRenderKey();
+		return fractal2DRunner.submit(toRender, () -> {
+			try {
+				long generateStart = System.nanoTime();
+				byte[] tile = toRender.encodeTile(tileY, tileHeight);
+				renderMetrics.recordGenerate(toRender, System.nanoTime() - generateStart);
+				return tile;
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}).thenApply((byte[] tile) -> pngResponse(cost).header("X-Render-Key", renderKey).body(tile));
+	}
+
+	/**
+	 * Get the image of a Fractal2D generated by GenerateFractalController: from the RenderCache
+	 * (or its RenderStore) once generated, otherwise the latest preview of the job generating it.
+	 * Not cached by browsers, since it changes while previews are generated.
+	 * @param renderKey Fractal2D.getRenderKey of the image.
+	 * @return the PNG image, or HTTP 404 if there is none (yet).
+	 */
+	@GetMapping("/store/{renderKey}.png")
+	public @ResponseBody ResponseEntity<byte[]> getStoredImage(@PathVariable("renderKey") String renderKey)
+	{
+		byte[] image = fractal2DRunner.getImage(renderKey);
+		if(image == null) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).cacheControl(CacheControl.noCache()).body(image);
+	}
+
+	/**
+	 * Stream a Fractal2D as an SVG image (see Fractal2D.writeSvg) generated on fractal2DRunner. Not cached.
+	 * @param toRender Fractal2D to render.
+	 * @param precision Number of decimal places (0-6) to round coordinates to.
+	 * @param maxPathSegments Maximum number of line segments per <path> of each level.
+	 * @return response that streams toRender as it is generated, with its estimated cost in the headers.
+	 * @throws RenderQueueFullException If too many jobs are already queued (HTTP 429).
+	 * @throws RenderTooExpensiveException If toRender is over the render budget (HTTP 422).
+	 */
+	private ResponseEntity<StreamingResponseBody> renderSvg(Fractal2D toRender, int precision, int maxPathSegments)
+	{
+		renderSettings.applyTo(toRender);
+		RenderCost cost = renderAdmission.admit(toRender, 0).getCost(); //no image
+		return renderStreamed(toRender, cost, imageSvg,
+							  (OutputStream output) -> toRender.writeSvg(output, precision, maxPathSegments));
+	}
+
+	/**
+	 * Stream a Fractal2D as a PNG image: straight from the RenderCache if cached, otherwise
+	 * generated on fractal2DRunner (shared with any concurrent request for an equal Fractal2D)
+	 * and then encoded directly to the response (and cached).
+	 * @param toRender Fractal2D to render.
+	 * @param tileHeight If > 0, render in tiles of this height (px) instead (see renderPngTiled).
+	 * @return future that completes with the response once toRender is ready to be streamed,
+	 * 		   with its estimated cost (see RenderCost.toHeaders) and the depth it reached within
+	 * 		   the time budget (X-Render-Depth-Reached, once generated) in the headers.
+	 * @throws RenderQueueFullException If too many jobs are already queued (HTTP 429).
+	 * @throws RenderTooExpensiveException If toRender is over the render budget (HTTP 422).
+	 */
+	private CompletableFuture<ResponseEntity<StreamingResponseBody>> renderPng(Fractal2D toRender, int tileHeight)
+	{
+		renderSettings.applyTo(toRender);
+		RenderCost cost = renderAdmission.admit(toRender, tileHeight > 0 ? tileHeight : toRender.height).getCost();
+		if(tileHeight > 0) {
+			return CompletableFuture.completedFuture(renderPngTiled(toRender, tileHeight, cost));
+		}
+		final String renderKey = toRender.getRenderKey();
+		byte[] cachedImage = renderCache.get(renderKey);
+		if(cachedImage != null) {
+			StreamingResponseBody body = (OutputStream output) -> output.write(cachedImage);
+			return CompletableFuture.completedFuture(pngResponse(cost).body(body));
+		}
+
+		return fractal2DRunner.generateShared(toRender).thenApply((Fractal2D generated) -> {
+			StreamingResponseBody body = (OutputStream output) -> {
+				CachingOutputStream cachingOutput = new CachingOutputStream(output, renderCache.getMaxImageBytes());
+				long writeStart = System.nanoTime();
+				try {
+					generated.write("png", cachingOutput);
+				} catch (IOException e) {
+					renderMetrics.recordCancelled(generated); //e.g. client went away (generation is already done)
+					throw e;
+				} catch (Exception e) {
+					throw new IOException(e);
+				}
+				renderMetrics.recordWrite(generated, System.nanoTime() - writeStart, cachingOutput.getCount());
+				byte[] imageData = cachingOutput.getCopy();
+				if(imageData != null && !generated.isTimeLimited()) { //the key is only for the full depth
+					renderCache.put(renderKey, imageData);
+				}
+			};
+			return pngResponse(cost).header("X-Render-Depth-Reached", Integer.toString(generated.getDepthReached()))
+									.body(body);
+		});
+	}
+
+	/**
+	 * Stream a Fractal2D as a PNG image rendered tile by tile (see Fractal2D.writeTiled) on fractal2DRunner,
+	 * each tile's rows being written to the response as soon as the tile is drawn. Not cached.
+	 * @param toRender Fractal2D to render.
+	 * @param tileHeight Height (px) of each tile.
+	 * @param cost Estimated cost of rendering toRender in tiles.
+	 * @return response that streams toRender as it is rendered.
+	 * @throws RenderQueueFullException If too many jobs are already queued (HTTP 429).
+	 */
+	private ResponseEntity<StreamingResponseBody> renderPngTiled(Fractal2D toRender, int tileHeight, RenderCost cost)
+	{
+		return renderStreamed(toRender, cost, MediaType.IMAGE_PNG,
+							  (OutputStream output) -> toRender.writeTiled(output, tileHeight));
+	}
+
+	/**
+	 * Stream a Fractal2D to the response as it is rendered by writer on fractal2DRunner. Not cached.
+	 * @param toRender Fractal2D to render.
+	 * @param cost Estimated cost of rendering toRender.
+	 * @param contentType Type of the response.
+	 * @param writer Renders toRender to the response stream.
+	 * @return response that streams toRender as it is rendered.
+	 * @throws RenderQueueFullException If too many jobs are already queued (HTTP 429).
+	 */
+	private ResponseEntity<StreamingResponseBody> renderStreamed(Fractal2D toRender, RenderCost cost,
+																 MediaType contentType, StreamWriter writer)
+	{
+		//Queue now (so that a full queue gives HTTP 429), and start writing once the response stream is ready;
+		//if the request ends first (e.g. the client went away), stop waiting for it and free the runner thread
+		CompletableFuture<OutputStream> responseOutput = new CompletableFuture<>();
+		HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+		WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(responseOutput, new CallableProcessingInterceptor() {
+			@Override
+			public <T> Object handleTimeout(NativeWebRequest webRequest, Callable<T> task)
+			{
+				responseOutput.completeExceptionally(new CancellationException("Response timed out before streaming."));
+				return RESULT_NONE;
+			}
+			
+			@Override
+			public <T> Object handleError(NativeWebRequest webRequest, Callable<T> task, Throwable t)
+			{
+				responseOutput.completeExceptionally(t);
+				return RESULT_NONE;
+			}
+			
+			@Override
+			public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task)
+			{
+				responseOutput.completeExceptionally(new CancellationException("Response ended before streaming."));
+			}
+		});
+		CompletableFuture<Fractal2D> written = fractal2DRunner.submit(toRender, () -> {
+			try {
+				CachingOutputStream countingOutput = new CachingOutputStream(
+						responseOutput.get(responseStartTimeout, TimeUnit.SECONDS), 0);
+				long writeStart = System.nanoTime();
+				writer.write(countingOutput);
+				renderMetrics.recordWrite(toRender, System.nanoTime() - writeStart, countingOutput.getCount());
+			} catch (Exception e) {
+				toRender.cancelled.set(true); //e.g. client went away
+				renderMetrics.recordCancelled(toRender);
+				throw new CompletionException(e);
+			}
+			return toRender;
+		});
+		StreamingResponseBody body = (OutputStream output) -> {
+			responseOutput.complete(output);
+			try {
+				written.join();
+			} catch (CompletionException e) {
+				throw new IOException("Streamed rendering failed.", e.getCause());
+			}
+		};
+		return response(cost, contentType).body(body);
+	}
+
+	private ResponseEntity.BodyBuilder pngResponse(RenderCost cost)
+	{
+		return response(cost, MediaType.IMAGE_PNG);
+	}
+
+	private ResponseEntity.BodyBuilder response(RenderCost cost, MediaType contentType)
+	{
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(contentType);
+		cost.toHeaders().forEach((String name, String value) -> response.header(name, value));
+		return response;
+	}
+
+	/**
+	 * CachingOutputStream --- Writes through to another stream while counting the bytes written and
+	 * 						   keeping a copy of everything written, as long as it does not exceed a maximum size.
+	 */
+	private static class CachingOutputStream extends OutputStream
+	{
+		private final OutputStream output;
+		private final long maxCopyBytes;
+		private ByteArrayOutputStream copy; //null once more than maxCopyBytes were written
+		private long count;					//bytes written
+
+		private CachingOutputStream(OutputStream output, long maxCopyBytes)
+		{
+			this.output = output;
+			this.maxCopyBytes = maxCopyBytes;
+			this.copy = maxCopyBytes > 0 ? new ByteArrayOutputStream() : null;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			output.write(b);
+			count++;
+			if(copy != null) {
+				copy.write(b);
+				checkCopySize();
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			output.write(b, off, len);
+			count += len;
+			if(copy != null) {
+				copy.write(b, off, len);
+				checkCopySize();
+			}
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			output.flush();
+		}
+
+		private void checkCopySize()
+		{
+			if(copy.size() > maxCopyBytes) {
+				copy = null; //too large to cache anyway
+			}
+		}
+
+		private long getCount()
+		{
+			return count;
+		}
+
+		/**
+		 * @return everything written, or null if it exceeded the maximum size.
+		 */
+		private byte[] getCopy()
+		{
+			return copy != null ? copy.toByteArray() : null;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.fractals;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RenderCost --- Estimated cost of generating a Fractal2D (see Fractal2D.estimateCost),
+ * 				  known before it is generated.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class RenderCost 
+{
+	private final double nodes;		 //number of nodes drawn (after any sub-pixel culling)
+	private final int levels;		 //number of levels drawn (after any sub-pixel culling)
+	private final long rasterBytes;	 //memory held by image buffers while generating
+	private final double cpuMillis;	 //approximate CPU time to generate and encode, on a single thread
+	
+	public RenderCost(double nodes, int levels, long rasterBytes, double cpuMillis)
+	{
+		this.nodes = nodes;
+		this.levels = levels;
+		this.rasterBytes = rasterBytes;
+		this.cpuMillis = cpuMillis;
+	}
+	
+	/**
+	 * @return true if no part of this cost exceeds the given budget.
+	 */
+	public boolean isWithin(double maxNodes, long maxRasterBytes, double maxCpuMillis)
+	{
+		return nodes <= maxNodes && rasterBytes <= maxRasterBytes && cpuMillis <= maxCpuMillis;
+	}
+	
+	/**
+	 * @return this cost as HTTP response headers.
+	 */
+	public Map<String, String> toHeaders()
+	{
+		Map<String, String> headers = new LinkedHashMap<>();
+		headers.put("X-Render-Nodes", String.format("%.0f", nodes));
+		headers.put("X-Render-Levels", Integer.toString(levels));
+		headers.put("X-Render-Raster-Bytes", Long.toString(rasterBytes));
+		headers.put("X-Render-Cpu-Millis", String.format("%.0f", cpuMillis));
+		return headers;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.format("Estimated cost: %.3g nodes (%d levels), %.1f MB raster, ~%.0f ms CPU", 
+							 nodes, levels, rasterBytes / (1024.0 * 1024.0), cpuMillis);
+	}
+	
+	public double getNodes() {
+		return nodes;
+	}
+	
+	public int getLevels() {
+		return levels;
+	}
+	
+	public long getRasterBytes() {
+		return rasterBytes;
+	}
+	
+	public double getCpuMillis() {
+		return cpuMillis;
+	}
+}
@@ -0,0 +1,162 @@
+package com.fractals;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * RenderMetrics --- Micrometer metrics of each stage of the render pipeline (queue wait, generate,
+ * 					 encode and write), tagged by fractal type, along with nodes drawn, bytes written,
+ * 					 runner jobs, coalesced requests, cancellations, tile retries and the RenderCache (and its RenderStore).
+ * 					 Published by the actuator under /actuator/metrics and /actuator/prometheus
+ * 					 (timers with percentile histograms).
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@Component
+public class RenderMetrics
+{
+	private final MeterRegistry registry;
+
+	/**
+	 * Creates RenderMetrics, registering the RenderCache's metrics.
+	 * @param registry Registry to publish metrics to.
+	 * @param renderCache Cache whose hits, misses, evictions, size and hit ratio to publish
+	 * 					  (and the hits and size of its store).
+	 */
+	public RenderMetrics(MeterRegistry registry, RenderCache renderCache)
+	{
+		this.registry = registry;
+		FunctionCounter.builder("fractals.cache.hits", renderCache, RenderCache::getHits)
+					   .description("Render cache lookups that found the image").register(registry);
+		FunctionCounter.builder("fractals.cache.misses", renderCache, RenderCache::getMisses)
+					   .description("Render cache lookups that did not find the image").register(registry);
+		FunctionCounter.builder("fractals.cache.evictions", renderCache, RenderCache::getEvictions)
+					   .description("Images evicted from the render cache to stay within its budget").register(registry);
+		Gauge.builder("fractals.cache.hit.ratio", renderCache, RenderMetrics::getHitRatio)
+			 .description("Fraction of render cache lookups that found the image").register(registry);
+		Gauge.builder("fractals.cache.size", renderCache, (RenderCache cache) -> cache.getBytes())
+			 .description("Total size of all cached images").baseUnit("bytes").register(registry);
+		if(renderCache.getStore() != null) {
+			FunctionCounter.builder("fractals.store.hits", renderCache, RenderCache::getStoreHits)
+						   .description("Render cache misses that found the image in the render store").register(registry);
+			Gauge.builder("fractals.store.size", renderCache.getStore(), (RenderStore store) -> store.getBytes())
+				 .description("Total size of all images in the render store").baseUnit("bytes").register(registry);
+		}
+	}
+
+	/**
+	 * Publish the number of jobs running on and queued for a Fractal2DRunner's executor.
+	 */
+	public void registerRunner(ThreadPoolExecutor executor)
+	{
+		Gauge.builder("fractals.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+			 .description("Jobs running on the Fractal2D runner").register(registry);
+		Gauge.builder("fractals.jobs.queued", executor, (ThreadPoolExecutor queued) -> queued.getQueue().size())
+			 .description("Jobs waiting for a Fractal2D runner thread").register(registry);
+	}
+
+	/**
+	 * Record how long a Fractal2D waited in the runner's queue before it started rendering.
+	 */
+	public void recordQueueWait(Fractal2D fractal2D, long nanos)
+	{
+		timer("fractals.render.queue.wait", "Time waiting for a Fractal2D runner thread", fractal2D)
+				.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Record the nodes a Fractal2D drew, and how long it took to generate unless it was cancelled.
+	 */
+	public void recordGenerate(Fractal2D fractal2D, long nanos)
+	{
+		long nodes = fractal2D.getNodesDrawn();
+		Counter.builder("fractals.render.nodes").description("Nodes drawn").tag("type", getType(fractal2D))
+			   .register(registry).increment(nodes);
+		if(fractal2D.cancelled.get()) {
+			return; //would skew the generation time and rate
+		}
+		timer("fractals.render.generate", "Time generating a Fractal2D", fractal2D).record(nanos, TimeUnit.NANOSECONDS);
+		if(nanos > 0) {
+			DistributionSummary.builder("fractals.render.nodes.rate").description("Nodes drawn per second of generation")
+							   .baseUnit("nodes/s").tag("type", getType(fractal2D)).register(registry)
+							   .record(nodes * 1e9 / nanos);
+		}
+	}
+
+	/**
+	 * Record how long a generated Fractal2D took to encode as an image (when encoded before being written).
+	 */
+	public void recordEncode(Fractal2D fractal2D, long nanos)
+	{
+		timer("fractals.render.encode", "Time encoding a generated Fractal2D", fractal2D).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Record how long an image of a Fractal2D took to write to a file or response, and its size.
+	 * Images streamed to a response are encoded as they are written, so this includes encoding.
+	 */
+	public void recordWrite(Fractal2D fractal2D, long nanos, long bytes)
+	{
+		timer("fractals.render.write", "Time writing an image to a file or response", fractal2D)
+				.record(nanos, TimeUnit.NANOSECONDS);
+		Counter.builder("fractals.render.bytes.written").description("Image bytes written to the render store and responses")
+			   .baseUnit("bytes").tag("type", getType(fractal2D)).register(registry).increment(bytes);
+	}
+
+	/**
+	 * Count a render cancelled by the user or by its client going away.
+	 */
+	public void recordCancelled(Fractal2D fractal2D)
+	{
+		Counter.builder("fractals.render.cancelled").description("Renders cancelled before finishing")
+			   .tag("type", getType(fractal2D)).register(registry).increment();
+	}
+
+	/**
+	 * Count a request that joined the generation of an equal Fractal2D already in flight instead of starting its own.
+	 */
+	public void recordCoalesced(Fractal2D fractal2D)
+	{
+		Counter.builder("fractals.render.coalesced").description("Requests that shared a render already in flight")
+			   .tag("type", getType(fractal2D)).register(registry).increment();
+	}
+
+	/**
+	 * Count a tile of a Fractal2D that a TileCoordinator did not simply take from the first worker it was sent to:
+	 * one that failed on a worker ("failed"), was slow and so also sent to another worker ("slow"),
+	 * or was rendered by the coordinator itself ("local").
+	 */
+	public void recordTileRetry(Fractal2D fractal2D, String reason)
+	{
+		Counter.builder("fractals.tiles.retries").description("Tiles resent to another worker or rendered by the coordinator")
+			   .tag("type", getType(fractal2D)).tag("reason", reason).register(registry).increment();
+	}
+
+	private Timer timer(String name, String description, Fractal2D fractal2D)
+	{
+		return Timer.builder(name).description(description).tag("type", getType(fractal2D))
+					.publishPercentileHistogram().register(registry);
+	}
+
+	private static String getType(Fractal2D fractal2D)
+	{
+		return fractal2D.getClass().getSimpleName();
+	}
+
+	private static double getHitRatio(RenderCache renderCache)
+	{
+		long hits = renderCache.getHits();
+		long lookups = hits + renderCache.getMisses();
+		return lookups > 0 ? (double) hits / lookups : 0;
+	}
+}
@@ -0,0 +1,22 @@
+package com.fractals;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * RenderQueueFullException --- Thrown when a Fractal2DRunner's queue is full and a new job
+ * 								cannot be accepted. Results in HTTP 429 (Too Many Requests).
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class RenderQueueFullException extends RuntimeException 
+{
+	private static final long serialVersionUID = 1L;
+
+	public RenderQueueFullException(String message)
+	{
+		super(message);
+	}
+}
@@ -0,0 +1,150 @@
+package com.fractals;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * RenderSettings --- Server-wide settings (application.properties prefix "fractals.render")
+ * 					  for how a Fractal2D is generated, applied to each Fractal2D before it is queued.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@Component
+@ConfigurationProperties(prefix = "fractals.render")
+public class RenderSettings 
+{
+	private int parallelism = 1; //number of worker threads per generation (<= 1 generates serially)
+	private int splitDepth = 0;  //depth at which to split generation into parallel subtrees (<= 0 for automatic)
+	private Fractal2D.Rasterizer rasterizer = Fractal2D.Rasterizer.GRAPHICS2D; //how nodes are drawn onto the image
+	private Fractal2D.PixelFormat pixelFormat = Fractal2D.PixelFormat.RGB; //format of the image's pixels
+	private boolean culling = false;	 //if true, cull off-canvas and sub-pixel subtrees
+	private double cullingThreshold = 0.5; //size (px) below which a subtree's descendants are culled
+	private int previewLevels = 0;		 //publish a preview of queued jobs every previewLevels levels (<= 0: not by level)
+	private long previewInterval = 0;	 //publish a preview of queued jobs every previewInterval ms (<= 0: not by time)
+	private long timeBudget = 0;		 //time (ms) generation may take before stopping at the deepest finished level (<= 0: no limit)
+	private Fractal2D.PngEncoding pngEncoding = Fractal2D.PngEncoding.IMAGEIO; //how PNG images are encoded
+	private int pngCompression = -1;	 //deflate level (0-9, -1: default) of PNG images encoded by PARALLEL
+	private int previewPngCompression = 1; //deflate level (0-9, -1: default) of PNG previews encoded by PARALLEL
+	private boolean symmetric = false;	 //if true, draw images by replicating a fundamental part of symmetric fractals
+	
+	/**
+	 * Apply these settings to a non-generated Fractal2D.
+	 * @param fractal2D Fractal2D to apply the settings to.
+	 */
+	public void applyTo(Fractal2D fractal2D)
+	{
+		fractal2D.setParallelism(parallelism, splitDepth);
+		fractal2D.setRasterizer(rasterizer);
+		fractal2D.setPixelFormat(pixelFormat);
+		fractal2D.setCulling(culling, cullingThreshold);
+		fractal2D.setPreviews(previewLevels, previewInterval);
+		fractal2D.setTimeBudget(timeBudget);
+		fractal2D.setPngEncoding(pngEncoding, pngCompression, previewPngCompression);
+		fractal2D.setSymmetric(symmetric);
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	public int getSplitDepth() {
+		return splitDepth;
+	}
+
+	public void setSplitDepth(int splitDepth) {
+		this.splitDepth = splitDepth;
+	}
+
+	public Fractal2D.Rasterizer getRasterizer() {
+		return rasterizer;
+	}
+
+	public void setRasterizer(Fractal2D.Rasterizer rasterizer) {
+		this.rasterizer = rasterizer;
+	}
+
+	public Fractal2D.PixelFormat getPixelFormat() {
+		return pixelFormat;
+	}
+
+	public void setPixelFormat(Fractal2D.PixelFormat pixelFormat) {
+		this.pixelFormat = pixelFormat;
+	}
+
+	public boolean isCulling() {
+		return culling;
+	}
+
+	public void setCulling(boolean culling) {
+		this.culling = culling;
+	}
+
+	public double getCullingThreshold() {
+		return cullingThreshold;
+	}
+
+	public void setCullingThreshold(double cullingThreshold) {
+		this.cullingThreshold = cullingThreshold;
+	}
+
+	public int getPreviewLevels() {
+		return previewLevels;
+	}
+
+	public void setPreviewLevels(int previewLevels) {
+		this.previewLevels = previewLevels;
+	}
+
+	public long getPreviewInterval() {
+		return previewInterval;
+	}
+
+	public void setPreviewInterval(long previewInterval) {
+		this.previewInterval = previewInterval;
+	}
+
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	public void setTimeBudget(long timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	public Fractal2D.PngEncoding getPngEncoding() {
+		return pngEncoding;
+	}
+
+	public void setPngEncoding(Fractal2D.PngEncoding pngEncoding) {
+		this.pngEncoding = pngEncoding;
+	}
+
+	public int getPngCompression() {
+		return pngCompression;
+	}
+
+	public void setPngCompression(int pngCompression) {
+		this.pngCompression = pngCompression;
+	}
+
+	public int getPreviewPngCompression() {
+		return previewPngCompression;
+	}
+
+	public void setPreviewPngCompression(int previewPngCompression) {
+		this.previewPngCompression = previewPngCompression;
+	}
+
+	public boolean isSymmetric() {
+		return symmetric;
+	}
+
+	public void setSymmetric(boolean symmetric) {
+		this.symmetric = symmetric;
+	}
+}
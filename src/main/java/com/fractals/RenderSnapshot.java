@@ -0,0 +1,58 @@
+package com.fractals;
+
+import java.lang.reflect.Array;
+
+/**
+ * RenderSnapshot --- Image and leaf frontier of a fully generated Fractal2D, from which the same
+ * 					  Fractal2D with more iterations can be generated by drawing only the new levels
+ * 					  (see Fractal2D.snapshot and Fractal2D.deepenFrom). Immutable once created.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class RenderSnapshot
+{
+	private final String deepeningKey; //Fractal2D.getDeepeningKey of the generated Fractal2D
+	private final int depth;		   //number of levels drawn onto pixels
+	private final Object pixels;	   //copy of the image's data (int[] or byte[])
+	private final double[] frontier;   //nodes of the next level to draw, in the Fractal2D's own node format
+	private final int frontierCount;   //number of nodes in frontier
+
+	public RenderSnapshot(String deepeningKey, int depth, Object pixels, double[] frontier, int frontierCount)
+	{
+		this.deepeningKey = deepeningKey;
+		this.depth = depth;
+		this.pixels = pixels;
+		this.frontier = frontier;
+		this.frontierCount = frontierCount;
+	}
+
+	/**
+	 * @return approximate memory held by this snapshot.
+	 */
+	public long getBytes()
+	{
+		long pixelBytes = pixels instanceof int[] ? 4L * Array.getLength(pixels) : Array.getLength(pixels);
+		return pixelBytes + 8L * frontier.length;
+	}
+
+	public String getDeepeningKey() {
+		return deepeningKey;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public Object getPixels() {
+		return pixels;
+	}
+
+	public double[] getFrontier() {
+		return frontier;
+	}
+
+	public int getFrontierCount() {
+		return frontierCount;
+	}
+}
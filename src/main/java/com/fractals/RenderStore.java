@@ -0,0 +1,290 @@
+package com.fractals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * RenderStore --- On-disk store of encoded Fractal2D images keyed by Fractal2D.getRenderKey (a hash
+ * 				   of every parameter), so that images survive restarts and redeploys and are never
+ * 				   rendered twice. Holds at most maxBytes of images, evicting the least recently used
+ * 				   images first once full.
+ * 				   Layout of the store's directory:
+ * 				   objects/ab/abcd...ef.png - image of render key abcd...ef, written atomically
+ * 				   index.log				- append-only index: "+ key size" per image stored, "- key" per image
+ * 				   							  evicted, replayed at startup and compacted once mostly stale
+ * 				   tmp/						- images being written (cleared at startup)
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@Component
+public class RenderStore
+{
+	private static final Pattern renderKeyPattern = Pattern.compile("[0-9a-f]{64}"); //SHA-256 hash (hex)
+	private static final int minCompactRecords = 1024; //index records below which the index is never compacted
+	private final Path directory;
+	private final long maxBytes;					 //maximum total size of all stored images (0 disables the store)
+	private final LinkedHashMap<String, Long> images; //size of each stored image in least to most recently used order
+	private long bytes;								 //current total size of all stored images
+	private FileChannel index;						 //index.log, appended to
+	private int indexRecords;						 //records in index.log
+
+	/**
+	 * Creates a RenderStore in a directory, loading the images already stored in it.
+	 * If the directory cannot be used, the store is disabled rather than failing startup.
+	 * @param directory Directory of the store (created if missing).
+	 * @param maxBytes Maximum total size of all stored images (0 disables the store).
+	 */
+	public RenderStore(@Value("${fractals.store.dir:fractals-store}") String directory,
+					   @Value("${fractals.store.max-bytes:1073741824}") long maxBytes)
+	{
+		this.directory = Paths.get(directory).toAbsolutePath();
+		this.images = new LinkedHashMap<String, Long>(16, 0.75f, true); //access order
+		this.bytes = 0;
+		long enabledMaxBytes = maxBytes;
+		if(maxBytes > 0) {
+			try {
+				load();
+				System.out.println("RenderStore: loaded " + images.size() + " images (" + bytes + " bytes) from '"
+								   + this.directory + "'.");
+			} catch (IOException e) {
+				System.out.println("RenderStore: disabled; could not load '" + this.directory + "': '"
+								   + e.getClass().toString() + ": " + e.getMessage() + "'");
+				enabledMaxBytes = 0;
+			}
+		}
+		this.maxBytes = enabledMaxBytes;
+	}
+
+	/**
+	 * Read an image from the store, marking it as most recently used.
+	 * @param renderKey Fractal2D.getRenderKey of the image.
+	 * @return encoded image, or null if not stored.
+	 */
+	public byte[] get(String renderKey)
+	{
+		if(!isValidKey(renderKey)) {
+			return null;
+		}
+		synchronized(this) {
+			if(images.get(renderKey) == null) {
+				return null;
+			}
+		}
+		try {
+			return Files.readAllBytes(getPath(renderKey));
+		} catch (NoSuchFileException e) {
+			return null; //evicted since
+		} catch (IOException e) {
+			System.out.println("RenderStore: could not read image " + renderKey + ": '" + e.getMessage() + "'");
+			return null;
+		}
+	}
+
+	/**
+	 * Write an image to the store (atomically: readers see either all of it or none of it) as most
+	 * recently used, evicting least recently used images until everything stored fits within maxBytes.
+	 * Images larger than maxBytes, and images already stored, are not written.
+	 * @param renderKey Fractal2D.getRenderKey of the image.
+	 * @param image Encoded image.
+	 */
+	public void put(String renderKey, byte[] image)
+	{
+		if(image.length > maxBytes || !isValidKey(renderKey) || contains(renderKey)) {
+			return;
+		}
+		try {
+			//1. Write to a temporary file, then move it into place so that it is never seen half-written
+			Path temporary = directory.resolve("tmp").resolve(renderKey + "." + UUID.randomUUID() + ".tmp");
+			Path path = getPath(renderKey);
+			Files.write(temporary, image);
+			Files.createDirectories(path.getParent());
+			try {
+				Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			//2. Then index it, evicting images as needed
+			synchronized(this) {
+				Long replaced = images.put(renderKey, (long) image.length);
+				bytes += image.length - (replaced != null ? replaced : 0);
+				appendRecord("+ " + renderKey + " " + image.length);
+				Iterator<Map.Entry<String, Long>> leastRecentlyUsed = images.entrySet().iterator();
+				while(bytes > maxBytes) {
+					Map.Entry<String, Long> evicted = leastRecentlyUsed.next();
+					bytes -= evicted.getValue();
+					leastRecentlyUsed.remove();
+					appendRecord("- " + evicted.getKey());
+					Files.deleteIfExists(getPath(evicted.getKey()));
+				}
+				if(indexRecords > minCompactRecords && indexRecords > 2 * images.size()) {
+					writeIndex();
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("RenderStore: could not store image " + renderKey + ": '" + e.getMessage() + "'");
+		}
+	}
+
+	/**
+	 * @return true if an image is stored (without marking it as used).
+	 */
+	public synchronized boolean contains(String renderKey)
+	{
+		return images.containsKey(renderKey);
+	}
+
+	/**
+	 * Create the store's directories, clear images left half-written, and replay the index:
+	 * images whose file is missing or of another size (e.g. after a crash) are dropped,
+	 * and the index is rewritten without them.
+	 */
+	private void load() throws IOException
+	{
+		Files.createDirectories(directory.resolve("objects"));
+		Path tmp = Files.createDirectories(directory.resolve("tmp"));
+		try(DirectoryStream<Path> temporaries = Files.newDirectoryStream(tmp)) {
+			for(Path temporary : temporaries) {
+				Files.deleteIfExists(temporary);
+			}
+		}
+		Path indexPath = directory.resolve("index.log");
+		int records = 0;
+		if(Files.exists(indexPath)) {
+			try(BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+				for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+					String[] record = line.split(" ");
+					if(record.length == 3 && record[0].equals("+") && isValidKey(record[1])) {
+						try {
+							images.put(record[1], Long.parseLong(record[2]));
+						} catch (NumberFormatException e) {
+							continue; //e.g. cut off by a crash
+						}
+					} else if(record.length == 2 && record[0].equals("-")) {
+						images.remove(record[1]);
+					}
+					records++;
+				}
+			}
+		}
+		for(Iterator<Map.Entry<String, Long>> iterator = images.entrySet().iterator(); iterator.hasNext(); ) {
+			Map.Entry<String, Long> image = iterator.next();
+			Path path = getPath(image.getKey());
+			if(!Files.exists(path) || Files.size(path) != image.getValue()) {
+				iterator.remove();
+				Files.deleteIfExists(path);
+			} else {
+				bytes += image.getValue();
+			}
+		}
+		if(records != images.size() || !Files.exists(indexPath)) {
+			writeIndex();
+		} else {
+			index = FileChannel.open(indexPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			indexRecords = records;
+		}
+	}
+
+	/**
+	 * Rewrite the index with a record for each stored image only, atomically replacing the old one.
+	 */
+	private void writeIndex() throws IOException
+	{
+		StringBuilder records = new StringBuilder();
+		for(Map.Entry<String, Long> image : images.entrySet()) {
+			records.append("+ ").append(image.getKey()).append(' ').append(image.getValue()).append('\n');
+		}
+		Path temporary = directory.resolve("tmp").resolve("index." + UUID.randomUUID() + ".tmp");
+		Files.write(temporary, records.toString().getBytes(StandardCharsets.UTF_8));
+		if(index != null) {
+			index.close();
+		}
+		Path indexPath = directory.resolve("index.log");
+		try {
+			Files.move(temporary, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING);
+		}
+		index = FileChannel.open(indexPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		indexRecords = images.size();
+	}
+
+	/**
+	 * Append a record (a line) to the index.
+	 */
+	private void appendRecord(String record) throws IOException
+	{
+		ByteBuffer line = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+		while(line.hasRemaining()) {
+			index.write(line);
+		}
+		indexRecords++;
+	}
+
+	/**
+	 * @return path of the image of a render key, in a subdirectory by its first 2 characters
+	 * 		   so that no directory gets too large.
+	 */
+	private Path getPath(String renderKey)
+	{
+		return directory.resolve("objects").resolve(renderKey.substring(0, 2)).resolve(renderKey + ".png");
+	}
+
+	/**
+	 * @return true if key is a render key (and so safe to use in a path).
+	 */
+	private static boolean isValidKey(String key)
+	{
+		return key != null && renderKeyPattern.matcher(key).matches();
+	}
+
+	public synchronized int getSize() {
+		return images.size();
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	@PreDestroy
+	public synchronized void close()
+	{
+		try {
+			if(index != null) {
+				index.close();
+			}
+		} catch (IOException e) {
+			System.out.println("RenderStore: could not close index: '" + e.getMessage() + "'");
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package com.fractals;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * RenderTooExpensiveException --- Thrown when a Fractal2D's estimated cost exceeds the render budget
+ * 								   and it cannot (or may not) be downgraded to fit.
+ * 								   Results in HTTP 422 (Unprocessable Entity).
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class RenderTooExpensiveException extends RuntimeException 
+{
+	private static final long serialVersionUID = 1L;
+	
+	private final RenderCost cost; //estimated cost of the rejected Fractal2D
+
+	public RenderTooExpensiveException(String message, RenderCost cost)
+	{
+		super(message);
+		this.cost = cost;
+	}
+	
+	public RenderCost getCost() {
+		return cost;
+	}
+}
@@ -7,9 +7,11 @@ import org.springframework.security.config.annotation.web.configuration.WebSecur
 
 /**
  * SpringSecurityConfig --- Uses default Spring Security settings to disable caching.
+ * 						   /render endpoints are an API without a session form, so are exempt from CSRF tokens,
+ * 						   as is cancelling a job, which takes the waiter token only its page knows instead.
  * @author Scott Wolfskill
  * @created     02/26/2019
- * @last_edit   02/26/2019
+ * @last_edit   10/18/2026
  */
 @Configuration
 @EnableWebSecurity
@@ -18,5 +20,7 @@ public class SpringSecurityConfig extends WebSecurityConfigurerAdapter {
 	//Automatically sets default cache-control headers:
 	//[cache-control: no-cache, no-store, max-age=0, must-revalidate]
     @Override
-    protected void configure(HttpSecurity http) throws Exception {}
+    protected void configure(HttpSecurity http) throws Exception {
+    	http.csrf().ignoringAntMatchers("/render/**", "/jobs/**");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,216 @@
+package com.fractals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * SvgCanvas --- Fractal2DCanvas that streams what is drawn onto it to a Writer as SVG elements,
+ * 				 without building a document in memory. Lines are batched into one <path> per depth
+ * 				 level (of at most maxPathSegments segments each, written as soon as full), or written
+ * 				 as <line> elements; ellipses are written as <circle> or <ellipse> elements immediately.
+ * 				 Coordinates are rounded to precision decimal places.
+ * 				 Usage: draw everything (setDepth before each node), then finish.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class SvgCanvas implements Fractal2DCanvas 
+{
+	private static final int maxPrecision = 6;
+	
+	private final Writer output;
+	private final int precision;		  //decimal places of coordinates written
+	private final long scale;			  //10^precision
+	private final int maxPathSegments;	  //line segments per <path> (<= 1 writes <line> elements instead)
+	private final StringBuilder element;  //element being written
+	private StringBuilder[] paths;		  //[depth]: path data of lines at depth not yet written
+	private int[] pathSegments;			  //[depth]: number of line segments in paths[depth]
+	private int depth;					  //depth of the nodes being drawn
+	
+	/**
+	 * Creates an SvgCanvas and writes the start of the SVG document (with a background) to output.
+	 * @param output Writer to write the SVG to. Is not closed.
+	 * @param width Width of the canvas.
+	 * @param height Height of the canvas.
+	 * @param color RGB color to draw with.
+	 * @param background RGB color of the background.
+	 * @param precision Number of decimal places (0-6) to round coordinates to.
+	 * @param maxPathSegments Maximum number of line segments batched into each <path> of a depth level
+	 * 						  (<= 1 writes each line as a <line> element instead).
+	 * @throws IOException If writing to output failed.
+	 */
+	public SvgCanvas(Writer output, int width, int height, int color, int background, 
+					 int precision, int maxPathSegments) throws IOException
+	{
+		this.output = output;
+		this.precision = Math.max(0, Math.min(precision, maxPrecision));
+		long scale = 1;
+		for(int i = 0; i < this.precision; i++) {
+			scale *= 10;
+		}
+		this.scale = scale;
+		this.maxPathSegments = maxPathSegments;
+		this.element = new StringBuilder(128);
+		this.paths = new StringBuilder[0];
+		this.pathSegments = new int[0];
+		this.depth = 0;
+		
+		output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		output.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height 
+					 + "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+		output.write("<rect width=\"100%\" height=\"100%\" fill=\"" + toHex(background) + "\"/>\n");
+		output.write("<g fill=\"none\" stroke=\"" + toHex(color) + "\" stroke-width=\"1\">\n");
+	}
+	
+	@Override
+	public void setDepth(int depth)
+	{
+		this.depth = depth;
+	}
+	
+	/**
+	 * @throws UncheckedIOException If writing to output failed.
+	 */
+	@Override
+	public void drawLine(double startX, double startY, double endX, double endY)
+	{
+		if(maxPathSegments <= 1) {
+			element.setLength(0);
+			element.append("<line x1=\"");
+			appendNumber(element, startX).append("\" y1=\"");
+			appendNumber(element, startY).append("\" x2=\"");
+			appendNumber(element, endX).append("\" y2=\"");
+			appendNumber(element, endY).append("\"/>\n");
+			write(element);
+			return;
+		}
+		StringBuilder path = getPath(depth);
+		path.append('M');
+		appendNumber(path, startX).append(' ');
+		appendNumber(path, startY).append('L');
+		appendNumber(path, endX).append(' ');
+		appendNumber(path, endY);
+		if(++pathSegments[depth] >= maxPathSegments) {
+			writePath(depth);
+		}
+	}
+	
+	/**
+	 * @throws UncheckedIOException If writing to output failed.
+	 */
+	@Override
+	public void drawEllipse(double centerX, double centerY, double width, double height)
+	{
+		element.setLength(0);
+		element.append(width == height ? "<circle cx=\"" : "<ellipse cx=\"");
+		appendNumber(element, centerX).append("\" cy=\"");
+		appendNumber(element, centerY);
+		if(width == height) {
+			element.append("\" r=\"");
+			appendNumber(element, width / 2);
+		} else {
+			element.append("\" rx=\"");
+			appendNumber(element, width / 2).append("\" ry=\"");
+			appendNumber(element, height / 2);
+		}
+		element.append("\"/>\n");
+		write(element);
+	}
+	
+	/**
+	 * Write every batched path and the end of the SVG document, and flush output.
+	 * @throws IOException If writing to output failed.
+	 */
+	public void finish() throws IOException
+	{
+		try {
+			for(int pathDepth = 0; pathDepth < paths.length; pathDepth++) {
+				writePath(pathDepth);
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		output.write("</g>\n</svg>\n");
+		output.flush();
+	}
+	
+	@Override
+	public void dispose() {}
+	
+	/**
+	 * @return path data of lines at depth not yet written, growing paths if needed.
+	 */
+	private StringBuilder getPath(int depth)
+	{
+		if(depth >= paths.length) {
+			StringBuilder[] grown = new StringBuilder[depth + 1];
+			System.arraycopy(paths, 0, grown, 0, paths.length);
+			int[] grownSegments = new int[depth + 1];
+			System.arraycopy(pathSegments, 0, grownSegments, 0, pathSegments.length);
+			paths = grown;
+			pathSegments = grownSegments;
+		}
+		if(paths[depth] == null) {
+			paths[depth] = new StringBuilder();
+		}
+		return paths[depth];
+	}
+	
+	/**
+	 * Write the lines batched at depth (if any) as a <path> element.
+	 */
+	private void writePath(int depth)
+	{
+		if(paths[depth] == null || pathSegments[depth] == 0) {
+			return;
+		}
+		element.setLength(0);
+		element.append("<path class=\"depth-").append(depth).append("\" d=\"");
+		write(element);
+		write(paths[depth]);
+		write("\"/>\n");
+		paths[depth].setLength(0);
+		pathSegments[depth] = 0;
+	}
+	
+	private void write(CharSequence text)
+	{
+		try {
+			output.append(text);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Append value rounded to precision decimal places, without trailing zeros.
+	 * @return builder.
+	 */
+	private StringBuilder appendNumber(StringBuilder builder, double value)
+	{
+		long scaled = Math.round(value * scale);
+		if(scaled < 0) {
+			builder.append('-');
+			scaled = -scaled;
+		}
+		builder.append(scaled / scale);
+		long fraction = scaled % scale;
+		if(fraction != 0) {
+			builder.append('.');
+			for(long place = scale / 10; place > fraction; place /= 10) {
+				builder.append('0'); //leading zeros
+			}
+			while(fraction % 10 == 0) {
+				fraction /= 10; //trailing zeros
+			}
+			builder.append(fraction);
+		}
+		return builder;
+	}
+	
+	private static String toHex(int rgb)
+	{
+		return String.format("#%06x", rgb & 0xFFFFFF);
+	}
+}
@@ -0,0 +1,384 @@
+package com.fractals;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * TileCoordinator --- Renders a Fractal2D as a PNG image by splitting its canvas into tiles (see
+ * 					   Fractal2D.generateTile) and sending each tile to a worker instance of this app
+ * 					   (POST /render/tile.png), stitching the tiles the workers return into the image in order.
+ * 					   A tile whose worker fails is retried on another worker, a tile whose worker is slow is
+ * 					   also sent to another worker (the first to return it wins), and a tile that every attempt
+ * 					   failed on is rendered here. Without any workers, every tile is rendered here.
+ * 					   Retries are counted in RenderMetrics rather than logged one by one.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@Service
+public class TileCoordinator
+{
+	private final List<String> workers;		  //base URLs of the worker instances, e.g. http://localhost:8081
+	private final int tileHeight;			  //default height (px) of each tile
+	private final int tilesPerWorker;		  //most tiles sent to each worker at once
+	private final long slowAfter;			  //time (ms) after which a tile not yet returned is also sent to another worker
+	private final int maxAttempts;			  //most times a tile is sent to workers before it is rendered here
+	private final RestTemplate restTemplate;
+	private final ThreadPoolExecutor executor; //sends tiles to workers and decodes the tiles they return
+	private final RenderMetrics renderMetrics;
+	private static final long pollInterval = 50; //ms between checks for slow tiles while waiting for workers
+
+	/**
+	 * Tile --- A horizontal strip of the canvas, and the state of rendering it.
+	 * 			Only used by the thread writing the image, other than sentAt.
+	 */
+	private static class Tile
+	{
+		private final int y;					   //canvas y-coordinate of the tile's topmost row
+		private final int height;
+		private final Set<String> workers = new HashSet<>(); //workers the tile was sent to
+		private int attempts;					   //times the tile was sent to a worker
+		private int inFlight;					   //requests for the tile not yet returned
+		private volatile long sentAt;			   //System.nanoTime when the latest request started (0 until then)
+		private BufferedImage image;			   //rendered tile, until written
+		private boolean done;					   //true once rendered (the image may be written already)
+
+		private Tile(int y, int height)
+		{
+			this.y = y;
+			this.height = height;
+		}
+	}
+
+	/**
+	 * TileResult --- A tile returned by a worker (or the reason the worker failed to return it).
+	 */
+	private static class TileResult
+	{
+		private final Tile tile;
+		private final String worker;
+		private BufferedImage image;
+		private Exception error;
+
+		private TileResult(Tile tile, String worker)
+		{
+			this.tile = tile;
+			this.worker = worker;
+		}
+	}
+
+	/**
+	 * Creates a TileCoordinator with its own pool of threads to send tiles to workers on.
+	 * @param workers Base URLs of the worker instances (blank ones are ignored).
+	 * @param tileHeight Default height (px) of each tile.
+	 * @param tilesPerWorker Most tiles sent to each worker at once.
+	 * @param slowAfter Time (ms) after which a tile not yet returned is also sent to another worker.
+	 * @param requestTimeout Time (ms) a request to a worker may take before failing.
+	 * @param maxAttempts Most times a tile is sent to workers before it is rendered here instead.
+	 * @param renderMetrics Metrics to count failed, slow and locally rendered tiles to.
+	 */
+	public TileCoordinator(@Value("${fractals.tiles.workers:}") String[] workers,
+						   @Value("${fractals.tiles.height:256}") int tileHeight,
+						   @Value("${fractals.tiles.per-worker:2}") int tilesPerWorker,
+						   @Value("${fractals.tiles.slow-after:10000}") long slowAfter,
+						   @Value("${fractals.tiles.request-timeout:60000}") int requestTimeout,
+						   @Value("${fractals.tiles.max-attempts:3}") int maxAttempts,
+						   RenderMetrics renderMetrics)
+	{
+		this.workers = new ArrayList<>();
+		for(String worker : workers) {
+			if(!worker.trim().isEmpty()) {
+				this.workers.add(worker.trim());
+			}
+		}
+		this.tileHeight = tileHeight;
+		this.tilesPerWorker = Math.max(1, tilesPerWorker);
+		this.slowAfter = slowAfter;
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.renderMetrics = renderMetrics;
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout(requestTimeout);
+		requestFactory.setReadTimeout(requestTimeout);
+		this.restTemplate = new RestTemplate(requestFactory);
+
+		AtomicInteger threadCount = new AtomicInteger(0);
+		ThreadFactory threadFactory = (Runnable runnable) -> {
+			Thread thread = new Thread(runnable, "tile-coordinator-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		int threads = Math.max(1, this.workers.size() * this.tilesPerWorker);
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+											   new LinkedBlockingQueue<Runnable>(), threadFactory);
+	}
+
+	/**
+	 * Render a Fractal2D in tiles on the workers, and write it to output as a PNG image,
+	 * each tile's rows as soon as every tile above it has been written.
+	 * @param fractal2D Fractal2D to render, with its render settings applied and admitted.
+	 * @param spec Spec of fractal2D to send to the workers (see Fractal2DSpec.withSettingsOf).
+	 * @param output Stream to write the PNG to. Is not closed.
+	 * @param tileHeight Height (px) of each tile.
+	 * @throws Exception If writing to output failed, if a tile could not be rendered here, or if cancelled.
+	 */
+	public void write(Fractal2D fractal2D, Fractal2DSpec spec, OutputStream output, int tileHeight) throws Exception
+	{
+		if(workers.isEmpty()) {
+			fractal2D.writeTiled(output, tileHeight);
+			return;
+		}
+		final String renderKey = fractal2D.getRenderKey();
+		List<Tile> tiles = new ArrayList<>();
+		for(int tileY = 0; tileY < fractal2D.height; tileY += tileHeight) {
+			tiles.add(new Tile(tileY, Math.min(tileHeight, fractal2D.height - tileY)));
+		}
+		Deque<Tile> unsent = new ArrayDeque<>(tiles); //tiles to send (again), first to last
+		Map<String, Integer> busy = new HashMap<>(); //tiles in flight per worker
+		Map<String, Long> heardFrom = new HashMap<>(); //System.nanoTime each busy worker last returned a tile (or was sent one while idle)
+		BlockingQueue<TileResult> returned = new LinkedBlockingQueue<>();
+		PngEncoder encoder = fractal2D.createTiledEncoder(output, fractal2D.height);
+		int written = 0; //index of the next tile to write
+		int renderedHere = 0;
+		while(written < tiles.size()) {
+			if(fractal2D.cancelled.get()) {
+				throw new CancellationException("Distributed image encoding was cancelled.");
+			}
+			//1. Fill every worker with tiles: unsent ones first, then slow ones
+			for(String worker : workers) {
+				while(busy.getOrDefault(worker, 0) < tilesPerWorker) {
+					Tile tile = nextTile(worker, unsent, tiles, written, fractal2D);
+					if(tile == null) {
+						break;
+					}
+					if(busy.merge(worker, 1, Integer::sum) == 1) {
+						heardFrom.put(worker, System.nanoTime());
+					}
+					send(tile, worker, spec, renderKey, fractal2D, returned);
+				}
+			}
+
+			//2. Render here the next tile to write if no worker is left to return it, or none can take it
+			Tile next = tiles.get(written);
+			if(!next.done && (isGivenUp(next) || (next.inFlight == 0 && isEveryWorkerStalled(busy, heardFrom)))) {
+				renderMetrics.recordTileRetry(fractal2D, "local");
+				renderedHere++;
+				unsent.remove(next);
+				next.image = fractal2D.generateTile(next.y, next.height);
+				next.done = true;
+			}
+
+			//3. Take every tile returned since, waiting for at least one if nothing can be written
+			TileResult result = next.done ? returned.poll() : returned.poll(pollInterval, TimeUnit.MILLISECONDS);
+			while(result != null) {
+				busy.merge(result.worker, -1, Integer::sum);
+				heardFrom.put(result.worker, System.nanoTime());
+				receive(result, unsent, fractal2D);
+				result = returned.poll();
+			}
+
+			//4. Write every tile in order that is done
+			while(written < tiles.size() && tiles.get(written).done) {
+				encoder.writeRows(tiles.get(written).image);
+				tiles.get(written).image = null;
+				written++;
+			}
+		}
+		encoder.finish();
+		
+		int resent = 0;
+		for(Tile tile : tiles) {
+			if(tile.attempts > 1) {
+				resent++;
+			}
+		}
+		if(resent > 0 || renderedHere > 0) {
+			System.out.println("TileCoordinator: " + resent + " of " + tiles.size() + " tiles were sent to more than one worker, "
+							   + renderedHere + " rendered here (see fractals.tiles.retries).");
+		}
+	}
+
+	/**
+	 * @return the next tile to send to worker: the first unsent tile (preferably one that has not failed
+	 * 		   on worker already), or else the first slow tile not sent to worker yet; null if none.
+	 */
+	private Tile nextTile(String worker, Deque<Tile> unsent, List<Tile> tiles, int written, Fractal2D fractal2D)
+	{
+		for(Iterator<Tile> iterator = unsent.iterator(); iterator.hasNext(); ) {
+			Tile tile = iterator.next();
+			if(!tile.workers.contains(worker) || tile.workers.size() >= workers.size()) {
+				iterator.remove();
+				return tile;
+			}
+		}
+		for(int i = written; i < tiles.size(); i++) {
+			Tile tile = tiles.get(i);
+			if(!tile.done && tile.attempts < maxAttempts && !tile.workers.contains(worker) && isSlow(tile)) {
+				renderMetrics.recordTileRetry(fractal2D, "slow");
+				return tile;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if no worker is left to send a tile to: it failed on every attempt, or it is slow
+	 * 		   on every worker it may be sent to.
+	 */
+	private boolean isGivenUp(Tile tile)
+	{
+		if(tile.inFlight == 0) {
+			return tile.attempts >= maxAttempts;
+		}
+		return isSlow(tile) && (tile.attempts >= maxAttempts || tile.workers.size() >= workers.size());
+	}
+
+	/**
+	 * @return true if every worker is busy and has not returned a tile for longer than slowAfter.
+	 */
+	private boolean isEveryWorkerStalled(Map<String, Integer> busy, Map<String, Long> heardFrom)
+	{
+		for(String worker : workers) {
+			if(busy.getOrDefault(worker, 0) < tilesPerWorker 
+			   || System.nanoTime() - heardFrom.get(worker) <= slowAfter * 1000000) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if a tile has been in flight for longer than slowAfter.
+	 */
+	private boolean isSlow(Tile tile)
+	{
+		long sentAt = tile.sentAt;
+		return tile.inFlight > 0 && sentAt != 0 && System.nanoTime() - sentAt > slowAfter * 1000000;
+	}
+
+	/**
+	 * Send a tile to a worker on executor, adding the result to returned once it returns.
+	 */
+	private void send(Tile tile, String worker, Fractal2DSpec spec, String renderKey, Fractal2D fractal2D,
+					  BlockingQueue<TileResult> returned)
+	{
+		tile.attempts++;
+		tile.inFlight++;
+		tile.workers.add(worker);
+		executor.execute(() -> {
+			TileResult result = new TileResult(tile, worker);
+			try {
+				tile.sentAt = System.nanoTime();
+				result.image = requestTile(worker, spec, renderKey, fractal2D, tile);
+			} catch (Exception e) {
+				result.error = e;
+			}
+			returned.add(result);
+		});
+	}
+
+	/**
+	 * Take a tile returned by a worker if it is still needed, or put it back to send again if the worker failed.
+	 */
+	private void receive(TileResult result, Deque<Tile> unsent, Fractal2D fractal2D)
+	{
+		Tile tile = result.tile;
+		tile.inFlight--;
+		if(tile.done) {
+			return; //returned by another worker (or rendered here) first
+		}
+		if(result.error == null) {
+			tile.image = result.image;
+			tile.done = true;
+			return;
+		}
+		renderMetrics.recordTileRetry(fractal2D, "failed");
+		if(tile.inFlight == 0 && tile.attempts < maxAttempts) {
+			unsent.addFirst(tile);
+		}
+	}
+
+	/**
+	 * Request a tile from a worker and decode it.
+	 * @return the tile, in the same format as fractal2D's tiles.
+	 * @throws IOException If the worker returned something other than the tile of the same Fractal2D.
+	 */
+	private BufferedImage requestTile(String worker, Fractal2DSpec spec, String renderKey, Fractal2D fractal2D, Tile tile)
+			throws IOException
+	{
+		URI uri = UriComponentsBuilder.fromHttpUrl(worker).path("/render/tile.png")
+									  .queryParam("y", tile.y).queryParam("tile", tile.height).build().toUri();
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		ResponseEntity<byte[]> response = restTemplate.postForEntity(uri, new HttpEntity<>(spec, headers), byte[].class);
+		if(!renderKey.equals(response.getHeaders().getFirst("X-Render-Key"))) {
+			throw new IOException("Worker rendered a different Fractal2D (are its render settings the same?).");
+		}
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(response.getBody()));
+		if(image == null || image.getWidth() != fractal2D.width || image.getHeight() != tile.height) {
+			throw new IOException("Worker did not return a " + fractal2D.width + "x" + tile.height + " PNG.");
+		}
+		if(fractal2D.pixelFormat == Fractal2D.PixelFormat.RGB && image.getType() != BufferedImage.TYPE_INT_RGB) {
+			BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+			Graphics2D gfx = rgb.createGraphics();
+			gfx.drawImage(image, 0, 0, null);
+			gfx.dispose();
+			return rgb;
+		}
+		return image; //decoded with the same palette and bits per pixel
+	}
+
+	/**
+	 * @return default height (px) of each tile.
+	 */
+	public int getTileHeight()
+	{
+		return tileHeight;
+	}
+
+	/**
+	 * @return base URLs of the worker instances.
+	 */
+	public List<String> getWorkers()
+	{
+		return workers;
+	}
+
+	@PreDestroy
+	public void shutdown()
+	{
+		executor.shutdownNow();
+	}
+}
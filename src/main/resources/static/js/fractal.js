@@ -2,20 +2,37 @@
  * fractal.js --- Holds Javascript code for updating an image element (w/ id "fractalImage")
  * 				  so that it doesn't cache while a fractal is being generated that will
  * 				  be output to fractalImage_src upon completion.
+ * 				  Generation status is pushed by the server (Server-Sent Events) when possible.
  * @author Scott Wolfskill
  * @created     02/25/2019
- * @last_edit   02/26/2019
+ * @last_edit   10/18/2026
  */
 
 var fractalImage_src;
+var fractalJobId; // ID of the page's job, if any
+var fractalWaiter; // token of the page's share of its job, if any
 
 /**
- * Set fractalImage_src, and set update() to be called every 200ms, 
+ * Set fractalImage_src, give up the share of the previous page (in this tab) in its job,
+ * and follow the generation status of the page's job, if any:
+ * with Server-Sent Events if supported, otherwise by calling update() every 200ms,
  * with 1st call occurring immediately.
  */
 function start() {
 	var image = document.getElementById("fractalImage");
 	fractalImage_src = stripQueryString(image.getAttribute("src"));
+	var loadingMessage = document.getElementById("loadingMessage");
+	var jobId = loadingMessage.getAttribute("data-job-id");
+	fractalJobId = jobId;
+	fractalWaiter = loadingMessage.getAttribute("data-waiter");
+	leavePreviousJob(jobId);
+	if (loadingMessage.textContent != "Generating...") {
+		return; // nothing being generated
+	}
+	if (jobId && window.EventSource) {
+		followJobEvents(jobId);
+		return;
+	}
 	setInterval(update, 200); // call update once every 200ms
 	/* If want to set custom image source as URI parameter, uncomment these lines:
 	var inputSrc = document.createElement("input");
@@ -28,6 +45,33 @@ function start() {
 	update();
 }
 
+/**
+ * Cancel the share of the previous page shown in this tab in its job, now that this page's job
+ * has been queued, unless it is the same job; then remember this page's share for the next page.
+ * A job is only cancelled once every page sharing it has given up its share.
+ * @param jobId ID of this page's job.
+ */
+function leavePreviousJob(jobId) {
+	if (!window.sessionStorage) {
+		return;
+	}
+	var previousJobId = sessionStorage.getItem("fractalJobId");
+	var previousWaiter = sessionStorage.getItem("fractalWaiter");
+	if (previousJobId && previousWaiter && previousJobId != jobId) {
+		var xhttp = new XMLHttpRequest();
+		xhttp.open("DELETE", "/jobs/" + encodeURIComponent(previousJobId)
+				+ "?waiter=" + encodeURIComponent(previousWaiter), true);
+		xhttp.send();
+	}
+	if (jobId && fractalWaiter) {
+		sessionStorage.setItem("fractalJobId", jobId);
+		sessionStorage.setItem("fractalWaiter", fractalWaiter);
+	} else {
+		sessionStorage.removeItem("fractalJobId");
+		sessionStorage.removeItem("fractalWaiter");
+	}
+}
+
 /**
  * If the fractal is being generated, set the fractal image src to prevent
  * caching until it is done generating.
@@ -42,6 +86,54 @@ function update() {
 	}
 }
 
+/**
+ * Listen to the server's status events for a job, updating loadingMessage as they arrive
+ * and reloading the image on every new preview and once the job is done.
+ * The page's share of the job is given up once the page goes away (closing the stream).
+ * @param jobId ID of the job to follow.
+ */
+function followJobEvents(jobId) {
+	var loadingMessageElement = document.getElementById("loadingMessage");
+	var uri = "/jobs/" + encodeURIComponent(jobId) + "/events";
+	if (fractalWaiter) {
+		uri += "?waiter=" + encodeURIComponent(fractalWaiter);
+	}
+	var events = new EventSource(uri);
+	var previewDepth = 0;
+	events.addEventListener("status", function(event) {
+		var jobStatus = JSON.parse(event.data);
+		if (jobStatus.previewDepth != previewDepth && jobStatus.status == "GENERATING") {
+			previewDepth = jobStatus.previewDepth;
+			setImageSrc_noCache(); // show the preview
+		}
+		if (jobStatus.status == "DONE") {
+			events.close();
+			setImageSrc_noCache();
+			if (jobStatus.message) {
+				loadingMessageElement.textContent = jobStatus.message;
+			} else {
+				getLoadingMessage();
+			}
+		} else if (jobStatus.status == "CANCELLED") {
+			events.close();
+			loadingMessageElement.textContent = "Cancelled.";
+		} else if (jobStatus.status == "QUEUED") {
+			loadingMessageElement.textContent = "Queued...";
+		} else if (jobStatus.status == "ENCODING") {
+			loadingMessageElement.textContent = "Saving image...";
+		} else {
+			loadingMessageElement.textContent = "Generating... " + jobStatus.progress + "%"
+				+ (previewDepth > 0 ? " (showing depth " + previewDepth + ")" : "");
+		}
+	});
+	events.onerror = function() {
+		// Server went away or stream timed out: fall back to polling
+		events.close();
+		loadingMessageElement.textContent = "Generating...";
+		setInterval(update, 200);
+	};
+}
+
 /**
  * Sets element "fractalImage" to not cache while it is being generated on the server.
  */
@@ -56,19 +148,22 @@ function setImageSrc_noCache() {
 }
 
 /**
- * Asynchronously gets the value of the page model's attribute loadingMessage w/ AJAX,
+ * Asynchronously gets the loading message of the page's job w/ AJAX,
  * and sets doc element loadingMessage's text with its value.
  */
 function getLoadingMessage() {
+	if (!fractalJobId) {
+		return;
+	}
 	var xhttp = new XMLHttpRequest();
 	xhttp.onreadystatechange = function() {
 		if (this.readyState == 4 && this.status == 200) {
 			var loadingMessageElement = document
 					.getElementById("loadingMessage");
-			loadingMessageElement.innerHTML = this.responseText;
+			loadingMessageElement.textContent = this.responseText;
 		}
 	}
-	xhttp.open("GET", "/get-loading-message", true);
+	xhttp.open("GET", "/get-loading-message?job=" + encodeURIComponent(fractalJobId), true);
 	xhttp.send();
 }
 
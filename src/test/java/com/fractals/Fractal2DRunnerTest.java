@@ -0,0 +1,283 @@
+package com.fractals;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Fractal2DRunnerTest --- Contains tests for queueing, cancelling, caching, following the status and metrics of Fractal2DRunner jobs.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class Fractal2DRunnerTest 
+{
+	private Fractal2DRunner runner;
+	private JobRegistry jobRegistry;
+	private RenderCache renderCache;
+	private SimpleMeterRegistry registry;
+	private CountDownLatch release; //generation of every BlockingFractal waits until this is released
+	
+	/**
+	 * BlockingFractal --- Fractal2D stub whose generation waits for release
+	 * 					   and whose image is a single byte.
+	 */
+	private class BlockingFractal extends Fractal2D
+	{
+		private BlockingFractal(int width)
+		{
+			initialize(width, 1, 1, 0, 0);
+		}
+		
+		@Override
+		protected void draw() {}
+		
+		@Override
+		protected double[] computeFrontier(int maxNodes)
+		{
+			return null; //never deepened
+		}
+		
+		@Override
+		protected void drawFrontier(double[] frontier, int frontierCount, int iterationsRemaining) {}
+		
+		@Override
+		public void generate()
+		{
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		@Override
+		public byte[] encode(String imageType)
+		{
+			return new byte[] {(byte) width};
+		}
+	}
+	
+	@Before
+	public void setUp()
+	{
+		renderCache = new RenderCache(1024);
+		registry = new SimpleMeterRegistry();
+		jobRegistry = new JobRegistry(60000);
+		runner = new Fractal2DRunner(1, 1, 1, 0, jobRegistry, renderCache, new RenderMetrics(registry, renderCache));
+		release = new CountDownLatch(1);
+	}
+	
+	@After
+	public void tearDown()
+	{
+		release.countDown();
+		runner.shutdown();
+	}
+	
+	@Test
+	public void generateTest_queueFull()
+	{
+		// 1 running + 1 queued job fill a runner with 1 thread and a queue capacity of 1
+		runner.generateAndStore(new BlockingFractal(1));
+		runner.generateAndStore(new BlockingFractal(2));
+		try {
+			runner.generateAndStore(new BlockingFractal(3));
+			fail("Expected RenderQueueFullException");
+		} catch (RenderQueueFullException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void generateTest_coalesced() throws Exception
+	{
+		// 1. Equal requests share the job in flight, even with other jobs submitted in between
+		Fractal2DJob.Waiter first = runner.generateAndStore(new BlockingFractal(1));
+		Fractal2DJob other = runner.generateAndStore(new BlockingFractal(2)).getJob();
+		Fractal2DJob.Waiter joined = runner.generateAndStore(new BlockingFractal(1));
+		Fractal2DJob job = first.getJob();
+		assertEquals(job, joined.getJob());
+		assertNotEquals(job, other);
+		assertNotEquals(first.getToken(), joined.getToken());
+		assertEquals(2, job.getWaiters());
+		assertEquals(1, registry.get("fractals.render.coalesced").counter().count(), 0);
+		
+		// 2. The job is only cancelled once every waiter has cancelled it, and each waiter only leaves once
+		assertTrue(runner.cancel(job.getId(), first.getToken()));
+		assertFalse(runner.cancel(job.getId(), first.getToken()));
+		assertFalse(runner.cancel(job.getId(), "not-a-waiter"));
+		assertEquals(1, job.getWaiters());
+		assertFalse(job.getFractal2D().cancelled.get());
+		release.countDown();
+		assertEquals("Generated.", job.getFuture().get(10, TimeUnit.SECONDS));
+		other.getFuture().get(10, TimeUnit.SECONDS);
+		assertEquals(0, runner.getFlightCount());
+	}
+	
+	@Test
+	public void generateAndEncodeTest_coalesced() throws Exception
+	{
+		// 1. Equal requests share one generation, and it continues while any of them waits for it
+		CompletableFuture<byte[]> first = runner.generateAndEncode(new BlockingFractal(1), "png");
+		CompletableFuture<byte[]> second = runner.generateAndEncode(new BlockingFractal(1), "png");
+		assertEquals(1, runner.getFlightCount());
+		first.cancel(true);
+		release.countDown();
+		assertArrayEquals(new byte[] {1}, second.get(10, TimeUnit.SECONDS));
+		assertEquals(1, registry.get("fractals.render.generate").tag("type", "BlockingFractal").timer().count());
+		
+		// 2. Once every request has cancelled, the generation is cancelled and a new request starts afresh
+		release = new CountDownLatch(1);
+		BlockingFractal cancelled = new BlockingFractal(2);
+		CompletableFuture<byte[]> third = runner.generateAndEncode(cancelled, "png");
+		CompletableFuture<byte[]> fourth = runner.generateAndEncode(new BlockingFractal(2), "png");
+		third.cancel(true);
+		assertFalse(cancelled.cancelled.get());
+		fourth.cancel(true);
+		assertTrue(cancelled.cancelled.get());
+		assertEquals(0, runner.getFlightCount());
+	}
+	
+	@Test
+	public void generateTest_snapshotsOnlyPageJobs() throws Exception
+	{
+		Fractal2DRunner deepening = new Fractal2DRunner(1, 1, 1, 1 << 24, jobRegistry, renderCache, 
+														new RenderMetrics(registry, renderCache));
+		try {
+			// 1. Generations that are not page jobs keep no snapshot
+			deepening.generate(new FractalTree(200, 150, 6, Math.toRadians(60), 0.77, 40, 40)).get(10, TimeUnit.SECONDS);
+			assertEquals(0, deepening.getSnapshotCount());
+			
+			// 2. Page jobs do, and a deeper page job replaces it
+			deepening.generateAndStore(new FractalTree(200, 150, 6, Math.toRadians(60), 0.77, 40, 40))
+					 .getJob().getFuture().get(10, TimeUnit.SECONDS);
+			assertEquals(1, deepening.getSnapshotCount());
+			deepening.generateAndStore(new FractalTree(200, 150, 8, Math.toRadians(60), 0.77, 40, 40))
+					 .getJob().getFuture().get(10, TimeUnit.SECONDS);
+			assertEquals(1, deepening.getSnapshotCount());
+		} finally {
+			deepening.shutdown();
+		}
+	}
+	
+	@Test
+	public void cancelTest_onlyCancelsGivenJob() throws Exception
+	{
+		Fractal2DJob running = runner.generateAndStore(new BlockingFractal(1)).getJob();
+		Fractal2DJob.Waiter waiter = runner.generateAndStore(new BlockingFractal(2));
+		Fractal2DJob queued = waiter.getJob();
+		assertNotEquals(running.getId(), queued.getId());
+		
+		// 1. Cancelling the queued job leaves the running job alone
+		assertTrue(runner.cancel(queued.getId(), waiter.getToken()));
+		assertTrue(queued.getFractal2D().cancelled.get());
+		assertFalse(running.getFractal2D().cancelled.get());
+		assertFalse(runner.cancel(queued.getId(), waiter.getToken()));
+		
+		// 2. Running job still completes once released
+		release.countDown();
+		assertEquals("Generated.", running.getFuture().get(10, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void generateTest_cached() throws Exception
+	{
+		// 1. First job is generated and its image cached
+		release.countDown();
+		Fractal2DJob generated = runner.generateAndStore(new BlockingFractal(1)).getJob();
+		generated.getFuture().get(10, TimeUnit.SECONDS);
+		assertEquals(1, renderCache.getSize());
+		
+		// 2. Equal job is done from the cache without being queued
+		Fractal2DJob cached = runner.generateAndStore(new BlockingFractal(1)).getJob();
+		assertTrue(cached.getFuture().isDone());
+		assertEquals("Generated (cached).", cached.getFuture().get());
+		assertNull(runner.getJob(cached.getId()));
+		assertEquals(1, renderCache.getHits());
+		
+		// 3. Its image is served by render key
+		assertArrayEquals(new byte[] {1}, runner.getImage(cached.getRenderKey()));
+		assertNull(runner.getImage(new BlockingFractal(2).getRenderKey()));
+		assertEquals(1, renderCache.getHits()); //serving images is not counted
+	}
+	
+	@Test
+	public void generateTest_statusChanges() throws Exception
+	{
+		Fractal2DJob job = runner.generateAndStore(new BlockingFractal(1)).getJob();
+		List<Fractal2DJob.Status> statuses = new CopyOnWriteArrayList<>();
+		job.addListener((Fractal2DJob changed) -> statuses.add(changed.getStatus()));
+		
+		release.countDown();
+		job.getFuture().get(10, TimeUnit.SECONDS);
+		// GENERATING may have been reached before the listener was added
+		statuses.remove(Fractal2DJob.Status.GENERATING);
+		assertEquals(Arrays.asList(Fractal2DJob.Status.ENCODING, Fractal2DJob.Status.DONE), statuses);
+		assertEquals("Generated.", job.getMessage());
+		assertEquals(100, job.getProgress());
+		assertNull(runner.getJob(job.getId()));
+		assertEquals(job, runner.getRecentJob(job.getId()));
+		assertNotNull(job.getStarted());
+		assertFalse(job.getFinished().before(job.getStarted()));
+		
+		// The job expires from the registry once finished for longer than its TTL
+		jobRegistry.expire(job.getFinished().getTime() + jobRegistry.getTtl());
+		assertNull(runner.getRecentJob(job.getId()));
+	}
+	
+	@Test
+	public void cancelTest_statusCancelled()
+	{
+		runner.generateAndStore(new BlockingFractal(1));
+		Fractal2DJob.Waiter waiter = runner.generateAndStore(new BlockingFractal(2));
+		Fractal2DJob queued = waiter.getJob();
+		assertEquals(Fractal2DJob.Status.QUEUED, queued.getStatus());
+		
+		runner.cancel(queued.getId(), waiter.getToken());
+		assertEquals(Fractal2DJob.Status.CANCELLED, queued.getStatus());
+		assertEquals(queued, runner.getRecentJob(queued.getId()));
+	}
+	
+	@Test
+	public void generateTest_metrics() throws Exception
+	{
+		// 1. Running + queued jobs are published while waiting
+		Fractal2DJob running = runner.generateAndStore(new BlockingFractal(1)).getJob();
+		Fractal2DJob.Waiter queued = runner.generateAndStore(new BlockingFractal(2));
+		assertEquals(1, registry.get("fractals.jobs.queued").gauge().value(), 0);
+		runner.cancel(queued.getJob().getId(), queued.getToken());
+		assertEquals(1, registry.get("fractals.render.cancelled").tag("type", "BlockingFractal").counter().count(), 0);
+		
+		// 2. Each stage of a finished job is timed, and the bytes written counted
+		release.countDown();
+		running.getFuture().get(10, TimeUnit.SECONDS);
+		for(String stage : new String[] {"queue.wait", "generate", "encode", "write"}) {
+			assertEquals(stage, 1, registry.get("fractals.render." + stage).tag("type", "BlockingFractal").timer().count());
+		}
+		assertEquals(1, registry.get("fractals.render.bytes.written").counter().count(), 0);
+		
+		// 3. Cache hits and hit ratio
+		runner.generateAndStore(new BlockingFractal(1));
+		assertEquals(1, registry.get("fractals.cache.hits").functionCounter().count(), 0);
+		assertEquals(1.0 / 3, registry.get("fractals.cache.hit.ratio").gauge().value(), 1e-9); //a and b missed
+	}
+}
@@ -1,16 +1,30 @@
 package com.fractals;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 /**
- * FractalCircleTest --- Contains Tests for FractalCircle related to its equals method.
+ * FractalCircleTest --- Contains Tests for FractalCircle related to its equals method and generation.
  * @author Scott Wolfskill
  * @created     02/26/2019
- * @last_edit   02/26/2019
+ * @last_edit   10/18/2026
  */
 public class FractalCircleTest 
 {
@@ -64,4 +78,253 @@ public class FractalCircleTest
 			assertFalse(a.equals(other));
 		}
 	}
+	
+	@Test
+	public void getRenderKeyTest()
+	{
+		// Equal fractals have equal keys, and changing any one param changes the key
+		assertEquals(a.getRenderKey(), a_equals.getRenderKey());
+		for(FractalCircle other : b) {
+			assertNotEquals(a.getRenderKey(), other.getRenderKey());
+		}
+		assertNotEquals(a.getRenderKey(), fractalTree.getRenderKey());
+	}
+	
+	@Test
+	public void generateTest_parallelMatchesSerial()
+	{
+		FractalCircle serial = new FractalCircle(700, 500, 5, 6, 0.5, 40, 40);
+		serial.generate();
+		
+		// Both an explicit and an automatic split depth must give the same pixels as serial generation
+		for(int splitDepth : new int[] {1, 0}) {
+			FractalCircle parallel = new FractalCircle(700, 500, 5, 6, 0.5, 40, 40);
+			parallel.setParallelism(4, splitDepth);
+			parallel.generate();
+			assertArrayEquals(FractalTreeTest.pixels(serial), FractalTreeTest.pixels(parallel));
+		}
+	}
+	
+	@Test
+	public void generateTest_sharedRenderPool()
+	{
+		FractalCircle serial = new FractalCircle(700, 500, 5, 6, 0.5, 40, 40);
+		serial.generate();
+		
+		// Generations on a shared pool must give the same pixels as serial generation, and leave the pool running
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for(int i = 0; i < 2; i++) {
+				FractalCircle parallel = new FractalCircle(700, 500, 5, 6, 0.5, 40, 40);
+				parallel.setParallelism(4, 0);
+				parallel.setRenderPool(pool);
+				parallel.generate();
+				assertArrayEquals(FractalTreeTest.pixels(serial), FractalTreeTest.pixels(parallel));
+				assertFalse(pool.isShutdown());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void generateTest_parallelCancelled()
+	{
+		// A parallel generation cancelled once its first subtree is drawn must not composite anything
+		// drawn by its workers, leaving only the root circle drawn above splitDepth
+		FractalCircle partial = new FractalCircle(700, 500, 5, 6, 0.5, 40, 40) {
+			@Override
+			protected void drawParallel(List<Subtree> subtrees)
+			{
+				List<Subtree> cancelling = new ArrayList<Subtree>();
+				for(Subtree subtree : subtrees) {
+					cancelling.add((Fractal2DCanvas buffer) -> {
+						subtree.draw(buffer);
+						cancelled.set(true);
+					});
+				}
+				super.drawParallel(cancelling);
+			}
+		};
+		partial.setParallelism(4, 1);
+		partial.generate();
+		assertTrue(partial.cancelled.get());
+		assertTrue(partial.getNodesDrawn() > 1);
+		
+		FractalCircle rootOnly = new FractalCircle(700, 500, 1, 6, 0.5, 40, 40);
+		rootOnly.generate();
+		assertArrayEquals(FractalTreeTest.pixels(rootOnly), FractalTreeTest.pixels(partial));
+	}
+	
+	@Test
+	public void generateTest_directParallelMatchesSerial()
+	{
+		FractalCircle serial = new FractalCircle(700, 500, 5, 6, 0.5, 40, 40);
+		serial.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		serial.generate();
+		
+		FractalCircle parallel = new FractalCircle(700, 500, 5, 6, 0.5, 40, 40);
+		parallel.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		parallel.setParallelism(4, 0);
+		parallel.generate();
+		assertArrayEquals(FractalTreeTest.pixels(serial), FractalTreeTest.pixels(parallel));
+	}
+	
+	@Test
+	public void generateTest_culling()
+	{
+		// Many satellites with a large scaling factor, so that much of it lies off-canvas
+		FractalCircle unculled = new FractalCircle(500, 400, 6, 5, 0.6, 40, 40);
+		unculled.generate();
+		
+		// 1. Only culling off-canvas subtrees leaves the image unchanged
+		FractalCircle offCanvas = new FractalCircle(500, 400, 6, 5, 0.6, 40, 40);
+		offCanvas.setCulling(true, 0);
+		offCanvas.generate();
+		assertArrayEquals(FractalTreeTest.pixels(unculled), FractalTreeTest.pixels(offCanvas));
+		
+		// 2. Also culling sub-pixel subtrees changes almost nothing
+		FractalCircle subPixel = new FractalCircle(500, 400, 6, 5, 0.6, 40, 40);
+		subPixel.setCulling(true, 0.5);
+		subPixel.generate();
+		assertTrue(FractalTreeTest.countDifferentPixels(unculled, subPixel) < 0.001 * 500 * 400);
+	}
+	
+	@Test(timeout = 10000)
+	public void generateTest_cullingDeep()
+	{
+		// 6^30 circles without culling; only a few thousand are larger than a pixel
+		FractalCircle deep = new FractalCircle(500, 400, 30, 6, 0.3, 40, 40);
+		deep.setCulling(true, 0.5);
+		deep.generate();
+	}
+	
+	@Test
+	public void writeTiledTest_matchesUntiled() throws Exception
+	{
+		// Only DIRECT is pixel-exact: Graphics2D rasterizes translated ellipses slightly differently at tile edges
+		FractalCircle untiled = new FractalCircle(500, 400, 5, 4, 0.5, 40, 40);
+		untiled.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		untiled.generate();
+		
+		FractalCircle tiled = new FractalCircle(500, 400, 5, 4, 0.5, 40, 40);
+		tiled.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		tiled.writeTiled(output, 37);
+		BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(output.toByteArray()));
+		PngEncoderTest.assertImagesEqual(untiled.image, decoded);
+	}
+	
+	@Test
+	public void generateTest_progressiveMatchesDepthFirst()
+	{
+		for(Fractal2D.Rasterizer rasterizer : Fractal2D.Rasterizer.values()) {
+			FractalCircle depthFirst = new FractalCircle(500, 400, 6, 5, 0.4, 40, 40);
+			depthFirst.setRasterizer(rasterizer);
+			depthFirst.generate();
+			
+			FractalCircle progressive = new FractalCircle(500, 400, 6, 5, 0.4, 40, 40);
+			progressive.setRasterizer(rasterizer);
+			List<Integer> previewDepths = new ArrayList<>();
+			progressive.setPreviews(2, 0);
+			progressive.setPreviewListener((Fractal2D generating, int depth) -> previewDepths.add(depth));
+			progressive.generate();
+			assertEquals(Arrays.asList(2, 4), previewDepths);
+			assertArrayEquals(FractalTreeTest.pixels(depthFirst), FractalTreeTest.pixels(progressive));
+		}
+	}
+	
+	@Test
+	public void generateTest_timeBudget()
+	{
+		FractalCircle budgeted = new FractalCircle(500, 400, 12, 6, 0.4, 40, 40);
+		budgeted.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		budgeted.setTimeBudget(20);
+		budgeted.generate();
+		int depthReached = budgeted.getDepthReached();
+		assertTrue(depthReached >= 1 && depthReached < 12);
+		
+		FractalCircle shallow = new FractalCircle(500, 400, depthReached, 6, 0.4, 40, 40);
+		shallow.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		shallow.generate();
+		assertArrayEquals(FractalTreeTest.pixels(shallow), FractalTreeTest.pixels(budgeted));
+	}
+	
+	@Test
+	public void generateTest_deepenFrom()
+	{
+		for(int parallelism : new int[] {1, 4}) {
+			FractalCircle shallow = new FractalCircle(500, 400, 3, 5, 0.4, 40, 40);
+			shallow.generate();
+			RenderSnapshot snapshot = shallow.snapshot();
+			assertEquals(125, snapshot.getFrontierCount());
+			
+			FractalCircle full = new FractalCircle(500, 400, 6, 5, 0.4, 40, 40);
+			full.generate();
+			
+			FractalCircle deepened = new FractalCircle(500, 400, 6, 5, 0.4, 40, 40);
+			deepened.setParallelism(parallelism, 0);
+			assertTrue(deepened.deepenFrom(snapshot));
+			deepened.generate();
+			assertEquals((1 + 5 + 25 + 125 + 625 + 3125) - (1 + 5 + 25), deepened.nodesDrawn.sum());
+			assertArrayEquals(FractalTreeTest.pixels(full), FractalTreeTest.pixels(deepened));
+		}
+	}
+	
+	@Test
+	public void generateTest_symmetric() throws Exception
+	{
+		// 4 satellites on a square canvas: a quarter of them are drawn and turned by 90, 180 and 270 degrees;
+		// on another canvas, half of them are drawn and turned by 180 degrees
+		for(int width : new int[] {400, 500}) {
+			int turns = width == 400 ? 4 : 2;
+			FractalCircle full = new FractalCircle(width, 400, 6, 4, 0.4, 40, 40);
+			full.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+			full.generate();
+			
+			FractalCircle symmetric = new FractalCircle(width, 400, 6, 4, 0.4, 40, 40);
+			symmetric.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+			symmetric.setSymmetric(true);
+			symmetric.generate();
+			assertEquals(1 + 1364 / turns, symmetric.nodesDrawn.sum());
+			assertEquals(1 + 1364 / turns, symmetric.estimateCost().getNodes(), 0);
+			assertNotEquals(full.getRenderKey(), symmetric.getRenderKey());
+			int centerX = width / 2, centerY = 200;
+			for(int y = 0; y < 400; y++) {
+				for(int x = 0; x < width; x++) {
+					int turnedX = turns == 4 ? centerX + centerY - y : 2 * centerX - x;
+					int turnedY = turns == 4 ? centerY - centerX + x : 2 * centerY - y;
+					if(turnedX < width && turnedY < 400) {
+						assertEquals(symmetric.image.getRGB(x, y), symmetric.image.getRGB(turnedX, turnedY));
+					}
+				}
+			}
+			FractalTreeTest.assertWithinPixel(full.image, symmetric.image);
+			FractalTreeTest.assertWithinPixel(symmetric.image, full.image);
+			
+			// The same image in tiles (each turned from other rows of the canvas) and in other pixel formats
+			FractalCircle tiled = new FractalCircle(width, 400, 6, 4, 0.4, 40, 40);
+			tiled.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+			tiled.setSymmetric(true);
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			tiled.writeTiled(output, 37);
+			BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(output.toByteArray()));
+			PngEncoderTest.assertImagesEqual(symmetric.image, decoded);
+			
+			FractalCircle binary = new FractalCircle(width, 400, 6, 4, 0.4, 40, 40);
+			binary.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+			binary.setPixelFormat(Fractal2D.PixelFormat.BINARY);
+			binary.setSymmetric(true);
+			binary.generate();
+			PngEncoderTest.assertImagesEqual(symmetric.image, binary.image);
+		}
+		
+		// 5 satellites have no symmetry the pixel grid allows, so every circle is drawn
+		FractalCircle odd = new FractalCircle(400, 400, 5, 5, 0.4, 40, 40);
+		FractalCircle oddSymmetric = new FractalCircle(400, 400, 5, 5, 0.4, 40, 40);
+		oddSymmetric.setSymmetric(true);
+		assertEquals(odd.getRenderKey(), oddSymmetric.getRenderKey());
+		oddSymmetric.generate();
+		assertEquals(1 + 5 + 25 + 125 + 625, oddSymmetric.nodesDrawn.sum());
+	}
 }
@@ -1,16 +1,30 @@
 package com.fractals;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 /**
- * FractalTreeTest --- Contains Tests for FractalTree related to its equals method.
+ * FractalTreeTest --- Contains Tests for FractalTree related to its equals method and generation.
  * @author Scott Wolfskill
  * @created     02/26/2019
- * @last_edit   02/26/2019
+ * @last_edit   10/18/2026
  */
 public class FractalTreeTest 
 {
@@ -64,4 +78,365 @@ public class FractalTreeTest
 			assertFalse(a.equals(other));
 		}
 	}
+	
+	@Test
+	public void getRenderKeyTest()
+	{
+		// Equal fractals have equal keys, and changing any one param changes the key
+		assertEquals(a.getRenderKey(), a_equals.getRenderKey());
+		for(FractalTree other : b) {
+			assertNotEquals(a.getRenderKey(), other.getRenderKey());
+		}
+		assertNotEquals(a.getRenderKey(), fractalCircle.getRenderKey());
+		
+		// Rasterizer changes the generated image, so it must change the key too
+		FractalTree direct = new FractalTree(1, 2, 3, 4, 5, 6, 7);
+		direct.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		assertNotEquals(a.getRenderKey(), direct.getRenderKey());
+	}
+	
+	@Test
+	public void generateTest_parallelMatchesSerial()
+	{
+		FractalTree serial = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+		serial.generate();
+		
+		// Both an explicit and an automatic split depth must give the same pixels as serial generation
+		for(int splitDepth : new int[] {3, 0}) {
+			FractalTree parallel = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+			parallel.setParallelism(4, splitDepth);
+			parallel.generate();
+			assertArrayEquals(pixels(serial), pixels(parallel));
+		}
+	}
+	
+	@Test
+	public void generateTest_culling()
+	{
+		// Tree with a large scaling factor, so that much of it lies off-canvas
+		FractalTree unculled = new FractalTree(400, 300, 14, Math.toRadians(40), 0.85, 40, 40);
+		unculled.generate();
+		
+		// 1. Only culling off-canvas subtrees leaves the image unchanged
+		FractalTree offCanvas = new FractalTree(400, 300, 14, Math.toRadians(40), 0.85, 40, 40);
+		offCanvas.setCulling(true, 0);
+		offCanvas.generate();
+		assertArrayEquals(pixels(unculled), pixels(offCanvas));
+		
+		// 2. Also culling sub-pixel subtrees changes almost nothing
+		FractalTree subPixel = new FractalTree(400, 300, 14, Math.toRadians(40), 0.85, 40, 40);
+		subPixel.setCulling(true, 0.5);
+		subPixel.generate();
+		assertTrue(countDifferentPixels(unculled, subPixel) < 0.001 * 400 * 300);
+	}
+	
+	@Test(timeout = 10000)
+	public void generateTest_cullingDeep()
+	{
+		// 2^40 segments without culling; only a few thousand are larger than a pixel
+		FractalTree deep = new FractalTree(400, 300, 40, Math.toRadians(60), 0.6, 40, 40);
+		deep.setCulling(true, 0.5);
+		deep.generate();
+	}
+	
+	@Test
+	public void writeTiledTest_matchesUntiled() throws Exception
+	{
+		for(Fractal2D.Rasterizer rasterizer : Fractal2D.Rasterizer.values()) {
+			FractalTree untiled = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+			untiled.setRasterizer(rasterizer);
+			untiled.generate();
+			
+			// Tile height that doesn't divide the image height, so that the last tile is smaller
+			FractalTree tiled = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+			tiled.setRasterizer(rasterizer);
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			tiled.writeTiled(output, 37);
+			BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(output.toByteArray()));
+			PngEncoderTest.assertImagesEqual(untiled.image, decoded);
+		}
+	}
+	
+	@Test
+	public void generateTest_progressiveMatchesDepthFirst()
+	{
+		for(Fractal2D.Rasterizer rasterizer : Fractal2D.Rasterizer.values()) {
+			for(boolean culling : new boolean[] {false, true}) {
+				FractalTree depthFirst = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+				depthFirst.setRasterizer(rasterizer);
+				depthFirst.setCulling(culling, 0.5);
+				depthFirst.generate();
+				
+				FractalTree progressive = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+				progressive.setRasterizer(rasterizer);
+				progressive.setCulling(culling, 0.5);
+				List<Integer> previewDepths = new ArrayList<>();
+				progressive.setPreviews(5, 0);
+				progressive.setPreviewListener((Fractal2D generating, int depth) -> previewDepths.add(depth));
+				progressive.generate();
+				assertEquals(Arrays.asList(5, 10), previewDepths);
+				assertArrayEquals(pixels(depthFirst), pixels(progressive));
+			}
+		}
+	}
+	
+	@Test
+	public void generateTest_progressiveDepthFirstPastMaxFrontier()
+	{
+		// 2^19 nodes on the 20th level: levels past the 19th are drawn depth-first, without previews
+		FractalTree depthFirst = new FractalTree(300, 300, 20, Math.toRadians(60), 0.77, 40, 40);
+		depthFirst.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		depthFirst.generate();
+		
+		FractalTree progressive = new FractalTree(300, 300, 20, Math.toRadians(60), 0.77, 40, 40);
+		progressive.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		List<Integer> previewDepths = new ArrayList<>();
+		progressive.setPreviews(1, 0);
+		progressive.setPreviewListener((Fractal2D generating, int depth) -> previewDepths.add(depth));
+		progressive.generate();
+		assertEquals(18, previewDepths.size());
+		assertArrayEquals(pixels(depthFirst), pixels(progressive));
+	}
+	
+	@Test
+	public void estimateCostTest()
+	{
+		// 1. Without culling, every node is drawn
+		FractalTree unculled = new FractalTree(500, 500, 12, Math.toRadians(60), 0.77, 40, 40);
+		assertEquals(4095, unculled.estimateCost().getNodes(), 0);
+		unculled.generate();
+		assertEquals(4095, unculled.nodesDrawn.sum());
+		
+		// 2. With culling, the estimate only leaves out levels that are culled (off-canvas subtrees are not estimated)
+		FractalTree culled = new FractalTree(500, 500, 30, Math.toRadians(60), 0.77, 40, 40);
+		culled.setCulling(true, 0.5);
+		RenderCost cost = culled.estimateCost();
+		assertTrue(cost.getLevels() < 30);
+		culled.generate();
+		assertTrue(cost.getNodes() >= culled.nodesDrawn.sum());
+		assertEquals(500 * 500 * 4, cost.getRasterBytes());
+	}
+	
+	@Test
+	public void generateTest_timeBudget()
+	{
+		for(long timeBudget : new long[] {1, 20, 100}) {
+			FractalTree budgeted = new FractalTree(500, 500, 26, Math.toRadians(60), 0.77, 40, 40);
+			budgeted.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+			budgeted.setTimeBudget(timeBudget);
+			budgeted.generate();
+			int depthReached = budgeted.getDepthReached();
+			assertTrue(depthReached >= 1 && depthReached < 26);
+			
+			// Image is complete down to depthReached, with nothing of the level that ran out of time
+			FractalTree shallow = new FractalTree(500, 500, depthReached, Math.toRadians(60), 0.77, 40, 40);
+			shallow.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+			shallow.generate();
+			assertArrayEquals(pixels(shallow), pixels(budgeted));
+		}
+		
+		// Enough time for every level
+		FractalTree unlimited = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+		unlimited.setTimeBudget(60000);
+		unlimited.generate();
+		assertEquals(12, unlimited.getDepthReached());
+	}
+	
+	public static int countDifferentPixels(Fractal2D a, Fractal2D b)
+	{
+		int[] aPixels = pixels(a);
+		int[] bPixels = pixels(b);
+		int different = 0;
+		for(int i = 0; i < aPixels.length; i++) {
+			if(aPixels[i] != bPixels[i]) {
+				different++;
+			}
+		}
+		return different;
+	}
+	
+	public static int[] pixels(Fractal2D fractal2D)
+	{
+		return ((DataBufferInt) fractal2D.image.getRaster().getDataBuffer()).getData();
+	}
+	
+	@Test
+	public void generateTest_symmetric() throws Exception
+	{
+		for(Fractal2D.Rasterizer rasterizer : Fractal2D.Rasterizer.values()) {
+			for(int width : new int[] {400, 401}) {
+				FractalTree full = new FractalTree(width, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+				full.setRasterizer(rasterizer);
+				full.generate();
+				
+				// 1. Only the 1st segment and the left subtree are drawn, and mirrored exactly
+				FractalTree symmetric = new FractalTree(width, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+				symmetric.setRasterizer(rasterizer);
+				symmetric.setSymmetric(true);
+				symmetric.generate();
+				assertEquals(1 + 4094 / 2, symmetric.nodesDrawn.sum());
+				assertNotEquals(full.getRenderKey(), symmetric.getRenderKey());
+				for(int y = 0; y < 300; y++) {
+					for(int x = 2 * (width / 2) - (width - 1); x < width; x++) {
+						assertEquals(symmetric.image.getRGB(x, y), symmetric.image.getRGB(2 * (width / 2) - x, y));
+					}
+				}
+				//Mirrored segments may be rounded differently than drawing them would, but only by a pixel
+				assertWithinPixel(full.image, symmetric.image);
+				assertWithinPixel(symmetric.image, full.image);
+				
+				// 2. The same image in parallel, progressively, in tiles and deepened
+				FractalTree parallel = new FractalTree(width, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+				parallel.setRasterizer(rasterizer);
+				parallel.setSymmetric(true);
+				parallel.setParallelism(4, 0);
+				parallel.generate();
+				assertArrayEquals(pixels(symmetric), pixels(parallel));
+				
+				FractalTree progressive = new FractalTree(width, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+				progressive.setRasterizer(rasterizer);
+				progressive.setSymmetric(true);
+				progressive.setPreviews(5, 0);
+				progressive.setPreviewListener((Fractal2D generating, int depth) -> {});
+				progressive.generate();
+				assertArrayEquals(pixels(symmetric), pixels(progressive));
+				
+				FractalTree tiled = new FractalTree(width, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+				tiled.setRasterizer(rasterizer);
+				tiled.setSymmetric(true);
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				tiled.writeTiled(output, 37);
+				PngEncoderTest.assertImagesEqual(symmetric.image, ImageIO.read(new ByteArrayInputStream(output.toByteArray())));
+				
+				FractalTree shallow = new FractalTree(width, 300, 8, Math.toRadians(60), 0.77, 40, 40);
+				shallow.setRasterizer(rasterizer);
+				shallow.setSymmetric(true);
+				shallow.generate();
+				FractalTree deepened = new FractalTree(width, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+				deepened.setRasterizer(rasterizer);
+				deepened.setSymmetric(true);
+				assertTrue(deepened.deepenFrom(shallow.snapshot()));
+				deepened.generate();
+				assertEquals((4095 - 255) / 2, deepened.nodesDrawn.sum());
+				assertArrayEquals(pixels(symmetric), pixels(deepened));
+			}
+		}
+		
+		// Half the nodes are estimated to be drawn
+		FractalTree symmetric = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+		symmetric.setSymmetric(true);
+		assertEquals(1 + 4094 / 2, symmetric.estimateCost().getNodes(), 0);
+	}
+	
+	/**
+	 * Check that every drawn pixel of expected is at most 1px away from a drawn pixel of actual.
+	 */
+	public static void assertWithinPixel(BufferedImage expected, BufferedImage actual)
+	{
+		for(int y = 0; y < expected.getHeight(); y++) {
+			for(int x = 0; x < expected.getWidth(); x++) {
+				if((expected.getRGB(x, y) & 0xFFFFFF) == 0) {
+					continue;
+				}
+				boolean near = false;
+				for(int nearY = Math.max(y - 1, 0); nearY <= Math.min(y + 1, actual.getHeight() - 1); nearY++) {
+					for(int nearX = Math.max(x - 1, 0); nearX <= Math.min(x + 1, actual.getWidth() - 1); nearX++) {
+						near |= (actual.getRGB(nearX, nearY) & 0xFFFFFF) != 0;
+					}
+				}
+				assertTrue("Pixel (" + x + ", " + y + ") is not within 1px", near);
+			}
+		}
+	}
+	
+	@Test
+	public void generateTest_directParallelMatchesSerial()
+	{
+		FractalTree serial = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+		serial.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		serial.generate();
+		
+		FractalTree parallel = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+		parallel.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+		parallel.setParallelism(4, 0);
+		parallel.generate();
+		assertArrayEquals(pixels(serial), pixels(parallel));
+	}
+	
+	@Test
+	public void generateTest_pixelFormats()
+	{
+		for(Fractal2D.Rasterizer rasterizer : Fractal2D.Rasterizer.values()) {
+			FractalTree rgb = new FractalTree(401, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+			rgb.setRasterizer(rasterizer);
+			rgb.generate();
+			
+			// Indexed images hold the same pixels as RGB ones, serially or in parallel (1-bit ones only when DIRECT)
+			for(Fractal2D.PixelFormat pixelFormat : new Fractal2D.PixelFormat[] {Fractal2D.PixelFormat.INDEXED, 
+																				 Fractal2D.PixelFormat.BINARY}) {
+				if(pixelFormat == Fractal2D.PixelFormat.BINARY && rasterizer != Fractal2D.Rasterizer.DIRECT) {
+					continue;
+				}
+				for(int parallelism : new int[] {1, 4}) {
+					FractalTree indexed = new FractalTree(401, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+					indexed.setRasterizer(rasterizer);
+					indexed.setPixelFormat(pixelFormat);
+					indexed.setParallelism(parallelism, 0);
+					indexed.generate();
+					assertEquals(pixelFormat == Fractal2D.PixelFormat.BINARY ? BufferedImage.TYPE_BYTE_BINARY 
+																			   : BufferedImage.TYPE_BYTE_INDEXED, 
+								 indexed.image.getType());
+					PngEncoderTest.assertImagesEqual(rgb.image, indexed.image);
+				}
+			}
+		}
+		
+		// 1 bit per pixel takes 32x less memory
+		FractalTree binary = new FractalTree(800, 600, 12, Math.toRadians(60), 0.77, 40, 40);
+		FractalTree rgb = new FractalTree(800, 600, 12, Math.toRadians(60), 0.77, 40, 40);
+		binary.setPixelFormat(Fractal2D.PixelFormat.BINARY);
+		assertEquals(rgb.estimateCost().getRasterBytes(), 32 * binary.estimateCost().getRasterBytes());
+	}
+	
+	@Test
+	public void generateTest_deepenFrom()
+	{
+		for(Fractal2D.Rasterizer rasterizer : Fractal2D.Rasterizer.values()) {
+			for(int parallelism : new int[] {1, 4}) {
+				FractalTree shallow = new FractalTree(400, 300, 8, Math.toRadians(60), 0.77, 40, 40);
+				shallow.setRasterizer(rasterizer);
+				shallow.generate();
+				RenderSnapshot snapshot = shallow.snapshot();
+				assertEquals(8, snapshot.getDepth());
+				assertEquals(256, snapshot.getFrontierCount());
+				
+				FractalTree full = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+				full.setRasterizer(rasterizer);
+				full.generate();
+				
+				// Only the 4 new levels are drawn, onto a copy of the shallow image
+				FractalTree deepened = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+				deepened.setRasterizer(rasterizer);
+				deepened.setParallelism(parallelism, 0);
+				assertEquals(shallow.getDeepeningKey(), deepened.getDeepeningKey());
+				assertTrue(deepened.deepenFrom(snapshot));
+				deepened.generate();
+				assertEquals(4095 - 255, deepened.nodesDrawn.sum());
+				assertEquals(12, deepened.getDepthReached());
+				assertArrayEquals(pixels(full), pixels(deepened));
+			}
+		}
+		
+		// Not from a snapshot of other parameters, nor of as many iterations, nor with culling
+		FractalTree shallow = new FractalTree(400, 300, 8, Math.toRadians(60), 0.77, 40, 40);
+		shallow.generate();
+		RenderSnapshot snapshot = shallow.snapshot();
+		assertFalse(new FractalTree(400, 300, 12, Math.toRadians(45), 0.77, 40, 40).deepenFrom(snapshot));
+		assertFalse(new FractalTree(400, 300, 8, Math.toRadians(60), 0.77, 40, 40).deepenFrom(snapshot));
+		FractalTree culled = new FractalTree(400, 300, 12, Math.toRadians(60), 0.77, 40, 40);
+		culled.setCulling(true, 0.5);
+		assertFalse(culled.deepenFrom(snapshot));
+		culled.generate();
+		assertNull(culled.snapshot());
+	}
 }
@@ -8,7 +8,7 @@ import org.junit.Test;
  * HelperTest --- Contains tests for Helper class static methods.
  * @author Scott Wolfskill
  * @created     02/26/2019
- * @last_edit   02/26/2019
+ * @last_edit   10/18/2026
  */
 public class HelperTest 
 {
@@ -43,4 +43,11 @@ public class HelperTest
 		//3. Full: extract directories from path with filename
 		assertEquals(dirs, Helper.getDirectoriesFromPath(dirs + filename));
 	}
+	
+	@Test
+	public void sha256HexTest()
+	{
+		assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", Helper.sha256Hex(""));
+		assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", Helper.sha256Hex("abc"));
+	}
 }
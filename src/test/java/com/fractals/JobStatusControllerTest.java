@@ -0,0 +1,102 @@
+package com.fractals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * JobStatusControllerTest --- Contains tests for the job status events streamed by JobStatusController,
+ * 						   for looking up the status of a job once, and for cancelling a waiter's share of a job.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class JobStatusControllerTest 
+{
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private Fractal2DRunner fractal2DRunner;
+	
+	@Test
+	public void jobEventsTest_unknownJob() throws Exception
+	{
+		String events = streamEvents("/jobs/no-such-job/events");
+		assertTrue(events, events.contains("\"status\":\"DONE\""));
+	}
+	
+	@Test
+	public void jobEventsTest_finishedJob() throws Exception
+	{
+		FractalTree fractalTree = new FractalTree(200, 200, 6, Math.toRadians(60), 0.77, 40, 40);
+		Fractal2DJob job = fractal2DRunner.generateAndStore(fractalTree).getJob();
+		job.getFuture().get(10, TimeUnit.SECONDS);
+		
+		String events = streamEvents("/jobs/" + job.getId() + "/events");
+		assertTrue(events, events.startsWith("event:status"));
+		assertTrue(events, events.contains("\"status\":\"DONE\",\"progress\":100"));
+	}
+	
+	@Test
+	public void jobStatusTest() throws Exception
+	{
+		FractalTree fractalTree = new FractalTree(210, 200, 6, Math.toRadians(60), 0.77, 40, 40);
+		Fractal2DJob job = fractal2DRunner.generateAndStore(fractalTree).getJob();
+		job.getFuture().get(10, TimeUnit.SECONDS);
+		
+		// Each job's own status and loading message are looked up by its ID
+		mockMvc.perform(get("/jobs/" + job.getId()))
+			   .andExpect(status().isOk())
+			   .andExpect(jsonPath("$.id").value(job.getId()))
+			   .andExpect(jsonPath("$.status").value("DONE"))
+			   .andExpect(jsonPath("$.finished").isNumber())
+			   .andExpect(jsonPath("$.image").value("/store/" + job.getRenderKey() + ".png"));
+		mockMvc.perform(get("/get-loading-message?job=" + job.getId()))
+			   .andExpect(status().isOk())
+			   .andExpect(content().string(job.getMessage()));
+		
+		mockMvc.perform(get("/jobs/no-such-job")).andExpect(status().isNotFound());
+		mockMvc.perform(get("/get-loading-message?job=no-such-job")).andExpect(status().isNotFound());
+	}
+	
+	@Test
+	public void cancelJobTest() throws Exception
+	{
+		FractalTree fractalTree = new FractalTree(2000, 2000, 22, Math.toRadians(60), 0.77, 40, 40);
+		Fractal2DJob.Waiter waiter = fractal2DRunner.generateAndStore(fractalTree);
+		String uri = "/jobs/" + waiter.getJob().getId();
+		
+		// Only the job's own waiter cancels it, and only once
+		mockMvc.perform(delete(uri).param("waiter", "not-a-waiter")).andExpect(status().isNotFound());
+		mockMvc.perform(delete(uri).param("waiter", waiter.getToken())).andExpect(status().isNoContent());
+		assertEquals(Fractal2DJob.Status.CANCELLED, waiter.getJob().getStatus());
+		mockMvc.perform(delete(uri).param("waiter", waiter.getToken())).andExpect(status().isNotFound());
+	}
+	
+	private String streamEvents(String uri) throws Exception
+	{
+		MvcResult started = mockMvc.perform(get(uri)).andExpect(request().asyncStarted()).andReturn();
+		MvcResult completed = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+		return completed.getResponse().getContentAsString();
+	}
+}
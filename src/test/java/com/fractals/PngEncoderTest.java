@@ -0,0 +1,201 @@
+package com.fractals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+/**
+ * PngEncoderTest --- Contains tests that PNGs encoded by PngEncoder, serially or in parallel,
+ * 					  decode with a standard reader (ImageIO) and hold a valid zlib stream.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class PngEncoderTest 
+{
+	@Test
+	public void writeRowsTest()
+	{
+		// Random pixels, so that image data spans several IDAT chunks
+		BufferedImage expected = randomImage(300, 200);
+		for(int level : new int[] {Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION}) {
+			assertImagesEqual(expected, encodeInBlocks(expected, 64, level));
+		}
+	}
+	
+	@Test
+	public void writeRowsTest_parallel()
+	{
+		// Tall enough for several parallel blocks per writeRows, and rows written in tiles that split blocks unevenly
+		BufferedImage expected = randomImage(300, 1000);
+		for(int level : new int[] {Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, 
+								   Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION}) {
+			byte[] png = encode(expected, 333, level, ForkJoinPool.commonPool());
+			assertImagesEqual(expected, decode(png));
+			assertValidImageData(png, 1000 * (1 + 3 * 300));
+		}
+	}
+	
+	@Test
+	public void writeRowsTest_parallelCompression()
+	{
+		// Each parallel block is primed with the data before it, so compresses about as well as serially
+		FractalTree fractalTree = new FractalTree(800, 800, 14, Math.toRadians(60), 0.77, 40, 40);
+		fractalTree.generate();
+		int serialLength = encode(fractalTree.image, 800, Deflater.BEST_COMPRESSION, null).length;
+		byte[] png = encode(fractalTree.image, 800, Deflater.BEST_COMPRESSION, ForkJoinPool.commonPool());
+		assertImagesEqual(fractalTree.image, decode(png));
+		assertTrue(png.length + " vs. " + serialLength, png.length < serialLength * 1.1);
+	}
+	
+	@Test
+	public void writeRowsTest_palette()
+	{
+		// Odd width, so that 1-bit rows end partway through a byte
+		FractalTree fractalTree = new FractalTree(301, 300, 10, Math.toRadians(60), 0.77, 40, 40);
+		fractalTree.generate();
+		byte[] rgbPng = encode(fractalTree.image, 300, Deflater.DEFAULT_COMPRESSION, null);
+		for(Fractal2D.PixelFormat pixelFormat : new Fractal2D.PixelFormat[] {Fractal2D.PixelFormat.INDEXED, 
+																			 Fractal2D.PixelFormat.BINARY}) {
+			fractalTree.setPixelFormat(pixelFormat);
+			BufferedImage indexed = fractalTree.createImage(301, 300);
+			indexed.getGraphics().drawImage(fractalTree.image, 0, 0, null);
+			for(Executor executor : new Executor[] {null, ForkJoinPool.commonPool()}) {
+				byte[] png = encode(indexed, 64, Deflater.DEFAULT_COMPRESSION, executor);
+				assertImagesEqual(fractalTree.image, decode(png));
+				assertTrue(png.length + " vs. " + rgbPng.length, png.length < rgbPng.length);
+			}
+		}
+	}
+	
+	@Test
+	public void combineAdler32Test()
+	{
+		byte[] data = new byte[100000];
+		new Random(42).nextBytes(data);
+		Adler32 first = new Adler32();
+		first.update(data, 0, 30000);
+		Adler32 second = new Adler32();
+		second.update(data, 30000, 70000);
+		Adler32 both = new Adler32();
+		both.update(data, 0, data.length);
+		assertEquals(both.getValue(), PngEncoder.combineAdler32(first.getValue(), second.getValue(), 70000));
+	}
+	
+	public static BufferedImage randomImage(int width, int height)
+	{
+		Random random = new Random(42);
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				image.setRGB(x, y, random.nextInt(0x1000000));
+			}
+		}
+		return image;
+	}
+	
+	public static void assertImagesEqual(BufferedImage expected, BufferedImage actual)
+	{
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		for(int y = 0; y < expected.getHeight(); y++) {
+			for(int x = 0; x < expected.getWidth(); x++) {
+				assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+	
+	/**
+	 * Encode image with a PngEncoder, blockHeight rows at a time, and decode it with ImageIO.
+	 */
+	private static BufferedImage encodeInBlocks(BufferedImage image, int blockHeight, int level)
+	{
+		return decode(encode(image, blockHeight, level, null));
+	}
+	
+	/**
+	 * Encode image with a PngEncoder (in parallel on executor, if not null), blockHeight rows at a time.
+	 */
+	private static byte[] encode(BufferedImage image, int blockHeight, int level, Executor executor)
+	{
+		try {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			IndexColorModel palette = image.getColorModel() instanceof IndexColorModel 
+									  ? (IndexColorModel) image.getColorModel() : null;
+			PngEncoder encoder = new PngEncoder(output, image.getWidth(), image.getHeight(), palette, level, executor);
+			for(int y = 0; y < image.getHeight(); y += blockHeight) {
+				int rows = Math.min(blockHeight, image.getHeight() - y);
+				BufferedImage block = palette != null 
+									  ? new BufferedImage(image.getWidth(), rows, image.getType(), palette)
+									  : new BufferedImage(image.getWidth(), rows, BufferedImage.TYPE_INT_RGB);
+				block.getGraphics().drawImage(image, 0, -y, null);
+				encoder.writeRows(block);
+			}
+			encoder.finish();
+			return output.toByteArray();
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	private static BufferedImage decode(byte[] png)
+	{
+		try {
+			return ImageIO.read(new ByteArrayInputStream(png));
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	/**
+	 * Assert that the IDAT chunks of png hold a complete zlib stream (ImageIO stops reading before
+	 * its trailer) of uncompressedLength bytes, which Inflater checks against the Adler-32 in the trailer.
+	 */
+	private static void assertValidImageData(byte[] png, int uncompressedLength)
+	{
+		try {
+			DataInputStream input = new DataInputStream(new ByteArrayInputStream(png));
+			input.skipBytes(8); //signature
+			ByteArrayOutputStream imageData = new ByteArrayOutputStream();
+			while(input.available() > 0) {
+				byte[] data = new byte[input.readInt()];
+				byte[] type = new byte[4];
+				input.readFully(type);
+				input.readFully(data);
+				input.readInt(); //CRC
+				if(new String(type, StandardCharsets.US_ASCII).equals("IDAT")) {
+					imageData.write(data);
+				}
+			}
+			Inflater inflater = new Inflater();
+			inflater.setInput(imageData.toByteArray());
+			byte[] uncompressed = new byte[uncompressedLength + 1];
+			int length = 0;
+			while(!inflater.finished() && length < uncompressed.length) {
+				length += inflater.inflate(uncompressed, length, uncompressed.length - length);
+			}
+			assertTrue(inflater.finished());
+			assertEquals(uncompressedLength, length);
+			assertEquals(0, inflater.getRemaining());
+			inflater.end();
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.fractals;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * RasterCanvasTest --- Contains tests for the lines and ellipses drawn by RasterCanvas.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class RasterCanvasTest 
+{
+	private static final int color = 0xFFFFFF;
+	private BufferedImage image;
+	private RasterCanvas canvas;
+	
+	@Before
+	public void setUp()
+	{
+		image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+		canvas = new RasterCanvas(image, color);
+	}
+	
+	@Test
+	public void drawLineTest()
+	{
+		//1. Horizontal line covers every pixel between (and including) its endpoints
+		canvas.drawLine(2, 3, 6, 3);
+		for(int x = 0; x < 20; x++) {
+			assertEquals((x >= 2 && x <= 6) ? color : 0, pixel(x, 3));
+		}
+		
+		//2. Diagonal line drawn in either direction gives the same pixels
+		BufferedImage reversed = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+		canvas.drawLine(1, 1, 9, 5);
+		new RasterCanvas(reversed, color).drawLine(9, 5, 1, 1);
+		new RasterCanvas(reversed, color).drawLine(2, 3, 6, 3);
+		assertArrayEquals(data(image), data(reversed));
+	}
+	
+	@Test
+	public void drawLineTest_clipped()
+	{
+		//1. Line crossing the whole image is clipped to it
+		canvas.drawLine(-100, 5, 100, 5);
+		for(int x = 0; x < 20; x++) {
+			assertEquals(color, pixel(x, 5));
+		}
+		
+		//2. Lines entirely outside of the image draw nothing
+		BufferedImage blank = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+		RasterCanvas blankCanvas = new RasterCanvas(blank, color);
+		blankCanvas.drawLine(-10, -10, -1, -5);
+		blankCanvas.drawLine(25, 0, 30, 9);
+		blankCanvas.drawLine(Double.NaN, 0, 5, 5);
+		assertArrayEquals(new int[20 * 10], data(blank));
+	}
+	
+	@Test
+	public void drawEllipseTest()
+	{
+		//1. Circle touches its 4 extreme points, but not its center
+		canvas.drawEllipse(10, 5, 8, 8);
+		assertEquals(color, pixel(14, 5));
+		assertEquals(color, pixel(6, 5));
+		assertEquals(color, pixel(10, 9));
+		assertEquals(color, pixel(10, 1));
+		assertEquals(0, pixel(10, 5));
+		
+		//2. Ellipse touches its 4 extreme points
+		BufferedImage ellipseImage = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+		new RasterCanvas(ellipseImage, color).drawEllipse(10, 5, 16, 6);
+		int[] ellipse = data(ellipseImage);
+		assertEquals(color, ellipse[5 * 20 + 18]);
+		assertEquals(color, ellipse[5 * 20 + 2]);
+		assertEquals(color, ellipse[8 * 20 + 10]);
+		assertEquals(color, ellipse[2 * 20 + 10]);
+		
+		//3. Circle partially outside of the image is clipped to it without error
+		canvas.drawEllipse(0, 0, 30, 30);
+	}
+	
+	private int pixel(int x, int y)
+	{
+		return image.getRGB(x, y) & 0xFFFFFF;
+	}
+	
+	private static int[] data(BufferedImage image)
+	{
+		return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+}
@@ -0,0 +1,91 @@
+package com.fractals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * RenderAdmissionTest --- Contains tests for admitting, downgrading and rejecting Fractal2Ds by estimated cost.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class RenderAdmissionTest 
+{
+	private RenderAdmission admission;
+	
+	@Before
+	public void setUp()
+	{
+		admission = new RenderAdmission();
+		admission.setMaxNodes(1e6);
+		admission.setMaxRasterBytes(16L << 20);
+		admission.setMaxCpuMillis(10000);
+	}
+	
+	@Test
+	public void admitTest_withinBudget()
+	{
+		FractalTree fractalTree = new FractalTree(500, 500, 10, Math.toRadians(60), 0.77, 40, 40);
+		RenderAdmission.Admission admitted = admission.admit(fractalTree);
+		assertFalse(admitted.isDowngraded());
+		assertEquals(10, fractalTree.getIterations());
+		assertEquals(1023, admitted.getCost().getNodes(), 0);
+	}
+	
+	@Test
+	public void admitTest_downgrade()
+	{
+		// 1. Culling alone brings 2^40 nodes within budget: most levels are sub-pixel
+		admission.setOverBudget(RenderAdmission.OverBudget.DOWNGRADE);
+		FractalTree fractalTree = new FractalTree(500, 500, 40, Math.toRadians(60), 0.77, 40, 40);
+		RenderAdmission.Admission admitted = admission.admit(fractalTree);
+		assertTrue(admitted.isDowngraded());
+		assertEquals(40, admitted.getRequestedIterations());
+		assertTrue(fractalTree.culling);
+		assertTrue(admitted.getCost().getNodes() <= 1e6);
+		
+		// 2. Satellites too big to be culled: iterations are lowered to the most that fit
+		FractalCircle fractalCircle = new FractalCircle(700, 500, 1000000000, 50, 0.9, 40, 40);
+		admitted = admission.admit(fractalCircle);
+		assertTrue(admitted.isDowngraded());
+		assertEquals(4, fractalCircle.getIterations()); //1 + 50 + 50^2 + 50^3 nodes
+	}
+	
+	@Test
+	public void admitTest_reject()
+	{
+		// 1. Over budget, with downgrading disabled
+		admission.setOverBudget(RenderAdmission.OverBudget.REJECT);
+		try {
+			admission.admit(new FractalCircle(700, 500, 8, 50, 0.5, 40, 40));
+			fail("Expected RenderTooExpensiveException");
+		} catch (RenderTooExpensiveException e) {
+			assertEquals(8, e.getCost().getLevels());
+		}
+		
+		// 2. Image too large for the budget no matter the iterations, unless rendered in tiles
+		admission.setOverBudget(RenderAdmission.OverBudget.DOWNGRADE);
+		FractalTree huge = new FractalTree(10000, 10000, 2, Math.toRadians(60), 0.77, 40, 40);
+		try {
+			admission.admit(huge);
+			fail("Expected RenderTooExpensiveException");
+		} catch (RenderTooExpensiveException e) {
+			// expected
+		}
+		assertFalse(admission.admit(huge, 100).isDowngraded());
+	}
+	
+	@Test
+	public void admitTest_queueOverBudget()
+	{
+		// Queued as requested by default
+		FractalTree fractalTree = new FractalTree(500, 500, 40, Math.toRadians(60), 0.77, 40, 40);
+		assertFalse(admission.admit(fractalTree).isDowngraded());
+		assertEquals(40, fractalTree.getIterations());
+	}
+}
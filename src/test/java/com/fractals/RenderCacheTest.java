@@ -0,0 +1,95 @@
+package com.fractals;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * RenderCacheTest --- Contains tests for RenderCache LRU eviction, its counters, and its RenderStore.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class RenderCacheTest 
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void getTest_hitsAndMisses()
+	{
+		RenderCache cache = new RenderCache(100);
+		byte[] image = {1, 2, 3};
+		assertNull(cache.get("a"));
+		cache.put("a", image);
+		assertArrayEquals(image, cache.get("a"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(3, cache.getBytes());
+	}
+	
+	@Test
+	public void peekTest_notCounted()
+	{
+		RenderCache cache = new RenderCache(100);
+		byte[] image = {1, 2, 3};
+		assertNull(cache.peek("a"));
+		cache.put("a", image);
+		assertArrayEquals(image, cache.peek("a"));
+		assertEquals(0, cache.getHits());
+		assertEquals(0, cache.getMisses());
+	}
+	
+	@Test
+	public void putTest_evictsLeastRecentlyUsed()
+	{
+		RenderCache cache = new RenderCache(100);
+		cache.put("a", new byte[40]);
+		cache.put("b", new byte[40]);
+		cache.get("a"); //"b" is now least recently used
+		cache.put("c", new byte[40]);
+		
+		assertNull(cache.get("b"));
+		assertEquals(40, cache.get("a").length);
+		assertEquals(40, cache.get("c").length);
+		assertEquals(1, cache.getEvictions());
+		assertEquals(80, cache.getBytes());
+		
+		// Replacing an image only counts its new size
+		cache.put("a", new byte[10]);
+		assertEquals(50, cache.getBytes());
+		assertEquals(2, cache.getSize());
+	}
+	
+	@Test
+	public void putTest_tooLarge()
+	{
+		RenderCache cache = new RenderCache(100);
+		cache.put("a", new byte[50]);
+		cache.put("huge", new byte[101]);
+		assertNull(cache.get("huge"));
+		assertEquals(1, cache.getSize());
+		assertEquals(0, cache.getEvictions());
+	}
+	
+	@Test
+	public void getTest_fallsBackToStore() throws Exception
+	{
+		RenderStore store = new RenderStore(folder.getRoot().getPath(), 1000);
+		String key = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+		new RenderCache(100, store).put(key, new byte[10]);
+		
+		// A new cache (e.g. after a restart) gets the image from the store, and then keeps it in memory
+		RenderCache cache = new RenderCache(100, store);
+		assertEquals(10, cache.get(key).length);
+		assertEquals(1, cache.getStoreHits());
+		assertEquals(10, cache.getBytes());
+		assertEquals(10, cache.get(key).length);
+		assertEquals(1, cache.getStoreHits());
+		store.close();
+	}
+}
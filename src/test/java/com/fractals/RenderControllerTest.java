@@ -0,0 +1,235 @@
+package com.fractals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * RenderControllerTest --- Contains tests for the images streamed by RenderController.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class RenderControllerTest 
+{
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private Fractal2DRunner fractal2DRunner;
+	
+	@Test
+	public void renderFractalTreeTest() throws Exception
+	{
+		BufferedImage image = render("/render/fractal-tree.png?w=320&h=240&i=8");
+		assertEquals(320, image.getWidth());
+		assertEquals(240, image.getHeight());
+	}
+	
+	@Test
+	public void renderFractalCircleTest() throws Exception
+	{
+		// Rendering the same fractal twice gives the same image (2nd time from the render cache)
+		BufferedImage image = render("/render/fractal-circle.png?w=300&h=200&i=3&satellites=5");
+		BufferedImage cached = render("/render/fractal-circle.png?w=300&h=200&i=3&satellites=5");
+		assertEquals(300, image.getWidth());
+		assertEquals(200, image.getHeight());
+		for(int y = 0; y < 200; y++) {
+			for(int x = 0; x < 300; x++) {
+				assertEquals(image.getRGB(x, y), cached.getRGB(x, y));
+			}
+		}
+	}
+	
+	@Test
+	public void getStoredImageTest() throws Exception
+	{
+		// Images generated for the fractal pages are served by render key once stored
+		MvcResult page = mockMvc.perform(get("/fractal-tree?w=120&h=90&i=5")).andExpect(status().isOk()).andReturn();
+		String imagePath = (String) page.getModelAndView().getModel().get("imagePath");
+		assertTrue(imagePath, imagePath.matches("/store/[0-9a-f]{64}\\.png"));
+		String jobId = (String) page.getModelAndView().getModel().get("jobId");
+		if(jobId != null) {
+			fractal2DRunner.getRecentJob(jobId).getFuture().get(10, TimeUnit.SECONDS);
+		}
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(
+				mockMvc.perform(get(imagePath)).andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray()));
+		assertEquals(120, image.getWidth());
+		
+		mockMvc.perform(get("/store/" + imagePath.replaceAll("[0-9a-f]", "0").substring(7))).andExpect(status().isNotFound());
+	}
+	
+	@Test
+	public void renderFractalTreeTest_tiled() throws Exception
+	{
+		BufferedImage untiled = render("/render/fractal-tree.png?w=320&h=240&i=9");
+		BufferedImage tiled = render("/render/fractal-tree.png?w=320&h=240&i=9&tile=50");
+		PngEncoderTest.assertImagesEqual(untiled, tiled);
+	}
+	
+	@Test
+	public void renderFractalTreeTest_costHeaders() throws Exception
+	{
+		MvcResult generated = mockMvc.perform(get("/render/fractal-tree.png?w=320&h=240&i=8")).andReturn();
+		generated.getAsyncResult();
+		mockMvc.perform(asyncDispatch(generated))
+			   .andExpect(header().string("X-Render-Nodes", "255"))
+			   .andExpect(header().string("X-Render-Levels", "8"));
+	}
+	
+	@Test
+	public void renderFractalTreeSvgTest() throws Exception
+	{
+		MvcResult streamed = mockMvc.perform(get("/render/fractal-tree.svg?w=320&h=240&i=8"))
+									.andExpect(request().asyncStarted())
+									.andExpect(header().string("X-Render-Raster-Bytes", "0"))
+									.andReturn();
+		streamed.getAsyncResult();
+		assertEquals("image/svg+xml", streamed.getResponse().getContentType());
+		String svg = streamed.getResponse().getContentAsString();
+		assertTrue(svg.contains("<svg"));
+		assertTrue(svg.endsWith("</svg>\n"));
+		assertEquals(255, svg.split("M").length - 1); //segments
+	}
+	
+	@Test
+	public void renderBatchTest() throws Exception
+	{
+		// The 3rd spec is the 1st one with its defaults spelled out, so is only rendered once
+		String specs = "[{\"type\": \"fractal-tree\", \"w\": 320, \"h\": 240, \"i\": 8}," 
+					 + " {\"type\": \"fractal-circle\", \"w\": 300, \"h\": 200, \"i\": 3, \"satellites\": 6}," 
+					 + " {\"type\": \"fractal-tree\", \"w\": 320, \"h\": 240, \"i\": 8, \"angle\": 60}]";
+		MvcResult streamed = mockMvc.perform(post("/render/batch.zip").contentType(MediaType.APPLICATION_JSON).content(specs))
+									.andExpect(request().asyncStarted())
+									.andExpect(header().string("X-Batch-Images", "2"))
+									.andReturn();
+		streamed.getAsyncResult();
+		assertEquals("application/zip", streamed.getResponse().getContentType());
+		
+		Map<String, byte[]> entries = new HashMap<>();
+		try(ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(streamed.getResponse().getContentAsByteArray()))) {
+			for(ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+				ByteArrayOutputStream data = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				for(int read = zip.read(buffer); read > 0; read = zip.read(buffer)) {
+					data.write(buffer, 0, read);
+				}
+				entries.put(entry.getName(), data.toByteArray());
+			}
+		}
+		assertEquals(3, entries.size());
+		assertEquals("spec,entry\n0,0-fractal-tree.png\n1,1-fractal-circle.png\n2,0-fractal-tree.png\n", 
+					 new String(entries.get("index.csv"), StandardCharsets.UTF_8));
+		BufferedImage tree = ImageIO.read(new ByteArrayInputStream(entries.get("0-fractal-tree.png")));
+		PngEncoderTest.assertImagesEqual(render("/render/fractal-tree.png?w=320&h=240&i=8"), tree);
+		assertEquals(300, ImageIO.read(new ByteArrayInputStream(entries.get("1-fractal-circle.png"))).getWidth());
+	}
+	
+	@Test
+	public void renderFractalTreeAnimationTest() throws Exception
+	{
+		// More frames than runner threads, so that later frames are drawn onto the images of written ones
+		MvcResult streamed = mockMvc.perform(get("/render/fractal-tree.gif?w=200&h=150&i=7&from=0&to=70&frames=8"))
+									.andExpect(request().asyncStarted())
+									.andReturn();
+		streamed.getAsyncResult();
+		assertEquals("image/gif", streamed.getResponse().getContentType());
+		ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+		reader.setInput(ImageIO.createImageInputStream(
+				new ByteArrayInputStream(streamed.getResponse().getContentAsByteArray())));
+		assertEquals(8, reader.getNumImages(true));
+		
+		// Frames are in sweep order: frame 6 has an angle of 60 degrees
+		PngEncoderTest.assertImagesEqual(render("/render/fractal-tree.png?w=200&h=150&i=7&angle=60"), reader.read(6));
+		
+		mockMvc.perform(get("/render/fractal-tree.gif?sweep=iterations")).andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void renderBatchTest_invalid() throws Exception
+	{
+		mockMvc.perform(post("/render/batch.zip").contentType(MediaType.APPLICATION_JSON).content("[]"))
+			   .andExpect(status().isBadRequest());
+		mockMvc.perform(post("/render/batch.zip").contentType(MediaType.APPLICATION_JSON)
+												 .content("[{\"type\": \"fractal-square\"}]"))
+			   .andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void renderDistributedTest() throws Exception
+	{
+		BufferedImage untiled = render("/render/fractal-tree.png?w=320&h=240&i=9");
+		String spec = "{\"type\": \"fractal-tree\", \"w\": 320, \"h\": 240, \"i\": 9}";
+		
+		// 1. A worker renders just the rows of the tile
+		MvcResult generated = mockMvc.perform(post("/render/tile.png?y=100&tile=50").contentType(MediaType.APPLICATION_JSON)
+																				  .content(spec))
+									 .andExpect(request().asyncStarted())
+									 .andReturn();
+		generated.getAsyncResult();
+		MvcResult rendered = mockMvc.perform(asyncDispatch(generated))
+									.andExpect(status().isOk())
+									.andExpect(header().exists("X-Render-Key"))
+									.andReturn();
+		BufferedImage tile = ImageIO.read(new ByteArrayInputStream(rendered.getResponse().getContentAsByteArray()));
+		PngEncoderTest.assertImagesEqual(untiled.getSubimage(0, 100, 320, 50), tile);
+		mockMvc.perform(post("/render/tile.png?y=200&tile=50").contentType(MediaType.APPLICATION_JSON).content(spec))
+			   .andExpect(status().isBadRequest());
+		
+		// 2. Without any workers, the coordinator renders every tile itself
+		MvcResult streamed = mockMvc.perform(post("/render/distributed.png?tile=64").contentType(MediaType.APPLICATION_JSON)
+																				   .content(spec))
+									.andExpect(request().asyncStarted())
+									.andReturn();
+		streamed.getAsyncResult();
+		PngEncoderTest.assertImagesEqual(untiled, ImageIO.read(new ByteArrayInputStream(
+				streamed.getResponse().getContentAsByteArray())));
+	}
+	
+	private BufferedImage render(String uri) throws Exception
+	{
+		// Generation completes the 1st async phase, and streaming the image the 2nd
+		MvcResult generated = mockMvc.perform(get(uri)).andExpect(request().asyncStarted()).andReturn();
+		generated.getAsyncResult();
+		MvcResult streamed = mockMvc.perform(asyncDispatch(generated))
+									.andExpect(status().isOk())
+									.andExpect(content().contentType(MediaType.IMAGE_PNG))
+									.andReturn();
+		streamed.getAsyncResult();
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(streamed.getResponse().getContentAsByteArray()));
+		assertNotNull(image);
+		return image;
+	}
+}
@@ -0,0 +1,120 @@
+package com.fractals;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * RenderStoreTest --- Contains tests for storing images in a RenderStore across restarts,
+ * 					   evicting them by size, and recovering from a damaged index.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class RenderStoreTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void getTest_survivesRestart() throws Exception
+	{
+		String directory = folder.getRoot().getPath();
+		RenderStore store = new RenderStore(directory, 100);
+		byte[] image = {1, 2, 3};
+		assertNull(store.get(key('a')));
+		store.put(key('a'), image);
+		assertArrayEquals(image, store.get(key('a')));
+		store.close();
+
+		// A new store in the same directory (e.g. after a restart) has the same images
+		RenderStore restarted = new RenderStore(directory, 100);
+		assertArrayEquals(image, restarted.get(key('a')));
+		assertEquals(1, restarted.getSize());
+		assertEquals(3, restarted.getBytes());
+		restarted.close();
+	}
+
+	@Test
+	public void putTest_evictsLeastRecentlyUsed() throws Exception
+	{
+		String directory = folder.getRoot().getPath();
+		RenderStore store = new RenderStore(directory, 100);
+		store.put(key('a'), new byte[40]);
+		store.put(key('b'), new byte[40]);
+		store.get(key('a')); //"b" is now least recently used
+		store.put(key('c'), new byte[40]);
+		store.put(key('d'), new byte[101]); //too large
+
+		assertNull(store.get(key('b')));
+		assertNull(store.get(key('d')));
+		assertEquals(40, store.get(key('a')).length);
+		assertEquals(80, store.getBytes());
+		store.close();
+
+		// Evicted images stay evicted after a restart
+		RenderStore restarted = new RenderStore(directory, 100);
+		assertFalse(restarted.contains(key('b')));
+		assertTrue(restarted.contains(key('a')));
+		assertTrue(restarted.contains(key('c')));
+		restarted.close();
+	}
+
+	@Test
+	public void loadTest_damagedIndex() throws Exception
+	{
+		String directory = folder.getRoot().getPath();
+		RenderStore store = new RenderStore(directory, 100);
+		store.put(key('a'), new byte[10]);
+		store.put(key('b'), new byte[10]);
+		store.close();
+
+		// 1. A record cut off by a crash, and an image whose file is gone, are dropped
+		Path index = store.getDirectory().resolve("index.log");
+		Files.write(index, ("+ " + key('c') + " 1").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		Files.delete(store.getDirectory().resolve("objects").resolve("bb").resolve(key('b') + ".png"));
+		RenderStore restarted = new RenderStore(directory, 100);
+		assertEquals(1, restarted.getSize());
+		assertEquals(10, restarted.get(key('a')).length);
+		assertNull(restarted.get(key('b')));
+		assertNull(restarted.get(key('c')));
+
+		// 2. The index is rewritten without them, and still appended to
+		restarted.put(key('d'), new byte[10]);
+		restarted.close();
+		assertEquals(2, Files.readAllLines(index).size());
+	}
+
+	@Test
+	public void getTest_invalidKey()
+	{
+		RenderStore store = new RenderStore(folder.getRoot().getPath(), 100);
+		store.put("../../escape", new byte[1]);
+		assertNull(store.get("../../escape"));
+		assertEquals(0, store.getSize());
+		store.close();
+	}
+
+	/**
+	 * @return a render key (64 hex characters) of a single repeated character.
+	 */
+	private static String key(char c)
+	{
+		StringBuilder key = new StringBuilder();
+		for(int i = 0; i < 64; i++) {
+			key.append(c);
+		}
+		return key.toString();
+	}
+}
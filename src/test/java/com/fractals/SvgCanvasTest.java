@@ -0,0 +1,80 @@
+package com.fractals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+/**
+ * SvgCanvasTest --- Contains tests for the SVG images streamed by SvgCanvas and Fractal2D.writeSvg.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class SvgCanvasTest 
+{
+	@Test
+	public void drawLineTest_precision() throws Exception
+	{
+		assertTrue(drawLine(2).contains("d=\"M1.25 -0.04L10 3.14\""));
+		assertTrue(drawLine(0).contains("d=\"M1 0L10 3\""));
+	}
+	
+	@Test
+	public void writeSvgTest_fractalTree() throws Exception
+	{
+		// 1. One path per level: 1, 2, 4 and 8 segments
+		Document svg = writeSvg(new FractalTree(300, 300, 4, Math.toRadians(60), 0.77, 40, 40), 1000);
+		NodeList paths = svg.getElementsByTagName("path");
+		assertEquals(4, paths.getLength());
+		for(int depth = 0; depth < 4; depth++) {
+			String path = paths.item(depth).getAttributes().getNamedItem("d").getNodeValue();
+			assertEquals(1 << depth, path.split("M").length - 1);
+		}
+		
+		// 2. Paths of at most 2 segments: 1 + 1 + 2 + 4 paths
+		svg = writeSvg(new FractalTree(300, 300, 4, Math.toRadians(60), 0.77, 40, 40), 2);
+		assertEquals(8, svg.getElementsByTagName("path").getLength());
+		
+		// 3. Lines instead of paths
+		svg = writeSvg(new FractalTree(300, 300, 4, Math.toRadians(60), 0.77, 40, 40), 1);
+		assertEquals(0, svg.getElementsByTagName("path").getLength());
+		assertEquals(15, svg.getElementsByTagName("line").getLength());
+	}
+	
+	@Test
+	public void writeSvgTest_fractalCircle() throws Exception
+	{
+		Document svg = writeSvg(new FractalCircle(300, 300, 3, 4, 0.5, 40, 40), 0);
+		assertEquals(1 + 4 + 16, svg.getElementsByTagName("circle").getLength());
+		assertEquals("300", svg.getDocumentElement().getAttribute("width"));
+	}
+	
+	private static String drawLine(int precision) throws Exception
+	{
+		StringWriter output = new StringWriter();
+		SvgCanvas canvas = new SvgCanvas(output, 10, 10, 0xFFFFFF, 0, precision, 1000);
+		canvas.drawLine(1.25, -0.04, 10, 3.14159);
+		canvas.finish();
+		return output.toString();
+	}
+	
+	/**
+	 * Write fractal2D as an SVG image and parse it.
+	 */
+	private static Document writeSvg(Fractal2D fractal2D, int maxPathSegments) throws Exception
+	{
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		fractal2D.writeSvg(output, 1, maxPathSegments);
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+									 .parse(new ByteArrayInputStream(output.toByteArray()));
+	}
+}
@@ -0,0 +1,222 @@
+package com.fractals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * TileCoordinatorTest --- Contains tests for rendering Fractal2Ds in tiles on workers that return them
+ * 						   correctly, fail, are slow, or render with other settings.
+ * @author Scott Wolfskill
+ * @created     10/18/2026
+ * @last_edit   10/18/2026
+ */
+public class TileCoordinatorTest
+{
+	private List<HttpServer> servers;
+	private CountDownLatch release; //slow workers return their tiles once this is released
+	private Fractal2D.PixelFormat pixelFormat; //format of the tiles rendered by workers
+	private SimpleMeterRegistry registry;
+
+	/**
+	 * Worker --- How a stub worker responds to POST /render/tile.png.
+	 */
+	private enum Worker
+	{
+		GOOD,	//renders the tile
+		FAILING, //responds with HTTP 500
+		SLOW,	//renders the tile, but only returns it once released
+		OTHER	//renders the tile with other render settings
+	}
+
+	@Before
+	public void setUp()
+	{
+		servers = new ArrayList<>();
+		release = new CountDownLatch(1);
+		pixelFormat = Fractal2D.PixelFormat.RGB;
+		registry = new SimpleMeterRegistry();
+	}
+
+	@After
+	public void tearDown()
+	{
+		release.countDown();
+		for(HttpServer server : servers) {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void writeTest_goodWorkers() throws Exception
+	{
+		for(Fractal2D.PixelFormat format : Fractal2D.PixelFormat.values()) {
+			pixelFormat = format;
+			AtomicInteger requests = new AtomicInteger(0);
+			TileCoordinator coordinator = coordinator(60000, 3, startWorker(Worker.GOOD, requests),
+													  startWorker(Worker.GOOD, requests));
+			assertImageEqualsTiled(coordinator);
+			assertEquals(5, requests.get()); //each tile once
+			coordinator.shutdown();
+		}
+	}
+
+	@Test
+	public void writeTest_failingWorkers() throws Exception
+	{
+		// Tiles that fail are retried on the good worker
+		AtomicInteger failed = new AtomicInteger(0);
+		AtomicInteger rendered = new AtomicInteger(0);
+		TileCoordinator coordinator = coordinator(60000, 3, startWorker(Worker.FAILING, failed),
+												  startWorker(Worker.OTHER, failed), startWorker(Worker.GOOD, rendered));
+		assertImageEqualsTiled(coordinator);
+		assertTrue(failed.get() > 0);
+		assertEquals(5, rendered.get());
+		assertEquals(failed.get(), retries("failed"), 0);
+		coordinator.shutdown();
+
+		// Tiles that fail on every attempt are rendered by the coordinator
+		AtomicInteger attempts = new AtomicInteger(0);
+		coordinator = coordinator(60000, 2, startWorker(Worker.FAILING, attempts));
+		assertImageEqualsTiled(coordinator);
+		assertEquals(5 * 2, attempts.get());
+		assertEquals(5, retries("local"), 0);
+		coordinator.shutdown();
+	}
+
+	@Test
+	public void writeTest_slowWorkers() throws Exception
+	{
+		// Tiles of the slow worker are sent to the good worker too, which returns them first
+		AtomicInteger slow = new AtomicInteger(0);
+		AtomicInteger good = new AtomicInteger(0);
+		TileCoordinator coordinator = coordinator(500, 3, startWorker(Worker.SLOW, slow), startWorker(Worker.GOOD, good));
+		assertImageEqualsTiled(coordinator);
+		assertEquals(5, good.get());
+		assertTrue(slow.get() > 0);
+		assertTrue(retries("slow") > 0);
+		coordinator.shutdown();
+
+		// Tiles that are slow on every worker, or that no worker can take, are rendered by the coordinator
+		long start = System.nanoTime();
+		coordinator = coordinator(100, 3, startWorker(Worker.SLOW, slow));
+		assertImageEqualsTiled(coordinator);
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)); //without waiting for the slow worker
+		coordinator.shutdown();
+	}
+
+	/**
+	 * Render a FractalTree in tiles with coordinator, and check that it is the same image
+	 * as when rendered in tiles of the same height locally.
+	 */
+	private void assertImageEqualsTiled(TileCoordinator coordinator) throws Exception
+	{
+		Fractal2DSpec spec = new Fractal2DSpec();
+		spec.setType("fractal-tree");
+		spec.setW(320);
+		spec.setH(240);
+		spec.setI(9);
+		Fractal2D local = spec.toFractal2D();
+		local.setPixelFormat(pixelFormat);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		local.writeTiled(expected, 50);
+
+		Fractal2D distributed = spec.toFractal2D();
+		distributed.setPixelFormat(pixelFormat);
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		coordinator.write(distributed, spec.withSettingsOf(distributed), actual, 50);
+		PngEncoderTest.assertImagesEqual(ImageIO.read(new ByteArrayInputStream(expected.toByteArray())),
+										 ImageIO.read(new ByteArrayInputStream(actual.toByteArray())));
+	}
+
+	/**
+	 * @return tiles counted as retried for reason by the coordinators of the current test.
+	 */
+	private double retries(String reason)
+	{
+		Counter counter = registry.find("fractals.tiles.retries").tag("reason", reason).counter();
+		return counter != null ? counter.count() : 0;
+	}
+
+	private TileCoordinator coordinator(long slowAfter, int maxAttempts, String... workers)
+	{
+		return new TileCoordinator(workers, 256, 2, slowAfter, 10000, maxAttempts, new RenderMetrics(registry, new RenderCache(0)));
+	}
+
+	/**
+	 * Start a stub worker on a free port.
+	 * @param requests Incremented on every request for a tile.
+	 * @return base URL of the worker.
+	 */
+	private String startWorker(Worker worker, AtomicInteger requests) throws IOException
+	{
+		final Fractal2D.PixelFormat format = pixelFormat;
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/render/tile.png", (HttpExchange exchange) -> {
+			requests.incrementAndGet();
+			try {
+				Fractal2DSpec spec = new ObjectMapper().readValue(exchange.getRequestBody(), Fractal2DSpec.class);
+				Map<String, Integer> query = new HashMap<>();
+				for(String param : exchange.getRequestURI().getQuery().split("&")) {
+					query.put(param.split("=")[0], Integer.parseInt(param.split("=")[1]));
+				}
+				Fractal2D fractal2D = spec.toFractal2D();
+				fractal2D.setPixelFormat(format);
+				String renderKey = fractal2D.getRenderKey();
+				if(worker == Worker.OTHER) {
+					fractal2D.setRasterizer(Fractal2D.Rasterizer.DIRECT);
+					renderKey = fractal2D.getRenderKey();
+				}
+				if(worker == Worker.FAILING) {
+					exchange.sendResponseHeaders(500, -1);
+					return;
+				}
+				byte[] tile = fractal2D.encodeTile(query.get("y"), query.get("tile"));
+				if(worker == Worker.SLOW) {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				exchange.getResponseHeaders().add("Content-Type", "image/png");
+				exchange.getResponseHeaders().add("X-Render-Key", renderKey);
+				exchange.sendResponseHeaders(200, tile.length);
+				try(OutputStream body = exchange.getResponseBody()) {
+					body.write(tile);
+				}
+			} catch (Exception e) {
+				exchange.sendResponseHeaders(500, -1);
+			} finally {
+				exchange.close();
+			}
+		});
+		server.start();
+		servers.add(server);
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+}